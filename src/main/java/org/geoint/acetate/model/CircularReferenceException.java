@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown if domain types reference each other in a cycle, which prevents the
+ * types from being constructed.
+ *
+ * @author steve_siebert
+ */
+public class CircularReferenceException extends InvalidDomainException {
+
+    private final List<String> path;
+
+    /**
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @param path names of the types in the reference cycle, in reference
+     * order, where the first and last type name are the same
+     */
+    public CircularReferenceException(String namespace, String version,
+            List<String> path) {
+        super(namespace, version, message(namespace, version, path));
+        this.path = Collections.unmodifiableList(new ArrayList<>(path));
+    }
+
+    /**
+     * Names of the types in the reference cycle, in reference order.
+     *
+     * @return type names, where the first and last type name are the same
+     */
+    public List<String> getPath() {
+        return path;
+    }
+
+    private static String message(String namespace, String version,
+            List<String> path) {
+        return String.format("Domain '%s-%s' types reference each other in a "
+                + "cycle: %s", namespace, version, String.join(" -> ", path));
+    }
+}
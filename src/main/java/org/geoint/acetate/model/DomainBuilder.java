@@ -18,12 +18,18 @@ package org.geoint.acetate.model;
 import org.geoint.acetate.spi.model.TypeResolver;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -42,6 +48,15 @@ import org.geoint.acetate.serialization.ValueCodec;
  * {@link DomainBuilder#build() }, which will return the same DomainModel
  * instance.
  * <p>
+ * Each domain type is created once during {@link DomainBuilder#build() },
+ * regardless of how many other types reference it, and the same type instance
+ * is shared by all references. Types which reference each other in a cycle
+ * cannot be built and result in a {@link CircularReferenceException}.
+ * <p>
+ * Types are created in dependency order. Very large domains may be built with
+ * {@link DomainBuilder#buildParallel() }, which creates types that do not
+ * depend on each other concurrently.
+ * <p>
  * DomainBuilder instances should be expected to not be thread-safe.
  *
  * @author steve_siebert
@@ -54,6 +69,8 @@ public class DomainBuilder {
     private final NamedSet<TypeBuilder> typeBuilders = new NamedSet<>(TypeBuilder::getTypeName);
     private DomainModel model = null; //if not null the builder is no longer valid
     private HierarchicalTypeResolver resolver;
+    private final MemoryTypeResolver builtTypes = MemoryTypeResolver.concurrent();
+    private final Set<String> resolving = new LinkedHashSet<>(); //types being created
 
     public DomainBuilder(String namespace, String version) {
         this(namespace, version, null);
@@ -77,7 +94,7 @@ public class DomainBuilder {
          */
         this.resolver = HierarchicalTypeResolver.newHierarchy(new TypeBuilderResolver())
                 .optionalChild(resolver)
-                .addChild(new MemoryTypeResolver());
+                .addChild(builtTypes);
     }
 
     /**
@@ -183,12 +200,230 @@ public class DomainBuilder {
     public DomainModel build() throws InvalidModelException {
 
         if (model == null) {
-            return DomainModel.newInstance(namespace, version, description,
-                    typeBuilders.toList((t) -> (DomainType) t.createModel(resolver)));
+            try {
+                for (List<TypeBuilder<?, ?>> level : dependencyLevels()) {
+                    for (TypeBuilder<?, ?> b : level) {
+                        createType(b);
+                    }
+                }
+                model = newModel();
+            } catch (TypeCreationException ex) {
+                throw ex.getCause();
+            }
         }
         return model;
     }
 
+    /**
+     * Builds the domain model on the common fork-join pool, creating types
+     * which do not depend on each other concurrently.
+     *
+     * @return domain model
+     * @throws InvalidModelException if the domain model is invalid
+     * @see #buildParallel(ForkJoinPool)
+     */
+    public DomainModel buildParallel() throws InvalidModelException {
+        return buildParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds the domain model on the provided fork-join pool, creating types
+     * which do not depend on each other concurrently.
+     * <p>
+     * Types are created in dependency order: all the types a type references
+     * from this domain are created before the type itself. The resulting
+     * domain model is the same as the one returned from {@link #build() }.
+     *
+     * @param pool pool to create the types on
+     * @return domain model
+     * @throws InvalidModelException if the domain model is invalid
+     */
+    public DomainModel buildParallel(ForkJoinPool pool)
+            throws InvalidModelException {
+
+        if (model == null) {
+            try {
+                for (List<TypeBuilder<?, ?>> level : dependencyLevels()) {
+                    List<ForkJoinTask<DomainType>> tasks
+                            = new ArrayList<>(level.size());
+                    for (TypeBuilder<?, ?> b : level) {
+                        tasks.add(pool.submit(() -> {
+                            //dependencies have already been created
+                            DomainType type = (DomainType) b.createModel(resolver);
+                            builtTypes.add(type);
+                            return type;
+                        }));
+                    }
+                    for (ForkJoinTask<DomainType> t : tasks) {
+                        t.get();
+                    }
+                }
+                model = newModel();
+            } catch (ExecutionException ex) {
+                //fork-join may wrap (or re-create) the task exception
+                for (Throwable cause = ex.getCause(); cause != null;
+                        cause = cause.getCause()) {
+                    if (cause instanceof TypeCreationException) {
+                        throw ((TypeCreationException) cause).getCause();
+                    } else if (cause instanceof InvalidModelException) {
+                        throw (InvalidModelException) cause;
+                    }
+                }
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new InvalidModelException(String.format("Unable to "
+                        + "build domain '%s-%s'.", namespace, version),
+                        ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InvalidModelException(String.format("Interrupted "
+                        + "building domain '%s-%s'.", namespace, version), ex);
+            } catch (TypeCreationException ex) {
+                throw ex.getCause();
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Creates the domain model from the created types.
+     *
+     * @return domain model
+     * @throws InvalidModelException if the model is invalid
+     */
+    private DomainModel newModel() throws InvalidModelException {
+        return DomainModel.newInstance(namespace, version, description,
+                typeBuilders.toList(this::createType));
+    }
+
+    /**
+     * Orders the type builders by their dependencies on other types of this
+     * domain.
+     * <p>
+     * Each level only contains types which depend on types of previous levels,
+     * so the types of a level may be created in any order (or concurrently).
+     *
+     * @return type builders in dependency order
+     * @throws CircularReferenceException if types reference each other in a
+     * cycle
+     */
+    private List<List<TypeBuilder<?, ?>>> dependencyLevels()
+            throws CircularReferenceException {
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        Map<String, List<TypeBuilder<?, ?>>> dependents = new HashMap<>();
+        Map<String, Integer> unresolved = new HashMap<>();
+        List<TypeBuilder<?, ?>> level = new ArrayList<>();
+
+        for (TypeBuilder<?, ?> b : typeBuilders) {
+            Set<String> refs = new LinkedHashSet<>();
+            b.addReferencedTypes(refs);
+            refs.removeIf((tn) -> !typeBuilders.findByName(tn).isPresent());
+            dependencies.put(b.typeName, refs);
+            unresolved.put(b.typeName, refs.size());
+            if (refs.isEmpty()) {
+                level.add(b);
+            }
+            for (String tn : refs) {
+                dependents.computeIfAbsent(tn, (n) -> new ArrayList<>()).add(b);
+            }
+        }
+
+        List<List<TypeBuilder<?, ?>>> levels = new ArrayList<>();
+        int ordered = 0;
+        while (!level.isEmpty()) {
+            levels.add(level);
+            ordered += level.size();
+            List<TypeBuilder<?, ?>> next = new ArrayList<>();
+            for (TypeBuilder<?, ?> b : level) {
+                for (TypeBuilder<?, ?> d : dependents.getOrDefault(b.typeName,
+                        Collections.emptyList())) {
+                    if (unresolved.merge(d.typeName, -1, Integer::sum) == 0) {
+                        next.add(d);
+                    }
+                }
+            }
+            level = next;
+        }
+
+        if (ordered < typeBuilders.size()) {
+            //each remaining type references at least one other remaining type
+            String current = null;
+            for (Map.Entry<String, Integer> e : unresolved.entrySet()) {
+                if (e.getValue() > 0) {
+                    current = e.getKey();
+                    break;
+                }
+            }
+            Map<String, Integer> pathIndex = new LinkedHashMap<>();
+            while (!pathIndex.containsKey(current)) {
+                pathIndex.put(current, pathIndex.size());
+                for (String dep : dependencies.get(current)) {
+                    if (unresolved.get(dep) > 0) {
+                        current = dep;
+                        break;
+                    }
+                }
+            }
+            List<String> path = new ArrayList<>(pathIndex.keySet());
+            path = new ArrayList<>(path.subList(pathIndex.get(current), path.size()));
+            path.add(current);
+            throw new CircularReferenceException(namespace, version, path);
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the domain type defined by the builder, creating the type if it
+     * has not already been created.
+     *
+     * @param builder type builder
+     * @return domain type
+     * @throws InvalidModelException if the type definition is invalid, or if
+     * the type references itself through its composites
+     */
+    private DomainType createType(TypeBuilder builder)
+            throws InvalidModelException {
+        Optional<DomainType> created = builtTypes.resolve(namespace, version,
+                builder.typeName);
+        if (created.isPresent()) {
+            return created.get();
+        }
+
+        //guards creation of types which are referenced before they were
+        //created in dependency order
+        synchronized (resolving) {
+            created = builtTypes.resolve(namespace, version, builder.typeName);
+            if (created.isPresent()) {
+                return created.get();
+            }
+            return createReferencedType(builder);
+        }
+    }
+
+    private DomainType createReferencedType(TypeBuilder builder)
+            throws InvalidModelException {
+        if (!resolving.add(builder.typeName)) {
+            List<String> path = new ArrayList<>();
+            boolean inCycle = false;
+            for (String tn : resolving) {
+                inCycle = inCycle || tn.contentEquals(builder.typeName);
+                if (inCycle) {
+                    path.add(tn);
+                }
+            }
+            path.add(builder.typeName);
+            throw new CircularReferenceException(namespace, version, path);
+        }
+        try {
+            DomainType type = (DomainType) builder.createModel(resolver);
+            builtTypes.add(type);
+            return type;
+        } finally {
+            resolving.remove(builder.typeName);
+        }
+    }
+
     private void verifyBuilderState() throws IllegalStateException {
         if (model != null) {
             throw new IllegalStateException("DomainBuilder has been built "
@@ -198,6 +433,15 @@ public class DomainBuilder {
 
     public abstract class ModelBuilder<M> {
 
+        /**
+         * Adds the names of the types, of the domain being built, that are
+         * referenced by this builder.
+         *
+         * @param typeNames referenced type names
+         */
+        void addReferencedTypes(Collection<String> typeNames) {
+        }
+
         /**
          * Creates the domain model component from this builder.
          *
@@ -285,8 +529,9 @@ public class DomainBuilder {
         private String description;
         private boolean idempotent = false;
         private boolean safe = false;
-        private NamedSet<NamedTypeRefBuilder> parameters;
-        private NamedTypeRefBuilder returnEvent;
+        private final NamedSet<NamedTypeRefBuilder> parameters
+                = new NamedSet<>(NamedTypeRefBuilder::getRefName);
+        private NamedTypeRefBuilder<OperationBuilder> returnEvent;
 
         public OperationBuilder(ResourceBuilder rb, String operationName) {
             this.resource = rb;
@@ -346,7 +591,7 @@ public class DomainBuilder {
         public NamedTypeRefBuilder<OperationBuilder> createsEvent(
                 String refName, String eventNamespace, String eventVersion,
                 String eventDomainTypeName) throws InvalidModelException {
-            this.returnEvent = new NamedTypeRefBuilder(this, refName,
+            this.returnEvent = new NamedTypeRefBuilder<>(this, refName,
                     eventNamespace, eventVersion, eventDomainTypeName);
             return this.returnEvent;
         }
@@ -355,6 +600,16 @@ public class DomainBuilder {
             return resource;
         }
 
+        @Override
+        void addReferencedTypes(Collection<String> typeNames) {
+            for (NamedTypeRefBuilder<?> p : parameters) {
+                p.addReferencedTypes(typeNames);
+            }
+            if (returnEvent != null) {
+                returnEvent.addReferencedTypes(typeNames);
+            }
+        }
+
         @Override
         protected ResourceOperation createModel(TypeResolver resolver)
                 throws InvalidModelException {
@@ -428,6 +683,15 @@ public class DomainBuilder {
             return ref;
         }
 
+        @Override
+        void addReferencedTypes(Collection<String> typeNames) {
+            super.addReferencedTypes(typeNames);
+            for (NamedTypeRefBuilder<?> l : links) {
+                l.addReferencedTypes(typeNames);
+            }
+            operations.forEach((o) -> o.addReferencedTypes(typeNames));
+        }
+
         @Override
         protected ResourceType createModel(TypeResolver resolver)
                 throws InvalidModelException {
@@ -610,6 +874,13 @@ public class DomainBuilder {
             }
         }
 
+        @Override
+        void addReferencedTypes(Collection<String> typeNames) {
+            for (NamedRefBuilder<?> c : composites) {
+                c.addReferencedTypes(typeNames);
+            }
+        }
+
         protected Collection<NamedRef> getCompositeRefs(
                 TypeResolver resolver) throws InvalidModelException {
             return this.composites.toList((c) -> {
@@ -631,12 +902,12 @@ public class DomainBuilder {
      * @param <B> declaring builder
      */
     public class NamedRefBuilder<B extends ModelBuilder>
-            extends ModelBuilder {
+            extends ModelBuilder<NamedRef> {
 
         private final B declaringBuilder;
         private final String refName;
         private String description;
-        private RefModelBuilder refModelBuilder; //aggregate
+        private RefModelBuilder<?> refModelBuilder; //aggregate
 
         public NamedRefBuilder(B declaringBuilder, String refName) {
             this.declaringBuilder = declaringBuilder;
@@ -669,6 +940,13 @@ public class DomainBuilder {
             return (NamedMapRefBuilder<B>) refModelBuilder;
         }
 
+        @Override
+        void addReferencedTypes(Collection<String> typeNames) {
+            if (refModelBuilder != null) {
+                refModelBuilder.addReferencedTypes(typeNames);
+            }
+        }
+
         @Override
         protected NamedRef createModel(TypeResolver resolver)
                 throws InvalidModelException {
@@ -726,6 +1004,14 @@ public class DomainBuilder {
             return refBuilder.build();
         }
 
+        @Override
+        void addReferencedTypes(Collection<String> typeNames) {
+            if (namespace.contentEquals(refTypeNamespace)
+                    && version.contentEquals(refTypeVersion)) {
+                typeNames.add(refTypeName);
+            }
+        }
+
         @Override
         protected NamedTypeRef createModel(TypeResolver resolver)
                 throws InvalidModelException {
@@ -787,6 +1073,16 @@ public class DomainBuilder {
             return this.valueRefBuilder;
         }
 
+        @Override
+        void addReferencedTypes(Collection<String> typeNames) {
+            if (keyRefBuilder != null) {
+                keyRefBuilder.addReferencedTypes(typeNames);
+            }
+            if (valueRefBuilder != null) {
+                valueRefBuilder.addReferencedTypes(typeNames);
+            }
+        }
+
         @Override
         protected NamedMapRef createModel(TypeResolver resolver)
                 throws InvalidModelException {
@@ -814,7 +1110,7 @@ public class DomainBuilder {
      */
     private class NamedSet<V> implements Set<V> {
 
-        private final Map<String, V> items = new HashMap<>();
+        private final Map<String, V> items = new LinkedHashMap<>();
         private final Function<V, String> namer;
 
         public NamedSet(Function<V, String> namer) {
@@ -935,24 +1231,27 @@ public class DomainBuilder {
     }
 
     /**
-     * Attempts to resolver a DomainType the collection of TypeBuilders
+     * Attempts to resolver a DomainType the collection of TypeBuilders,
+     * creating the type if it has not yet been created.
+     * <p>
+     * If the type definition is invalid a {@link TypeCreationException} is
+     * thrown, which is unwrapped by {@link DomainBuilder#build() }.
      */
     private class TypeBuilderResolver implements TypeResolver {
 
         @Override
         public Optional<DomainType> resolve(String ns,
                 String v, String tn) {
-            Optional<TypeBuilder> typeBuilder = typeBuilders.stream()
-                    .filter((b) -> namespace.contentEquals(ns))
-                    .filter((b) -> version.contentEquals(v))
-                    .filter((b) -> b.typeName.contentEquals(tn))
-                    .findFirst();
+            if (!namespace.contentEquals(ns) || !version.contentEquals(v)) {
+                return Optional.empty();
+            }
 
+            Optional<TypeBuilder> typeBuilder = typeBuilders.findByName(tn);
             if (typeBuilder.isPresent()) {
                 try {
-                    return Optional.of((DomainType) typeBuilder.get()
-                            .createModel(resolver));
+                    return Optional.of(createType(typeBuilder.get()));
                 } catch (InvalidModelException ex) {
+                    throw new TypeCreationException(ex);
                 }
             }
             return Optional.empty();
@@ -960,4 +1259,20 @@ public class DomainBuilder {
 
     }
 
+    /**
+     * Carries a referenced type definition failure through the
+     * {@link TypeResolver} API.
+     */
+    private static class TypeCreationException extends RuntimeException {
+
+        public TypeCreationException(InvalidModelException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized InvalidModelException getCause() {
+            return (InvalidModelException) super.getCause();
+        }
+    }
+
 }
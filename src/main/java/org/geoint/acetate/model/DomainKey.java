@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical identity of a domain: namespace and version.
+ * <p>
+ * DomainKey instances are interned, like {@link TypeKey}, and are shared by
+ * the keys of every type of the domain so the namespace and version strings
+ * of a domain are held once regardless of the number of types.
+ *
+ * @author steve_siebert
+ */
+public final class DomainKey {
+
+    private static final ConcurrentMap<DomainKey, DomainKey> CANONICAL
+            = new ConcurrentHashMap<>();
+
+    private final String namespace;
+    private final String version;
+    private final int hash;
+
+    private DomainKey(String namespace, String version) {
+        this.namespace = namespace;
+        this.version = version;
+        this.hash = 71 * namespace.hashCode() + version.hashCode();
+    }
+
+    /**
+     * Returns the canonical key for the domain.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @return canonical domain key
+     * @throws NullPointerException if any component is null
+     */
+    public static DomainKey of(String namespace, String version)
+            throws NullPointerException {
+        DomainKey key = new DomainKey(
+                Objects.requireNonNull(namespace, "Domain namespace is required."),
+                Objects.requireNonNull(version, "Domain version is required."));
+        DomainKey canonical = CANONICAL.putIfAbsent(key, key);
+        return (canonical == null) ? key : canonical;
+    }
+
+    /**
+     * Namespace of the domain.
+     *
+     * @return domain namespace
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Version of the domain.
+     *
+     * @return domain version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Check if the namespace and version identify this domain.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @return true if the descriptor identifies this domain
+     */
+    public boolean matches(String namespace, String version) {
+        return this.namespace.contentEquals(namespace)
+                && this.version.contentEquals(version);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s-%s", namespace, version);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final DomainKey other = (DomainKey) obj;
+        return this.hash == other.hash
+                && this.matches(other.namespace, other.version);
+    }
+
+}
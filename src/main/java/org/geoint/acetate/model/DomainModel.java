@@ -17,7 +17,6 @@ package org.geoint.acetate.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -28,9 +27,8 @@ import java.util.stream.Stream;
  */
 public final class DomainModel {
 
-    private final String namespace;
-    private final String version;
-    private final Optional<String> description;
+    private final DomainKey key;
+    private final String description; //nullable
     private final ImmutableNamedTypeMap<ResourceType> resources;
     private final ImmutableNamedTypeMap<EventType> events;
     private final ImmutableNamedTypeMap<ValueType> values;
@@ -39,9 +37,8 @@ public final class DomainModel {
             Collection<ResourceType> resources,
             Collection<EventType> events,
             Collection<ValueType> values) throws InvalidModelException {
-        this.namespace = namespace;
-        this.version = version;
-        this.description = Optional.ofNullable(description);
+        this.key = DomainKey.of(namespace, version);
+        this.description = description;
         this.resources = ImmutableNamedTypeMap.createMap(resources, ResourceType::getName);
         this.events = ImmutableNamedTypeMap.createMap(events,
                 EventType::getName, this.resources::containsKey);
@@ -84,7 +81,7 @@ public final class DomainModel {
      * @return domain namespace
      */
     public String getNamespace() {
-        return namespace;
+        return key.getNamespace();
     }
 
     /**
@@ -93,7 +90,16 @@ public final class DomainModel {
      * @return domain version
      */
     public String getVersion() {
-        return version;
+        return key.getVersion();
+    }
+
+    /**
+     * Canonical identity of the domain.
+     *
+     * @return domain key
+     */
+    public DomainKey getDomainKey() {
+        return key;
     }
 
     /**
@@ -102,7 +108,7 @@ public final class DomainModel {
      * @return optional domain description
      */
     public Optional<String> getDescription() {
-        return description;
+        return Optional.ofNullable(description);
     }
 
 //    /**
@@ -138,6 +144,26 @@ public final class DomainModel {
         return events.values();
     }
 
+    /**
+     * Return the domain type native to this domain by name.
+     * <p>
+     * Resolution is a hash lookup against the resource, event, and value
+     * indexes of the model (in that order).
+     *
+     * @param typeName domain type name
+     * @return domain type, if native to this domain
+     */
+    public Optional<DomainType> findType(String typeName) {
+        DomainType type = resources.get(typeName);
+        if (type == null) {
+            type = events.get(typeName);
+        }
+        if (type == null) {
+            type = values.get(typeName);
+        }
+        return Optional.ofNullable(type);
+    }
+
     /**
      * Returns a Stream of all the domain types.
      *
@@ -152,15 +178,12 @@ public final class DomainModel {
 
     @Override
     public String toString() {
-        return String.format("%s-%s", namespace, version);
+        return key.toString();
     }
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 11 * hash + Objects.hashCode(this.namespace);
-        hash = 11 * hash + Objects.hashCode(this.version);
-        return hash;
+        return key.hashCode();
     }
 
     @Override
@@ -175,13 +198,7 @@ public final class DomainModel {
             return false;
         }
         final DomainModel other = (DomainModel) obj;
-        if (!Objects.equals(this.namespace, other.namespace)) {
-            return false;
-        }
-        if (!Objects.equals(this.version, other.version)) {
-            return false;
-        }
-        return true;
+        return this.key == other.key;
     }
 
 }
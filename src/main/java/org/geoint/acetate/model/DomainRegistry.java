@@ -15,31 +15,133 @@
  */
 package org.geoint.acetate.model;
 
-import org.geoint.acetate.spi.model.TypeResolver;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.geoint.acetate.model.catalog.CatalogReader;
 import org.geoint.acetate.spi.model.DomainModelProvider;
+import org.geoint.acetate.spi.model.EnumerableTypeResolver;
 
 /**
  * Domain model registry.
  * <p>
- * Instances of the DomainRegistry are thread-safe.
+ * Instances of the DomainRegistry are thread-safe. Readers work against an
+ * immutable snapshot of the registry and never block; writers publish a new
+ * snapshot (copy-on-write), so registration is comparatively expensive and
+ * lookups are cheap.
+ * <p>
+ * Registered models are indexed by namespace and version, and each model
+ * indexes its types by name, so both {@link #findModel(String, String) model}
+ * and {@link #resolve(String, String, String) type} lookups are constant-time
+ * regardless of the number of registered models.
+ * <p>
+ * Models may also be {@link #register(String, String, Supplier) registered
+ * lazily}, deferring the cost of creating a model until it is first used.
+ * <p>
+ * Model sizes and lookup statistics are available from the registry
+ * {@link #getMetrics() metrics}, which may be exposed through JMX.
  *
  * @author steve_siebert
  */
-public class DomainRegistry implements DomainModelProvider, TypeResolver {
+public class DomainRegistry
+        implements DomainModelProvider, EnumerableTypeResolver {
 
     public static final DomainRegistry DEFAULT = new DomainRegistry();
 
-    private final Set<DomainModel> registered
-            = Collections.synchronizedSet(new HashSet<>());
+    private static final Logger LOGGER
+            = Logger.getLogger(DomainRegistry.class.getName());
+    private static final String PROVIDER_CONFIG
+            = "META-INF/services/" + DomainModelProvider.class.getName();
+
+    /**
+     * Default capacity of the registry event queue.
+     */
+    public static final int DEFAULT_EVENT_QUEUE_CAPACITY = 1024;
+
+    //lazy models being supplied by the current thread
+    private static final ThreadLocal<Set<Object>> SUPPLYING
+            = ThreadLocal.withInitial(HashSet::new);
+
+    private final AtomicReference<Snapshot> snapshot
+            = new AtomicReference<>(Snapshot.EMPTY);
+    private final RegistryEventBus events;
+    private final RegistryMetrics metrics = new RegistryMetrics(this);
 
     public DomainRegistry() {
+        this(DEFAULT_EVENT_QUEUE_CAPACITY);
+    }
+
+    /**
+     *
+     * @param eventQueueCapacity maximum number of undelivered registry events,
+     * further events are dropped until listeners catch up
+     */
+    public DomainRegistry(int eventQueueCapacity) {
+        this.events = new RegistryEventBus(eventQueueCapacity);
+    }
+
+    /**
+     * Add a listener notified, asynchronously, of registry events.
+     *
+     * @param listener registry listener
+     */
+    public void addListener(DomainRegistryListener listener) {
+        events.addListener(listener);
+    }
+
+    /**
+     * Remove a registry listener.
+     *
+     * @param listener registry listener
+     * @return true if the listener was removed
+     */
+    public boolean removeListener(DomainRegistryListener listener) {
+        return events.removeListener(listener);
+    }
+
+    /**
+     * Number of registry events dropped because the event queue was full.
+     *
+     * @return dropped event count
+     */
+    public long getDroppedEventCount() {
+        return events.getDroppedCount();
+    }
+
+    /**
+     * Registry instrumentation, which may be registered as a JMX MBean.
+     *
+     * @return registry metrics
+     */
+    public RegistryMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -50,7 +152,7 @@ public class DomainRegistry implements DomainModelProvider, TypeResolver {
      */
     public void loadProviders(ClassLoader cl) {
         Iterator<DomainModelProvider> providers
-                = ServiceLoader.load(DomainModelProvider.class).iterator();
+                = ServiceLoader.load(DomainModelProvider.class, cl).iterator();
 
         while (providers.hasNext()) {
             loadProvider(providers.next());
@@ -68,19 +170,92 @@ public class DomainRegistry implements DomainModelProvider, TypeResolver {
     }
 
     /**
-     * Loads domain models from the provider.
+     * Load domain models from the {@link DomainModelProvider providers}
+     * declared on the specified classpath, instantiating and running the
+     * providers in parallel.
+     * <p>
+     * Providers are discovered from the same
+     * {@code META-INF/services/org.geoint.acetate.spi.model.DomainModelProvider}
+     * configuration files used by the {@link ServiceLoader}. The models of all
+     * providers are registered as a single atomic batch, so readers either see
+     * none or all of the loaded models. Where two models share a namespace and
+     * version, the model of the first discovered provider wins.
+     * <p>
+     * Provider and model failures do not prevent other providers from loading;
+     * they are recorded in the returned report.
      *
-     * @param provider domain model provider
+     * @param cl classloader used to discover and load providers, if null the
+     * system classloader is used
+     * @return load report
      */
-    public void loadProvider(DomainModelProvider provider) {
-        for (DomainModel m : provider.getDomainModels()) {
-            try {
-                register(m);
-                //TODO publish provider results as event
-            } catch (InvalidModelException ex) {
-                //TODO publish event indicating there was a problem with a model
+    public ProviderLoadReport loadProvidersParallel(ClassLoader cl) {
+        final long start = System.nanoTime();
+        final ClassLoader loader = (cl == null)
+                ? ClassLoader.getSystemClassLoader() : cl;
+
+        List<ProviderLoad> loads = new ArrayList<>();
+        Set<String> providerNames = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> configs = loader.getResources(PROVIDER_CONFIG);
+            while (configs.hasMoreElements()) {
+                URL config = configs.nextElement();
+                try {
+                    providerNames.addAll(readProviderNames(config));
+                } catch (IOException ex) {
+                    loads.add(ProviderLoad.failed(config.toString(), ex));
+                }
             }
+        } catch (IOException ex) {
+            loads.add(ProviderLoad.failed(PROVIDER_CONFIG, ex));
         }
+
+        loads.addAll(providerNames.parallelStream()
+                .map((n) -> ProviderLoad.load(n, loader))
+                .collect(Collectors.toList()));
+
+        List<DomainModel> batch = new ArrayList<>();
+        loads.forEach((l) -> batch.addAll(l.models));
+        Map<DomainModel, InvalidModelException> failures = registerAll(batch);
+
+        List<ProviderLoadReport.ProviderResult> results = new ArrayList<>();
+        for (ProviderLoad l : loads) {
+            ProviderLoadReport.ProviderResult result = l.result(failures);
+            events.providerLoaded(result);
+            results.add(result);
+        }
+        return new ProviderLoadReport(results,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Parallel load of the domain model providers declared on the
+     * {@link Thread#contextClassLoader current thread context classloader}.
+     *
+     * @return load report
+     * @see #loadProvidersParallel(java.lang.ClassLoader)
+     */
+    public ProviderLoadReport loadProvidersParallel() {
+        return loadProvidersParallel(
+                Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Loads domain models from the provider.
+     * <p>
+     * The models of the provider are registered in a single update; models
+     * which could not be registered are recorded in the returned result.
+     *
+     * @param provider domain model provider
+     * @return provider load result
+     */
+    public ProviderLoadReport.ProviderResult loadProvider(
+            DomainModelProvider provider) {
+        ProviderLoad load = ProviderLoad.run(provider.getClass().getName(),
+                provider, System.nanoTime());
+        ProviderLoadReport.ProviderResult result
+                = load.result(registerAll(load.models));
+        events.providerLoaded(result);
+        return result;
     }
 
     /**
@@ -91,32 +266,40 @@ public class DomainRegistry implements DomainModelProvider, TypeResolver {
      * @param version domain version
      * @return domain builder
      * @throws DuplicateDomainException thrown if the specified domain is
-     * already registered
+     * already registered, unless called from the supplier of the lazily
+     * registered domain
      */
     public DomainBuilder builder(String namespace, String version)
             throws DuplicateDomainException {
-        if (findModel(namespace, version).isPresent()) {
+        Snapshot current = snapshot.get();
+        if (current.contains(namespace, version)
+                && !SUPPLYING.get().contains(
+                        Snapshot.get(current.lazy, namespace, version))) {
             throw new DuplicateDomainException(namespace, version);
         }
-        return new DomainBuilder(namespace, version,
-                //add a resolver that is backed by this registry
-                (ns, v, tn) -> registered.parallelStream()
-                .filter((d) -> d.getNamespace().contentEquals(namespace))
-                .filter((d) -> d.getVersion().contentEquals(version))
-                .flatMap(DomainModel::typeStream)
-                .filter((t) -> t.getName().contentEquals(tn))
-                .findFirst());
+        //add a resolver that is backed by this registry
+        return new DomainBuilder(namespace, version, this);
     }
 
     /**
      * Returns an unmodifiable collection of domain models known to this
      * registry.
+     * <p>
+     * Any {@link #register(String, String, Supplier) lazily registered}
+     * models which have not yet been supplied are supplied by this call.
      *
      * @return domain models
      */
     @Override
     public Set<DomainModel> getDomainModels() {
-        return Collections.unmodifiableSet(registered);
+        Snapshot current = snapshot.get();
+        if (current.lazy.isEmpty()) {
+            return current.models;
+        }
+        current.lazy.values().stream()
+                .flatMap((versions) -> versions.values().stream())
+                .forEach(LazyModel::get);
+        return snapshot.get().models;
     }
 
     /**
@@ -128,22 +311,123 @@ public class DomainRegistry implements DomainModelProvider, TypeResolver {
      */
     public void register(DomainModel model)
             throws InvalidModelException {
-        if (registered.contains(model)) {
-            throw new DuplicateDomainException(model.getNamespace(),
-                    model.getVersion());
-        }
-        this.registered.add(model);
+        registerAtomically(Collections.singletonList(model));
+    }
 
-        //TODO publish registration event
+    /**
+     * Load and register the models of a precompiled model catalog.
+     * <p>
+     * Types referenced by the catalog which are not defined by the catalog
+     * are resolved from this registry. The catalog models are registered
+     * atomically; if any catalog model is already registered none are.
+     *
+     * @param catalog catalog file written by a
+     * {@link org.geoint.acetate.model.catalog.CatalogWriter}
+     * @return registered models
+     * @throws IOException if the catalog could not be read
+     * @throws InvalidModelException if the catalog is invalid, references an
+     * unknown type, or a catalog model is already registered
+     */
+    public Set<DomainModel> loadCatalog(Path catalog)
+            throws IOException, InvalidModelException {
+        Set<DomainModel> models = new CatalogReader(this).read(catalog);
+        registerAtomically(models);
+        return models;
     }
 
     /**
-     * Does a duplicate domain model double-check, once prior to retrieving
-     * (creating) the model from the provided supplier and once before
-     * registration of the supplied model.
+     * Registers all of the models in a single update, or none of them.
+     *
+     * @param models models to register
+     * @throws DuplicateDomainException if any of the models are already
+     * registered
+     */
+    private void registerAtomically(Collection<DomainModel> models)
+            throws DuplicateDomainException {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            for (DomainModel m : models) {
+                if (current.contains(m.getNamespace(), m.getVersion())) {
+                    throw new DuplicateDomainException(m.getNamespace(),
+                            m.getVersion());
+                }
+            }
+        } while (!snapshot.compareAndSet(current, current.withAll(models)));
+        events.modelsRegistered(models);
+    }
+
+    /**
+     * Registers the provided models in a single atomic update.
+     * <p>
+     * Models which collide with an already registered model, or an earlier
+     * model in the batch, are not registered and are returned as failures.
+     *
+     * @param models models to register
+     * @return models which failed registration
+     */
+    private Map<DomainModel, InvalidModelException> registerAll(
+            Collection<DomainModel> models) {
+        Map<DomainModel, InvalidModelException> failures;
+        Snapshot current;
+        Snapshot updated;
+        do {
+            current = snapshot.get();
+            failures = new IdentityHashMap<>();
+            Map<String, Set<String>> pending = new HashMap<>();
+            List<DomainModel> accepted = new ArrayList<>(models.size());
+            for (DomainModel m : models) {
+                if (current.contains(m.getNamespace(), m.getVersion())
+                        || !pending.computeIfAbsent(m.getNamespace(),
+                                (ns) -> new HashSet<>()).add(m.getVersion())) {
+                    failures.put(m, new DuplicateDomainException(
+                            m.getNamespace(), m.getVersion()));
+                } else {
+                    accepted.add(m);
+                }
+            }
+            if (accepted.isEmpty()) {
+                break;
+            }
+            updated = current.withAll(accepted);
+        } while (!snapshot.compareAndSet(current, updated));
+
+        List<DomainModel> registered = new ArrayList<>(models.size());
+        for (DomainModel m : models) {
+            InvalidModelException ex = failures.get(m);
+            if (ex == null) {
+                registered.add(m);
+            } else {
+                events.modelFailed(m.getNamespace(), m.getVersion(), ex);
+            }
+        }
+        events.modelsRegistered(registered);
+        return failures;
+    }
+
+    /**
+     * Lazily register a domain model.
+     * <p>
+     * The namespace and version are reserved immediately, but the supplier is
+     * not called until the model, or one of its types, is first resolved from
+     * the registry. The supplier runs only once: if the model is first
+     * accessed concurrently, one thread calls the supplier and the others
+     * wait for its model. The supplier is not called while holding a
+     * registry lock, though lazy models must not depend on each other
+     * cyclically across threads, as each supplying thread would wait for the
+     * other.
+     * <p>
+     * The supplier may call {@link #builder(String, String) } for its own
+     * domain. While a model is being supplied it is not resolvable on the
+     * supplying thread, so a supplier resolving its own domain sees the
+     * domain as not registered rather than re-entering the supplier.
      * <p>
      * This method is useful when the model generation process is known to be
-     * time consuming and there may be competing domain providers.
+     * time consuming and the model may never be used. If the supplier fails,
+     * returns null, or returns a model for a different domain, the failure is
+     * logged and published as a model failure event, and the reservation is
+     * removed from the registry. Listeners are notified of the registration
+     * once the model is supplied.
      *
      * @param namespace domain namespace
      * @param version domain version
@@ -152,30 +436,485 @@ public class DomainRegistry implements DomainModelProvider, TypeResolver {
      */
     public void register(String namespace, String version,
             Supplier<DomainModel> modelSupplier)
-            throws DuplicateDomainException, InvalidModelException {
-
-        //pre-model retrieval
-        if (findModel(namespace, version).isPresent()) {
-            throw new DuplicateDomainException(namespace, version);
-        }
+            throws DuplicateDomainException {
+        LazyModel lazy = new LazyModel(namespace, version, modelSupplier);
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            if (current.contains(namespace, version)) {
+                throw new DuplicateDomainException(namespace, version);
+            }
+        } while (!snapshot.compareAndSet(current, current.withLazy(lazy)));
+    }
 
-        //TODO publish registration event
+    /**
+     * Monotonically increasing revision of the registry, incremented each time
+     * the registered models change.
+     * <p>
+     * Useful for components that cache registry lookups to determine if their
+     * cache is stale.
+     *
+     * @return registry revision
+     */
+    public long getRevision() {
+        return snapshot.get().revision;
     }
 
+    /**
+     * Return the registered domain model.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @return domain model, if registered
+     */
     public Optional<DomainModel> findModel(String namespace, String version) {
-        return registered.stream()
-                .filter((m) -> m.getNamespace().contentEquals(namespace))
-                .filter((m) -> m.getVersion().contentEquals(version))
-                .findFirst();
+        if (!metrics.enabled) {
+            return Optional.ofNullable(snapshot.get().find(namespace, version));
+        }
+        final long start = System.nanoTime();
+        DomainModel model = snapshot.get().find(namespace, version);
+        metrics.modelFound(System.nanoTime() - start);
+        return Optional.ofNullable(model);
     }
 
     @Override
     public Optional<DomainType> resolve(String namespace, String version,
             String typeName) {
-        return findModel(namespace, version)
-                .flatMap((m) -> m.typeStream()
-                        .filter((t) -> t.getName().contentEquals(typeName))
-                        .findFirst());
+        if (!metrics.enabled) {
+            return resolveType(namespace, version, typeName);
+        }
+        final long start = System.nanoTime();
+        Optional<DomainType> type = resolveType(namespace, version, typeName);
+        metrics.resolved(namespace, type.isPresent(),
+                System.nanoTime() - start);
+        return type;
+    }
+
+    /**
+     * Streams the types of the registered models.
+     * <p>
+     * Lazily registered models which have not yet been supplied are not
+     * supplied by this call, and their types are not included.
+     *
+     * @return types of the supplied models
+     */
+    @Override
+    public Stream<DomainType> typeStream() {
+        return registeredModels().stream().flatMap(DomainModel::typeStream);
+    }
+
+    @Override
+    public Optional<DomainType> resolve(TypeKey key) {
+        return resolve(key.getNamespace(), key.getVersion(), key.getName());
+    }
+
+    private Optional<DomainType> resolveType(String namespace, String version,
+            String typeName) {
+        DomainModel model = snapshot.get().find(namespace, version);
+        return (model == null) ? Optional.empty() : model.findType(typeName);
+    }
+
+    /**
+     * Models currently registered, not including lazily registered models
+     * which have not yet been supplied.
+     *
+     * @return registered models
+     */
+    Set<DomainModel> registeredModels() {
+        return snapshot.get().models;
+    }
+
+    /**
+     * Returns true if there are lazily registered models which have not yet
+     * been supplied.
+     *
+     * @return true if models are waiting to be supplied
+     */
+    boolean hasUnsuppliedModels() {
+        return !snapshot.get().lazy.isEmpty();
+    }
+
+    /**
+     * Replaces the placeholder of a lazy model with its supplied model, or
+     * removes the placeholder if the model could not be supplied.
+     * <p>
+     * The registry revision is incremented, so results cached while the
+     * model was being supplied (ie a supplier resolving its own domain) are
+     * invalidated.
+     *
+     * @param lazy placeholder
+     * @param model supplied model, or null
+     * @return true if the placeholder was replaced
+     */
+    private boolean promote(LazyModel lazy, DomainModel model) {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            if (Snapshot.get(current.lazy, lazy.namespace, lazy.version)
+                    != lazy) {
+                return false;
+            }
+        } while (!snapshot.compareAndSet(current,
+                current.promote(lazy, model)));
+        return true;
+    }
+
+    /**
+     * Placeholder for a lazily registered model.
+     */
+    private final class LazyModel {
+
+        final String namespace;
+        final String version;
+        private volatile Supplier<DomainModel> supplier; //null once supplied
+        //claimed by the one thread calling the supplier
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        //released once the outcome is published
+        private final CountDownLatch supplied = new CountDownLatch(1);
+        //null until supplied, empty if the model could not be supplied
+        private volatile Optional<DomainModel> outcome;
+
+        LazyModel(String namespace, String version,
+                Supplier<DomainModel> supplier) {
+            this.namespace = namespace;
+            this.version = version;
+            this.supplier = supplier;
+        }
+
+        /**
+         * Returns the supplied model, calling the supplier on first access.
+         * <p>
+         * The supplier is called once, by the first thread to access the
+         * model, without holding a lock; concurrent first accesses wait for
+         * its outcome.
+         *
+         * @return model, or null if the model could not be supplied or is
+         * being supplied by the current thread
+         */
+        DomainModel get() {
+            Optional<DomainModel> o = outcome;
+            if (o != null) {
+                return o.orElse(null);
+            }
+            final Set<Object> supplying = SUPPLYING.get();
+            if (supplying.contains(this)) {
+                return null; //re-entered from the supplier
+            }
+            if (!claimed.compareAndSet(false, true)) {
+                awaitOutcome();
+                return outcome.orElse(null);
+            }
+
+            DomainModel model = null;
+            Exception failure = null;
+            boolean promoted = false;
+            supplying.add(this);
+            try {
+                model = supply(supplier);
+            } catch (InvalidModelException | RuntimeException ex) {
+                failure = ex;
+            } finally {
+                supplying.remove(this);
+                outcome = Optional.ofNullable(model);
+                supplier = null;
+                try {
+                    promoted = promote(this, model);
+                } finally {
+                    supplied.countDown();
+                }
+            }
+
+            if (failure != null) {
+                LOGGER.log(Level.WARNING, String.format("Lazy domain "
+                        + "model %s-%s could not be supplied.",
+                        namespace, version), failure);
+            }
+            if (promoted) {
+                if (model == null) {
+                    events.modelFailed(namespace, version, failure);
+                } else {
+                    events.modelsRegistered(Collections.singletonList(model));
+                }
+            }
+            return model;
+        }
+
+        /**
+         * Waits, without interruption, for the outcome published by the
+         * supplying thread.
+         */
+        private void awaitOutcome() {
+            boolean interrupted = false;
+            while (outcome == null) {
+                try {
+                    supplied.await();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private DomainModel supply(Supplier<DomainModel> s)
+                throws InvalidModelException {
+            DomainModel m = s.get();
+            if (m == null) {
+                throw new InvalidModelException("Supplier returned null.");
+            } else if (!m.getNamespace().equals(namespace)
+                    || !m.getVersion().equals(version)) {
+                throw new InvalidModelException(String.format("Supplier "
+                        + "returned model %s-%s.", m.getNamespace(),
+                        m.getVersion()));
+            }
+            return m;
+        }
+    }
+
+    /**
+     * Immutable point-in-time view of the registered models.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptySet());
+
+        final long revision;
+        //namespace -> version -> model
+        final Map<String, Map<String, DomainModel>> index;
+        //namespace -> version -> lazy model not yet supplied
+        final Map<String, Map<String, LazyModel>> lazy;
+        final Set<DomainModel> models;
+
+        private Snapshot(long revision,
+                Map<String, Map<String, DomainModel>> index,
+                Map<String, Map<String, LazyModel>> lazy,
+                Set<DomainModel> models) {
+            this.revision = revision;
+            this.index = index;
+            this.lazy = lazy;
+            this.models = models;
+        }
+
+        /**
+         * Returns the registered model, supplying it if it was lazily
+         * registered.
+         */
+        DomainModel find(String namespace, String version) {
+            DomainModel model = get(index, namespace, version);
+            if (model == null && !lazy.isEmpty()) {
+                LazyModel l = get(lazy, namespace, version);
+                if (l != null) {
+                    return l.get();
+                }
+            }
+            return model;
+        }
+
+        /**
+         * Returns true if the domain is registered, without supplying lazy
+         * models.
+         */
+        boolean contains(String namespace, String version) {
+            return get(index, namespace, version) != null
+                    || get(lazy, namespace, version) != null;
+        }
+
+        /**
+         * Returns a new snapshot containing this snapshots models and the
+         * provided models.
+         * <p>
+         * Only the version maps of the namespaces of the added models are
+         * copied, other namespaces are shared with this snapshot.
+         *
+         * @param added models to add
+         * @return new snapshot
+         */
+        Snapshot withAll(Collection<DomainModel> added) {
+            Map<String, Map<String, DomainModel>> newIndex = new HashMap<>(index);
+            Map<String, Map<String, DomainModel>> copied = new HashMap<>();
+            for (DomainModel model : added) {
+                copied.computeIfAbsent(model.getNamespace(),
+                        (ns) -> new HashMap<>(index.getOrDefault(ns,
+                                Collections.emptyMap())))
+                        .put(model.getVersion(), model);
+            }
+            copied.forEach((ns, versions)
+                    -> newIndex.put(ns, Collections.unmodifiableMap(versions)));
+
+            Set<DomainModel> newModels = new HashSet<>(models);
+            newModels.addAll(added);
+            return new Snapshot(revision + 1,
+                    Collections.unmodifiableMap(newIndex), lazy,
+                    Collections.unmodifiableSet(newModels));
+        }
+
+        Snapshot withLazy(LazyModel model) {
+            return new Snapshot(revision + 1, index,
+                    with(lazy, model.namespace, model.version, model),
+                    models);
+        }
+
+        Snapshot promote(LazyModel placeholder, DomainModel model) {
+            Map<String, Map<String, LazyModel>> newLazy
+                    = with(lazy, placeholder.namespace, placeholder.version,
+                            null);
+            if (model == null) {
+                return new Snapshot(revision + 1, index, newLazy, models);
+            }
+            Set<DomainModel> newModels = new HashSet<>(models);
+            newModels.add(model);
+            return new Snapshot(revision + 1,
+                    with(index, model.getNamespace(), model.getVersion(), model),
+                    newLazy, Collections.unmodifiableSet(newModels));
+        }
+
+        private static <T> T get(Map<String, Map<String, T>> map,
+                String namespace, String version) {
+            Map<String, T> versions = map.get(namespace);
+            return (versions == null) ? null : versions.get(version);
+        }
+
+        /**
+         * Copies the namespace map and the version map of the namespace,
+         * setting (or removing, if null) the value.
+         */
+        private static <T> Map<String, Map<String, T>> with(
+                Map<String, Map<String, T>> map, String namespace,
+                String version, T value) {
+            Map<String, Map<String, T>> newMap = new HashMap<>(map);
+            Map<String, T> versions = new HashMap<>(
+                    map.getOrDefault(namespace, Collections.emptyMap()));
+            if (value == null) {
+                versions.remove(version);
+            } else {
+                versions.put(version, value);
+            }
+            if (versions.isEmpty()) {
+                newMap.remove(namespace);
+            } else {
+                newMap.put(namespace, Collections.unmodifiableMap(versions));
+            }
+            return Collections.unmodifiableMap(newMap);
+        }
     }
 
+    /**
+     * Reads the provider class names from a service configuration file.
+     *
+     * @param config configuration file
+     * @return provider class names, in declaration order
+     * @throws IOException if the file could not be read
+     */
+    private static List<String> readProviderNames(URL config)
+            throws IOException {
+        List<String> names = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                config.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    names.add(line);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Outcome of running a single provider, prior to registration.
+     */
+    private static final class ProviderLoad {
+
+        final String providerName;
+        final Duration loadTime;
+        final Set<DomainModel> models;
+        final Throwable failure;
+
+        private ProviderLoad(String providerName, Duration loadTime,
+                Set<DomainModel> models, Throwable failure) {
+            this.providerName = providerName;
+            this.loadTime = loadTime;
+            this.models = models;
+            this.failure = failure;
+        }
+
+        static ProviderLoad failed(String providerName, Throwable failure) {
+            return new ProviderLoad(providerName, Duration.ZERO,
+                    Collections.emptySet(), failure);
+        }
+
+        /**
+         * Instantiates the named provider and retrieves its models.
+         * <p>
+         * The provider runs with the loading classloader as its thread
+         * context classloader, as it would when loaded on the calling thread.
+         */
+        static ProviderLoad load(String providerName, ClassLoader cl) {
+            final long start = System.nanoTime();
+            final Thread thread = Thread.currentThread();
+            final ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(cl);
+            try {
+                Class<?> type = Class.forName(providerName, false, cl);
+                if (!DomainModelProvider.class.isAssignableFrom(type)) {
+                    throw new ClassCastException(String.format(
+                            "'%s' is not a %s", providerName,
+                            DomainModelProvider.class.getName()));
+                }
+                return run(providerName, (DomainModelProvider) type
+                        .getConstructor().newInstance(), start);
+            } catch (InvocationTargetException ex) {
+                return new ProviderLoad(providerName,
+                        Duration.ofNanos(System.nanoTime() - start),
+                        Collections.emptySet(), ex.getCause());
+            } catch (Exception | LinkageError ex) {
+                return new ProviderLoad(providerName,
+                        Duration.ofNanos(System.nanoTime() - start),
+                        Collections.emptySet(), ex);
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        }
+
+        /**
+         * Retrieves the models of the provider.
+         */
+        static ProviderLoad run(String providerName,
+                DomainModelProvider provider, long start) {
+            try {
+                Set<DomainModel> models = provider.getDomainModels();
+                return new ProviderLoad(providerName,
+                        Duration.ofNanos(System.nanoTime() - start),
+                        (models == null) ? Collections.emptySet() : models,
+                        null);
+            } catch (RuntimeException | LinkageError ex) {
+                return new ProviderLoad(providerName,
+                        Duration.ofNanos(System.nanoTime() - start),
+                        Collections.emptySet(), ex);
+            }
+        }
+
+        ProviderLoadReport.ProviderResult result(
+                Map<DomainModel, InvalidModelException> failures) {
+            Set<DomainModel> registered = new HashSet<>();
+            List<InvalidModelException> modelFailures = new ArrayList<>();
+            for (DomainModel m : models) {
+                InvalidModelException ex = failures.get(m);
+                if (ex == null) {
+                    registered.add(m);
+                } else {
+                    modelFailures.add(ex);
+                }
+            }
+            return new ProviderLoadReport.ProviderResult(providerName,
+                    loadTime, registered, modelFailures, failure);
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.Collection;
+import org.geoint.acetate.model.ProviderLoadReport.ProviderResult;
+
+/**
+ * Receives {@link DomainRegistry} lifecycle events.
+ * <p>
+ * Events are delivered asynchronously, in publication order, on a single
+ * registry event thread; a listener that is slow to return delays delivery
+ * to other listeners but never delays registration. Events published while
+ * the registry event queue is full are dropped.
+ *
+ * @see DomainRegistry#addListener(DomainRegistryListener)
+ * @author steve_siebert
+ */
+public interface DomainRegistryListener {
+
+    /**
+     * Models were registered.
+     * <p>
+     * Models registered together, such as by a provider, and registrations
+     * published in quick succession are delivered as a single event.
+     *
+     * @param models registered models
+     */
+    default void modelsRegistered(Collection<DomainModel> models) {
+    }
+
+    /**
+     * A model could not be registered, or a lazily registered model could
+     * not be supplied.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @param cause reason the model failed
+     */
+    default void modelFailed(String namespace, String version,
+            Throwable cause) {
+    }
+
+    /**
+     * A domain model provider was loaded.
+     *
+     * @param result provider load result
+     */
+    default void providerLoaded(ProviderResult result) {
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.Map;
+
+/**
+ * Management interface of a {@link DomainRegistry}.
+ * <p>
+ * Model statistics (counts and estimated sizes) are always available; lookup
+ * statistics (hit/miss counters and latency histograms) are only collected
+ * while metrics are {@link #setMetricsEnabled(boolean) enabled}.
+ * <p>
+ * Model statistics are keyed by the domain identifier ({@code namespace-version})
+ * and lookup counters by namespace.
+ *
+ * @see RegistryMetrics
+ * @author steve_siebert
+ */
+public interface DomainRegistryMXBean {
+
+    /**
+     * Check if lookup metrics are collected.
+     *
+     * @return true if lookup metrics are collected
+     */
+    boolean isMetricsEnabled();
+
+    /**
+     * Enable or disable collection of lookup metrics.
+     *
+     * @param enabled true to collect lookup metrics
+     */
+    void setMetricsEnabled(boolean enabled);
+
+    /**
+     * Clears the lookup counters and histograms.
+     */
+    void resetMetrics();
+
+    /**
+     * Current registry revision.
+     *
+     * @return registry revision
+     */
+    long getRevision();
+
+    /**
+     * Number of registered, materialized, models.
+     *
+     * @return model count
+     */
+    int getModelCount();
+
+    /**
+     * Number of types of each registered model.
+     *
+     * @return type count by domain
+     */
+    Map<String, Integer> getTypeCounts();
+
+    /**
+     * Estimated retained heap size, in bytes, of each registered model.
+     *
+     * @return estimated retained bytes by domain
+     */
+    Map<String, Long> getEstimatedRetainedBytes();
+
+    /**
+     * Estimated retained heap size, in bytes, of all registered models.
+     *
+     * @return estimated retained bytes
+     */
+    long getTotalEstimatedRetainedBytes();
+
+    /**
+     * Number of successful type resolutions by namespace.
+     *
+     * @return resolve hits by namespace
+     */
+    Map<String, Long> getResolveHits();
+
+    /**
+     * Number of unsuccessful type resolutions by namespace.
+     *
+     * @return resolve misses by namespace
+     */
+    Map<String, Long> getResolveMisses();
+
+    /**
+     * Latency histogram of type resolution.
+     * <p>
+     * Bucket {@code i} counts the lookups which took less than 2<sup>i</sup>
+     * nanoseconds (and at least 2<sup>i-1</sup>).
+     *
+     * @return log2 nanosecond latency histogram
+     */
+    long[] getResolveLatencyHistogram();
+
+    /**
+     * Latency histogram of model lookup, bucketed as
+     * {@link #getResolveLatencyHistogram()}.
+     *
+     * @return log2 nanosecond latency histogram
+     */
+    long[] getFindModelLatencyHistogram();
+}
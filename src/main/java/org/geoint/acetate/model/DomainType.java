@@ -15,11 +15,14 @@
  */
 package org.geoint.acetate.model;
 
-import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Description of a domain "thing".
+ * <p>
+ * The identity of the type is held by its canonical {@link TypeKey}, which
+ * shares the namespace and version of the domain with every other type of the
+ * domain.
  *
  * @see ResourceType
  * @see EventType
@@ -28,10 +31,8 @@ import java.util.Optional;
  */
 public abstract class DomainType {
 
-    private final String namespace;
-    private final String name;
-    private final String version;
-    private final Optional<String> description;
+    private final TypeKey key;
+    private final String description; //nullable
 
     public DomainType(String namespace, String version, String name) {
         this(namespace, version, name, null);
@@ -39,10 +40,8 @@ public abstract class DomainType {
 
     public DomainType(String namespace, String version, String name,
             String description) {
-        this.namespace = namespace;
-        this.name = name;
-        this.version = version;
-        this.description = Optional.ofNullable(description);
+        this.key = TypeKey.of(namespace, version, name);
+        this.description = description;
     }
 
     /**
@@ -51,7 +50,7 @@ public abstract class DomainType {
      * @return domain namespace
      */
     public String getNamespace() {
-        return namespace;
+        return key.getNamespace();
     }
 
     /**
@@ -60,7 +59,7 @@ public abstract class DomainType {
      * @return value version
      */
     public String getVersion() {
-        return version;
+        return key.getVersion();
     }
 
     /**
@@ -69,7 +68,16 @@ public abstract class DomainType {
      * @return contextual value name
      */
     public String getName() {
-        return name;
+        return key.getName();
+    }
+
+    /**
+     * Canonical identity of this type.
+     *
+     * @return type key
+     */
+    public TypeKey getTypeKey() {
+        return key;
     }
 
     /**
@@ -81,9 +89,17 @@ public abstract class DomainType {
      * @return true if this descriptor identifies this domain type
      */
     public boolean isType(String namespace, String version, String typeName) {
-        return this.namespace.contentEquals(namespace)
-                && this.version.contentEquals(version)
-                && this.name.contentEquals(typeName);
+        return key.matches(namespace, version, typeName);
+    }
+
+    /**
+     * Check if the type key identifies this type.
+     *
+     * @param typeKey type key
+     * @return true if the key identifies this domain type
+     */
+    public boolean isType(TypeKey typeKey) {
+        return this.key == typeKey;
     }
 
     /**
@@ -92,24 +108,17 @@ public abstract class DomainType {
      * @return description
      */
     public Optional<String> getDescription() {
-        return description;
+        return Optional.ofNullable(description);
     }
 
     @Override
     public String toString() {
-        return String.format("%s.%s-%s",
-                namespace,
-                name,
-                version);
+        return key.toString();
     }
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 71 * hash + Objects.hashCode(this.namespace);
-        hash = 71 * hash + Objects.hashCode(this.name);
-        hash = 71 * hash + Objects.hashCode(this.version);
-        return hash;
+        return key.hashCode();
     }
 
     @Override
@@ -124,7 +133,7 @@ public abstract class DomainType {
             return false;
         }
         final DomainType other = (DomainType) obj;
-        return this.isType(other.namespace, other.version, other.name);
+        return this.isType(other.key);
     }
 
 }
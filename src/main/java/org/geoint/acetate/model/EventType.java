@@ -54,4 +54,27 @@ public final class EventType extends DomainType {
         return composites.find(name);
     }
 
+    /**
+     * Ordinal of the named composite; composites are numbered from zero in
+     * declaration order.
+     *
+     * @param name composite name
+     * @return composite ordinal, or -1 if the event has no such composite
+     */
+    public int slotOf(String name) {
+        return composites.ordinalOf(name);
+    }
+
+    /**
+     * Returns the composite with the ordinal.
+     *
+     * @param ordinal composite ordinal
+     * @return composite
+     * @throws IndexOutOfBoundsException if there is no composite with the
+     * ordinal
+     */
+    public NamedRef refAt(int ordinal) {
+        return composites.valueAt(ordinal);
+    }
+
 }
@@ -16,7 +16,11 @@
 package org.geoint.acetate.model;
 
 import org.geoint.acetate.spi.model.TypeResolver;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.geoint.acetate.spi.model.EnumerableTypeResolver;
 
 /**
  * A type resolver that "fails up", checking a parent type resolver if it cannot
@@ -24,6 +28,8 @@ import java.util.Optional;
  * <p>
  * Each HierarchicalTypeResolver may have one parent and the resolution of a
  * domain type is up the hierarchy until a type is found.
+ * <p>
+ * Deep hierarchies may be {@link #compile() compiled} to a flat resolver.
  *
  * @author steve_siebert
  */
@@ -76,6 +82,59 @@ public final class HierarchicalTypeResolver implements TypeResolver {
                 : addChild(resolver);
     }
 
+    /**
+     * Compiles the hierarchy, from this node to the root, into a single flat
+     * resolver with the same resolution precedence.
+     * <p>
+     * Adjacent {@link EnumerableTypeResolver enumerable} resolvers are merged
+     * into a single index, so a hierarchy of enumerable resolvers compiles to
+     * a resolver which resolves a type with one hash probe. Resolvers that are
+     * not enumerable are retained and consulted in precedence order, without
+     * recursion.
+     * <p>
+     * The types of enumerable resolvers are copied at the time of
+     * compilation; types added to those resolvers later are not visible to the
+     * compiled resolver. A {@link DomainRegistry} with lazily registered models
+     * which have not yet been supplied is also retained after its indexed
+     * types, so compiling does not supply the lazy models.
+     *
+     * @return compiled resolver
+     */
+    public TypeResolver compile() {
+        List<TypeResolver> segments = new ArrayList<>();
+        TypeIndex index = null;
+        for (HierarchicalTypeResolver node = this; node != null;
+                node = node.parent) {
+            if (node.resolver instanceof EnumerableTypeResolver) {
+                if (index == null) {
+                    index = TypeIndex.newIndex();
+                }
+                ((EnumerableTypeResolver) node.resolver).typeStream()
+                        .forEachOrdered(index::add);
+                if (node.resolver instanceof DomainRegistry
+                        && ((DomainRegistry) node.resolver).hasUnsuppliedModels()) {
+                    segments.add(new IndexedTypeResolver(index));
+                    segments.add(node.resolver);
+                    index = null;
+                }
+            } else {
+                if (index != null) {
+                    segments.add(new IndexedTypeResolver(index));
+                    index = null;
+                }
+                segments.add(node.resolver);
+            }
+        }
+        if (index != null) {
+            segments.add(new IndexedTypeResolver(index));
+        }
+
+        return (segments.size() == 1)
+                ? segments.get(0)
+                : new CompiledTypeResolver(
+                        segments.toArray(new TypeResolver[segments.size()]));
+    }
+
     @Override
     public Optional<DomainType> resolve(String namespace,
             String version, String typeName) {
@@ -89,4 +148,76 @@ public final class HierarchicalTypeResolver implements TypeResolver {
         return type;
     }
 
+    @Override
+    public Optional<DomainType> resolve(TypeKey key) {
+        Optional<DomainType> type = this.resolver.resolve(key);
+        if (!type.isPresent() && this.parent != null) {
+            return this.parent.resolve(key);
+        }
+        return type;
+    }
+
+    /**
+     * Resolves types from an immutable index.
+     */
+    private static final class IndexedTypeResolver
+            implements EnumerableTypeResolver {
+
+        private final TypeIndex index;
+
+        IndexedTypeResolver(TypeIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public Optional<DomainType> resolve(String namespace, String version,
+                String typeName) {
+            return Optional.ofNullable(index.find(namespace, version, typeName));
+        }
+
+        @Override
+        public Optional<DomainType> resolve(TypeKey key) {
+            return Optional.ofNullable(index.find(key));
+        }
+
+        @Override
+        public Stream<DomainType> typeStream() {
+            return index.stream();
+        }
+    }
+
+    /**
+     * Iteratively checks each resolver, returning the first resolved type.
+     */
+    private static final class CompiledTypeResolver implements TypeResolver {
+
+        private final TypeResolver[] resolvers;
+
+        CompiledTypeResolver(TypeResolver[] resolvers) {
+            this.resolvers = resolvers;
+        }
+
+        @Override
+        public Optional<DomainType> resolve(String namespace, String version,
+                String typeName) {
+            for (TypeResolver r : resolvers) {
+                Optional<DomainType> type = r.resolve(namespace, version, typeName);
+                if (type.isPresent()) {
+                    return type;
+                }
+            }
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<DomainType> resolve(TypeKey key) {
+            for (TypeResolver r : resolvers) {
+                Optional<DomainType> type = r.resolve(key);
+                if (type.isPresent()) {
+                    return type;
+                }
+            }
+            return Optional.empty();
+        }
+    }
 }
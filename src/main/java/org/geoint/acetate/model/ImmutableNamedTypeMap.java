@@ -15,14 +15,21 @@
  */
 package org.geoint.acetate.model;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -37,17 +44,66 @@ import java.util.function.Supplier;
  * <li>There may only be one item with the same name. If another item is named
  * the same a DuplicateNamedTypeException is thrown.</li>
  * </ul>
+ * <p>
+ * The map is copied, once, into parallel key and value arrays in the iteration
+ * order of the map used to create it. Maps of up to {@value #LINEAR_MAX}
+ * entries are searched linearly; larger maps are indexed by an open-addressing
+ * table of array positions, probed linearly. Collection views are created on
+ * first use and reused.
+ * <p>
+ * Each entry has an ordinal, its position in iteration order. Maps created
+ * with the default map supplier iterate, and assign ordinals, in the order
+ * the items were provided, so ordinals are stable for a given declaration
+ * and can be used for array-indexed storage in place of names.
  *
  * @author steve_siebert
  * @param <V> map value
  */
 public final class ImmutableNamedTypeMap<V> implements Map<String, V> {
 
-    private final Map<String, V> map;
-    private static final Supplier<Map> DEFAULT_MAP_SUPPLIER = () -> new HashMap<>();
+    private static final Supplier<Map> DEFAULT_MAP_SUPPLIER = () -> new LinkedHashMap<>();
+    static final int LINEAR_MAX = 8;
+    private static final String[] NO_KEYS = new String[0];
+    private static final Object[] NO_VALUES = new Object[0];
 
-    ImmutableNamedTypeMap(Map<String, V> map) {
-        this.map = map;
+    private final String[] keys;
+    private final Object[] values;
+    //position + 1 of the key in keys, 0 is an empty slot; null if linear
+    private final int[] table;
+    //views, racy single-check idiom; the views are stateless
+    private Set<String> keySet;
+    private Collection<V> valueCollection;
+    private Set<Entry<String, V>> entrySet;
+
+    private ImmutableNamedTypeMap(Map<String, V> map) {
+        final int size = map.size();
+        if (size == 0) {
+            this.keys = NO_KEYS;
+            this.values = NO_VALUES;
+            this.table = null;
+            return;
+        }
+        this.keys = new String[size];
+        this.values = new Object[size];
+        int i = 0;
+        for (Entry<String, V> e : map.entrySet()) {
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+            i++;
+        }
+        if (size <= LINEAR_MAX) {
+            this.table = null;
+        } else {
+            this.table = new int[Integer.highestOneBit(size * 2 - 1) << 1];
+            final int mask = table.length - 1;
+            for (int k = 0; k < size; k++) {
+                int slot = hash(keys[k]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = k + 1;
+            }
+        }
     }
 
     public static <V> ImmutableNamedTypeMap<V> createMap(Collection<V> items,
@@ -63,6 +119,22 @@ public final class ImmutableNamedTypeMap<V> implements Map<String, V> {
         return createMap(DEFAULT_MAP_SUPPLIER, items, namer, duplicateNameFilter);
     }
 
+    /**
+     * Creates a map in the iteration order of the supplied map.
+     * <p>
+     * Only the iteration order of the supplied map is kept; entries are
+     * looked up by {@link String#equals(Object) name equality}.
+     *
+     * @param <V> map value
+     * @param mapSupplier supplies an empty map which orders the entries
+     * @param items map values
+     * @param namer names each value
+     * @return immutable map
+     * @throws InvalidModelException if a value is not named or a name is
+     * duplicated
+     * @throws IllegalArgumentException if the supplied map is a sorted map
+     * with a comparator
+     */
     public static <V> ImmutableNamedTypeMap<V> createMap(
             Supplier<Map> mapSupplier,
             Collection<V> items,
@@ -70,6 +142,25 @@ public final class ImmutableNamedTypeMap<V> implements Map<String, V> {
         return createMap(mapSupplier, items, namer, null);
     }
 
+    /**
+     * Creates a map in the iteration order of the supplied map, rejecting
+     * duplicate names which pass the filter.
+     * <p>
+     * Only the iteration order of the supplied map is kept; entries are
+     * looked up by {@link String#equals(Object) name equality}.
+     *
+     * @param <V> map value
+     * @param mapSupplier supplies an empty map which orders the entries
+     * @param items map values
+     * @param namer names each value
+     * @param duplicateNameFilter duplicate names to reject, or null to
+     * reject all duplicates
+     * @return immutable map
+     * @throws InvalidModelException if a value is not named or a rejected
+     * name is duplicated
+     * @throws IllegalArgumentException if the supplied map is a sorted map
+     * with a comparator
+     */
     public static <V> ImmutableNamedTypeMap<V> createMap(
             Supplier<Map> mapSupplier,
             Collection<V> items,
@@ -77,6 +168,11 @@ public final class ImmutableNamedTypeMap<V> implements Map<String, V> {
             Predicate<String> duplicateNameFilter)
             throws InvalidModelException {
         Map<String, V> map = mapSupplier.get();
+        if (map instanceof SortedMap
+                && ((SortedMap) map).comparator() != null) {
+            throw new IllegalArgumentException("Named map lookups do not "
+                    + "use the comparator of the supplied map.");
+        }
         for (V i : items) {
             final String name = namer.apply(i);
             if (name == null || name.isEmpty()) {
@@ -96,57 +192,141 @@ public final class ImmutableNamedTypeMap<V> implements Map<String, V> {
     }
 
     public Optional<V> find(String name) {
-        return Optional.ofNullable(map.get(name));
+        return Optional.ofNullable(get(name));
+    }
+
+    /**
+     * Ordinal of the named entry.
+     *
+     * @param name entry name
+     * @return entry ordinal, or -1 if there is no entry with this name
+     */
+    public int ordinalOf(String name) {
+        return indexOf(name);
+    }
+
+    /**
+     * Value of the entry with the ordinal.
+     *
+     * @param ordinal entry ordinal
+     * @return entry value
+     * @throws IndexOutOfBoundsException if there is no entry with this
+     * ordinal
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int ordinal) {
+        return (V) values[ordinal];
     }
 
     @Override
     public int size() {
-        return map.size();
+        return keys.length;
     }
 
     @Override
     public boolean isEmpty() {
-        return map.isEmpty();
+        return keys.length == 0;
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return map.containsKey(key);
+        return indexOf(key) >= 0;
     }
 
     @Override
     public boolean containsValue(Object value) {
-        return map.containsValue(value);
+        for (Object v : values) {
+            if (Objects.equals(v, value)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public V get(Object key) {
-        return map.get(key);
+        int i = indexOf(key);
+        return (i < 0) ? null : valueAt(i);
     }
 
     @Override
     public Set<String> keySet() {
-        return map.keySet();
+        Set<String> ks = keySet;
+        if (ks == null) {
+            ks = new ArraySet<String>() {
+                @Override
+                String element(int index) {
+                    return keys[index];
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+            };
+            keySet = ks;
+        }
+        return ks;
     }
 
     @Override
     public V getOrDefault(Object key, V defaultValue) {
-        return map.getOrDefault(key, defaultValue);
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : valueAt(i);
     }
 
     @Override
     public void forEach(BiConsumer<? super String, ? super V> action) {
-        map.forEach(action);
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], valueAt(i));
+        }
     }
 
     @Override
     public Collection<V> values() {
-        return Collections.unmodifiableCollection(map.values());
+        Collection<V> vc = valueCollection;
+        if (vc == null) {
+            vc = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new ArrayIterator<>(
+                            ImmutableNamedTypeMap.this::valueAt);
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+            valueCollection = vc;
+        }
+        return vc;
     }
 
     @Override
     public Set<Entry<String, V>> entrySet() {
-        return Collections.unmodifiableSet(map.entrySet());
+        Set<Entry<String, V>> es = entrySet;
+        if (es == null) {
+            es = new ArraySet<Entry<String, V>>() {
+                @Override
+                Entry<String, V> element(int index) {
+                    return new AbstractMap.SimpleImmutableEntry<>(keys[index],
+                            valueAt(index));
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Entry)) {
+                        return false;
+                    }
+                    Entry<?, ?> e = (Entry<?, ?>) o;
+                    int i = indexOf(e.getKey());
+                    return i >= 0 && Objects.equals(values[i], e.getValue());
+                }
+            };
+            entrySet = es;
+        }
+        return es;
     }
 
     @Override
@@ -171,15 +351,123 @@ public final class ImmutableNamedTypeMap<V> implements Map<String, V> {
 
     @Override
     public int hashCode() {
-        return map.hashCode();
+        int h = 0;
+        for (int i = 0; i < keys.length; i++) {
+            h += keys[i].hashCode() ^ Objects.hashCode(values[i]);
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
         if (!(other instanceof ImmutableNamedTypeMap)) {
             return false;
         }
-        return map.equals(((ImmutableNamedTypeMap) other).map);
+        ImmutableNamedTypeMap<?> o = (ImmutableNamedTypeMap<?>) other;
+        if (o.size() != size()) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            int oi = o.indexOf(keys[i]);
+            if (oi < 0 || !Objects.equals(values[i], o.values[oi])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(keys[i]).append('=').append(values[i]);
+        }
+        return sb.append('}').toString();
     }
 
+    /**
+     * Position of the key in the key array.
+     *
+     * @param key key
+     * @return position, or -1 if the key is not in the map
+     */
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (table == null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        final int mask = table.length - 1;
+        for (int slot = hash((String) key) & mask;;
+                slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (key.equals(keys[entry - 1])) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Immutable set view over the map arrays.
+     */
+    private abstract class ArraySet<E> extends AbstractSet<E> {
+
+        abstract E element(int index);
+
+        @Override
+        public Iterator<E> iterator() {
+            return new ArrayIterator<>(this::element);
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+    }
+
+    /**
+     * Read-only iterator over the map arrays.
+     */
+    private final class ArrayIterator<E> implements Iterator<E> {
+
+        private final IntFunction<E> element;
+        private int next;
+
+        ArrayIterator(IntFunction<E> element) {
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public E next() {
+            if (next >= keys.length) {
+                throw new NoSuchElementException();
+            }
+            return element.apply(next++);
+        }
+    }
 }
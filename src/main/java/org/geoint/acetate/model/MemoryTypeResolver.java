@@ -15,26 +15,40 @@
  */
 package org.geoint.acetate.model;
 
-import org.geoint.acetate.spi.model.TypeResolver;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+import org.geoint.acetate.spi.model.EnumerableTypeResolver;
 
 /**
  * Simple in-memory type resolver.
  * <p>
- * The thread safety of this class depends on the underlying collection used.
+ * Types of the resolver are hash indexed, and the index is kept in sync as
+ * types are added and removed through the resolver, so resolution is
+ * constant-time regardless of the number of types known to the resolver. If
+ * more than one type of the same identity is added, the first type is
+ * resolved.
+ * <p>
+ * The thread safety of this class depends on the constructor used; use
+ * {@link #concurrent() } for a resolver that may be modified and read
+ * concurrently.
  */
-public class MemoryTypeResolver implements TypeResolver {
+public class MemoryTypeResolver implements EnumerableTypeResolver {
 
     private final Collection<DomainType> types;
+    private final TypeIndex index;
 
     /**
      * Creates a non-thread-safe type in-memory resolver.
      */
     public MemoryTypeResolver() {
-        types = new ArrayList<>();
+        this(TypeIndex.newIndex(), new ArrayList<>());
     }
 
     /**
@@ -43,19 +57,40 @@ public class MemoryTypeResolver implements TypeResolver {
      * @param types types resolved by the resolver
      */
     public MemoryTypeResolver(DomainType... types) {
-        this.types = Arrays.asList(types);
+        this.types = Collections.unmodifiableList(Arrays.asList(types));
+        this.index = TypeIndex.of(this.types.stream());
     }
 
     /**
-     * Uses the provided collection as the source for the domain types.
+     * Creates a non-thread-safe in-memory resolver of the types of the
+     * provided collection.
      * <p>
-     * If you plan on using this resolver across threads you should use a
-     * concurrent collection here.
+     * The types are copied and indexed when the resolver is created; later
+     * changes to the provided collection are not visible to the resolver,
+     * types should instead be added to or removed from the
+     * {@link #getTypes() resolver types}.
      *
-     * @param types
+     * @param types types resolved by the resolver
      */
     public MemoryTypeResolver(Collection<DomainType> types) {
-        this.types = types;
+        this(TypeIndex.newIndex(), new ArrayList<>(types.size()));
+        this.types.addAll(types);
+    }
+
+    private MemoryTypeResolver(TypeIndex index, Collection<DomainType> backing) {
+        this.index = index;
+        this.types = new IndexedTypes(backing);
+    }
+
+    /**
+     * Creates an in-memory resolver that may be safely modified and read
+     * concurrently, keeping its index in sync as types are added and removed.
+     *
+     * @return thread-safe resolver
+     */
+    public static MemoryTypeResolver concurrent() {
+        return new MemoryTypeResolver(TypeIndex.concurrentIndex(),
+                new ConcurrentLinkedQueue<>());
     }
 
     /**
@@ -71,12 +106,92 @@ public class MemoryTypeResolver implements TypeResolver {
         return types;
     }
 
+    /**
+     * Adds a type to the resolver.
+     *
+     * @param type type to add
+     * @return true if the type was added, false if a type of the same
+     * identity is already known to the resolver
+     * @throws UnsupportedOperationException if the resolver is fixed-sized
+     */
+    public boolean add(DomainType type) throws UnsupportedOperationException {
+        return types.add(type);
+    }
+
+    @Override
+    public Stream<DomainType> typeStream() {
+        return types.stream();
+    }
+
     @Override
     public Optional<DomainType> resolve(String namespace, String version,
             String typeName) {
-        return types.stream()
-                .filter((t) -> t.isType(namespace, version, typeName))
-                .findFirst();
+        return Optional.ofNullable(index.find(namespace, version, typeName));
     }
 
+    @Override
+    public Optional<DomainType> resolve(TypeKey key) {
+        return Optional.ofNullable(index.find(key));
+    }
+
+    /**
+     * Collection view of the resolver types which keeps the index in sync as
+     * types are added and removed.
+     */
+    private class IndexedTypes extends AbstractCollection<DomainType> {
+
+        private final Collection<DomainType> backing;
+
+        IndexedTypes(Collection<DomainType> backing) {
+            this.backing = backing;
+        }
+
+        @Override
+        public boolean add(DomainType type) {
+            if (!index.add(type)) {
+                return false;
+            }
+            return backing.add(type);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!backing.remove(o)) {
+                return false;
+            }
+            index.remove((DomainType) o);
+            return true;
+        }
+
+        @Override
+        public Iterator<DomainType> iterator() {
+            final Iterator<DomainType> i = backing.iterator();
+            return new Iterator<DomainType>() {
+
+                private DomainType last;
+
+                @Override
+                public boolean hasNext() {
+                    return i.hasNext();
+                }
+
+                @Override
+                public DomainType next() {
+                    last = i.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    i.remove();
+                    index.remove(last);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+    }
 }
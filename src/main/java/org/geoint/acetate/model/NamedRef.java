@@ -25,15 +25,15 @@ import java.util.Optional;
 public abstract class NamedRef {
 
     private final String name;
-    private final Optional<String> description;
+    private final String description; //nullable
 
     public NamedRef(String name) {
         this(name, null);
     }
 
     public NamedRef(String name, String description) {
-        this.name = name;
-        this.description = Optional.ofNullable(description);
+        this.name = Names.canonical(name);
+        this.description = description;
     }
 
     /**
@@ -51,7 +51,7 @@ public abstract class NamedRef {
      * @return reference use description
      */
     public Optional<String> getDescription() {
-        return description;
+        return Optional.ofNullable(description);
     }
 
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical instances of model member names.
+ * <p>
+ * Member names, such as composite and parameter names, repeat across the
+ * types of a domain; canonicalizing them holds each distinct name once. Like
+ * {@link TypeKey type keys}, canonical names are retained for the life of the
+ * JVM and should only be created for domain-defined names.
+ *
+ * @author steve_siebert
+ */
+final class Names {
+
+    private static final ConcurrentMap<String, String> CANONICAL
+            = new ConcurrentHashMap<>();
+
+    private Names() {
+    }
+
+    /**
+     * Returns the canonical instance of the name.
+     *
+     * @param name name, may be null
+     * @return canonical name, or null
+     */
+    static String canonical(String name) {
+        if (name == null) {
+            return null;
+        }
+        String canonical = CANONICAL.putIfAbsent(name, name);
+        return (canonical == null) ? name : canonical;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Result of loading the {@link org.geoint.acetate.spi.model.DomainModelProvider
+ * domain model providers} discovered on a classpath.
+ *
+ * @see DomainRegistry#loadProvidersParallel(java.lang.ClassLoader)
+ * @author steve_siebert
+ */
+public final class ProviderLoadReport {
+
+    private final List<ProviderResult> results;
+    private final Duration loadTime;
+
+    ProviderLoadReport(List<ProviderResult> results, Duration loadTime) {
+        this.results = Collections.unmodifiableList(results);
+        this.loadTime = loadTime;
+    }
+
+    /**
+     * Results of each discovered provider, in discovery order.
+     *
+     * @return provider results
+     */
+    public List<ProviderResult> getProviderResults() {
+        return results;
+    }
+
+    /**
+     * Wall-clock time taken to discover, run, and register all providers.
+     *
+     * @return total load time
+     */
+    public Duration getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * All models registered by this load.
+     *
+     * @return registered models
+     */
+    public Set<DomainModel> getRegisteredModels() {
+        Set<DomainModel> models = new HashSet<>();
+        results.forEach((r) -> models.addAll(r.getRegisteredModels()));
+        return Collections.unmodifiableSet(models);
+    }
+
+    /**
+     * Returns true if any provider, or any model of a provider, failed to
+     * load.
+     *
+     * @return true if there were failures
+     */
+    public boolean hasFailures() {
+        return results.stream().anyMatch((r) -> !r.isSuccessful());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d providers loaded in %dms", results.size(),
+                loadTime.toMillis());
+    }
+
+    /**
+     * Result of loading a single domain model provider.
+     */
+    public static final class ProviderResult {
+
+        private final String providerName;
+        private final Duration loadTime;
+        private final Set<DomainModel> registered;
+        private final List<InvalidModelException> modelFailures;
+        private final Throwable providerFailure;
+
+        ProviderResult(String providerName, Duration loadTime,
+                Set<DomainModel> registered,
+                List<InvalidModelException> modelFailures,
+                Throwable providerFailure) {
+            this.providerName = providerName;
+            this.loadTime = loadTime;
+            this.registered = Collections.unmodifiableSet(registered);
+            this.modelFailures = Collections.unmodifiableList(modelFailures);
+            this.providerFailure = providerFailure;
+        }
+
+        /**
+         * Fully qualified class name of the provider.
+         *
+         * @return provider class name
+         */
+        public String getProviderName() {
+            return providerName;
+        }
+
+        /**
+         * Time taken to instantiate the provider and retrieve its models.
+         *
+         * @return provider load time
+         */
+        public Duration getLoadTime() {
+            return loadTime;
+        }
+
+        /**
+         * Models of this provider which were registered.
+         *
+         * @return registered models
+         */
+        public Set<DomainModel> getRegisteredModels() {
+            return registered;
+        }
+
+        /**
+         * Models of this provider which could not be registered, such as
+         * models colliding with an already registered domain.
+         *
+         * @return model failures
+         */
+        public List<InvalidModelException> getModelFailures() {
+            return modelFailures;
+        }
+
+        /**
+         * Failure instantiating the provider or retrieving its models, in
+         * which case no models were registered from this provider.
+         *
+         * @return provider failure, if one occurred
+         */
+        public Optional<Throwable> getProviderFailure() {
+            return Optional.ofNullable(providerFailure);
+        }
+
+        /**
+         * Returns true if the provider and all its models loaded.
+         *
+         * @return true if successful
+         */
+        public boolean isSuccessful() {
+            return providerFailure == null && modelFailures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d models in %dms%s", providerName,
+                    registered.size(), loadTime.toMillis(),
+                    isSuccessful() ? "" : " (failed)");
+        }
+    }
+}
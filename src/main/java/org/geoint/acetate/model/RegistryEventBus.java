@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoint.acetate.model.ProviderLoadReport.ProviderResult;
+
+/**
+ * Bounded, asynchronous delivery of registry events to
+ * {@link DomainRegistryListener listeners}.
+ * <p>
+ * Publishing never blocks; events are offered to a bounded queue, and are
+ * dropped (and counted) if the queue is full. A daemon dispatcher thread,
+ * started when events are published, drains the queue in batches and
+ * coalesces adjacent registration events into a single delivery. The
+ * dispatcher thread exits once it has been idle for
+ * {@link #DISPATCHER_KEEP_ALIVE_MILLIS}, so an unused bus (and its registry)
+ * does not retain a thread. Nothing is queued while there are no listeners.
+ *
+ * @author steve_siebert
+ */
+final class RegistryEventBus {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(RegistryEventBus.class.getName());
+    private static final int MAX_BATCH = 256;
+    static final long DISPATCHER_KEEP_ALIVE_MILLIS = 1000;
+
+    private final List<DomainRegistryListener> listeners
+            = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Consumer<DomainRegistryListener>> queue;
+    private final LongAdder dropped = new LongAdder();
+    //at most one dispatcher thread, which exits when idle
+    private final ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(0, 1,
+            DISPATCHER_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), (r) -> {
+                Thread t = new Thread(r, "acetate-registry-events");
+                t.setDaemon(true);
+                return t;
+            });
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    RegistryEventBus(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    void addListener(DomainRegistryListener listener) {
+        listeners.add(listener);
+    }
+
+    boolean removeListener(DomainRegistryListener listener) {
+        return listeners.remove(listener);
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    void modelsRegistered(Collection<DomainModel> models) {
+        if (!models.isEmpty()) {
+            publish(new Registered(models));
+        }
+    }
+
+    void modelFailed(String namespace, String version, Throwable cause) {
+        publish((l) -> l.modelFailed(namespace, version, cause));
+    }
+
+    void providerLoaded(ProviderResult result) {
+        publish((l) -> l.providerLoaded(result));
+    }
+
+    private void publish(Consumer<DomainRegistryListener> event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Returns true if the bus currently has a dispatcher thread.
+     *
+     * @return true if a dispatcher thread is running
+     */
+    boolean isDispatcherRunning() {
+        return dispatcher.getPoolSize() > 0;
+    }
+
+    /**
+     * Schedules a drain of the queue on the dispatcher, unless a drain is
+     * already scheduled or running.
+     */
+    private void scheduleDrain() {
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        List<Consumer<DomainRegistryListener>> batch
+                = new ArrayList<>(MAX_BATCH);
+        try {
+            while (queue.drainTo(batch, MAX_BATCH) > 0) {
+                deliver(batch);
+                batch.clear();
+            }
+        } finally {
+            draining.set(false);
+        }
+        scheduleDrain(); //events published after the queue was drained
+    }
+
+    private void deliver(List<Consumer<DomainRegistryListener>> batch) {
+        List<DomainModel> registered = new ArrayList<>();
+        for (Consumer<DomainRegistryListener> event : batch) {
+            if (event instanceof Registered) {
+                registered.addAll(((Registered) event).models);
+                continue;
+            }
+            deliverRegistered(registered);
+            deliver(event);
+        }
+        deliverRegistered(registered);
+    }
+
+    private void deliverRegistered(List<DomainModel> registered) {
+        if (!registered.isEmpty()) {
+            deliver(new Registered(new ArrayList<>(registered)));
+            registered.clear();
+        }
+    }
+
+    private void deliver(Consumer<DomainRegistryListener> event) {
+        for (DomainRegistryListener l : listeners) {
+            try {
+                event.accept(l);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, String.format("Registry listener "
+                        + "'%s' failed", l.getClass().getName()), ex);
+            }
+        }
+    }
+
+    /**
+     * Registration event, coalesced with adjacent registration events on
+     * delivery.
+     */
+    private static final class Registered
+            implements Consumer<DomainRegistryListener> {
+
+        final Collection<DomainModel> models;
+
+        Registered(Collection<DomainModel> models) {
+            this.models = Collections.unmodifiableList(new ArrayList<>(models));
+        }
+
+        @Override
+        public void accept(DomainRegistryListener l) {
+            l.modelsRegistered(models);
+        }
+    }
+}
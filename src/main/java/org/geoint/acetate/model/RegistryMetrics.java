@@ -0,0 +1,352 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentation of a {@link DomainRegistry}.
+ * <p>
+ * Lookup metrics are disabled by default; while disabled a lookup pays for a
+ * single volatile read. While enabled, lookups are timed and counted using
+ * striped counters so concurrent readers do not contend.
+ * <p>
+ * Retained sizes are estimates of the shallow size of the model object graph
+ * assuming a 64-bit JVM with compressed references. Types shared between
+ * models (such as referenced types of another domain) are attributed to their
+ * own model.
+ *
+ * @author steve_siebert
+ */
+public final class RegistryMetrics implements DomainRegistryMXBean {
+
+    /**
+     * JMX domain of registry MBeans.
+     */
+    public static final String JMX_DOMAIN = "org.geoint.acetate";
+
+    /**
+     * Maximum number of namespaces counted individually; lookups of further
+     * namespaces are counted under {@link #OTHER_NAMESPACE} so lookups of
+     * arbitrary unknown namespaces can not grow the counters without bound.
+     */
+    static final int MAX_NAMESPACES = 1024;
+    static final String OTHER_NAMESPACE = "*";
+
+    private final DomainRegistry registry;
+    volatile boolean enabled;
+    private final ConcurrentMap<String, LongAdder[]> lookups
+            = new ConcurrentHashMap<>();
+    private final LatencyHistogram resolveLatency = new LatencyHistogram();
+    private final LatencyHistogram findModelLatency = new LatencyHistogram();
+
+    RegistryMetrics(DomainRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void resetMetrics() {
+        lookups.clear();
+        resolveLatency.reset();
+        findModelLatency.reset();
+    }
+
+    /**
+     * Register this registries MBean with the platform MBean server.
+     *
+     * @param name registry name, used as the name property of the MBean
+     * @return MBean name
+     * @throws JMException if the MBean could not be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregister the registry MBean from the platform MBean server, if
+     * registered.
+     *
+     * @param name registry name
+     * @throws JMException if the MBean could not be unregistered
+     */
+    public void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    @Override
+    public long getRevision() {
+        return registry.getRevision();
+    }
+
+    @Override
+    public int getModelCount() {
+        return registry.registeredModels().size();
+    }
+
+    @Override
+    public Map<String, Integer> getTypeCounts() {
+        return byModel((m) -> (int) m.typeStream().count());
+    }
+
+    @Override
+    public Map<String, Long> getEstimatedRetainedBytes() {
+        return byModel(RegistryMetrics::estimateRetainedSize);
+    }
+
+    @Override
+    public long getTotalEstimatedRetainedBytes() {
+        return registry.registeredModels().stream()
+                .mapToLong(RegistryMetrics::estimateRetainedSize)
+                .sum();
+    }
+
+    @Override
+    public Map<String, Long> getResolveHits() {
+        return lookupCounts(0);
+    }
+
+    @Override
+    public Map<String, Long> getResolveMisses() {
+        return lookupCounts(1);
+    }
+
+    @Override
+    public long[] getResolveLatencyHistogram() {
+        return resolveLatency.snapshot();
+    }
+
+    @Override
+    public long[] getFindModelLatencyHistogram() {
+        return findModelLatency.snapshot();
+    }
+
+    /**
+     * Record a type resolution.
+     *
+     * @param namespace namespace of the requested type
+     * @param hit true if the type was resolved
+     * @param nanos lookup latency
+     */
+    void resolved(String namespace, boolean hit, long nanos) {
+        resolveLatency.record(nanos);
+        LongAdder[] counters = lookups.get(namespace);
+        if (counters == null) {
+            counters = lookups.computeIfAbsent(
+                    (lookups.size() < MAX_NAMESPACES) ? namespace : OTHER_NAMESPACE,
+                    (ns) -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        }
+        counters[hit ? 0 : 1].increment();
+    }
+
+    /**
+     * Record a model lookup.
+     *
+     * @param nanos lookup latency
+     */
+    void modelFound(long nanos) {
+        findModelLatency.record(nanos);
+    }
+
+    private Map<String, Long> lookupCounts(int counter) {
+        Map<String, Long> counts = new HashMap<>();
+        lookups.forEach((ns, c) -> counts.put(ns, c[counter].sum()));
+        return counts;
+    }
+
+    private <T> Map<String, T> byModel(Function<DomainModel, T> stat) {
+        Map<String, T> stats = new HashMap<>();
+        for (DomainModel m : registry.registeredModels()) {
+            stats.put(m.toString(), stat.apply(m));
+        }
+        return stats;
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=DomainRegistry,name="
+                + ObjectName.quote(name));
+    }
+
+    //estimated sizes, 64-bit JVM with compressed references
+    private static final int HEADER = 12;
+    private static final int REF = 4;
+    private static final int ARRAY_HEADER = 16;
+
+    /**
+     * Estimate the retained heap size of the model.
+     * <p>
+     * Strings shared within the model (such as the canonical names of
+     * references) are counted once.
+     *
+     * @param model domain model
+     * @return estimated retained size, in bytes
+     */
+    static long estimateRetainedSize(DomainModel model) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long size = object(5) + object(3) //model, domain key
+                + string(model.getNamespace(), seen)
+                + string(model.getVersion(), seen)
+                + string(model.getDescription().orElse(null), seen)
+                + map(model.getResources().size())
+                + map(model.getEvents().size())
+                + map(model.getValues().size());
+        for (ResourceType t : model.getResources()) {
+            size += type(t, seen) + object(4) //composites, links, operations
+                    + map(t.getComposites().size())
+                    + map(t.getLinks().size())
+                    + map(t.getOperations().size());
+            for (NamedRef r : t.getComposites()) {
+                size += ref(r, seen);
+            }
+            for (NamedRef r : t.getLinks()) {
+                size += ref(r, seen);
+            }
+            for (ResourceOperation op : t.getOperations()) {
+                size += object(7) + map(op.getParameters().size())
+                        + string(op.getName(), seen)
+                        + string(op.getDescription().orElse(null), seen)
+                        + ref(op.getSuccessEventType(), seen);
+                for (NamedRef r : op.getParameters()) {
+                    size += ref(r, seen);
+                }
+            }
+        }
+        for (EventType t : model.getEvents()) {
+            size += type(t, seen) + object(1) + map(t.getComposites().size());
+            for (NamedRef r : t.getComposites()) {
+                size += ref(r, seen);
+            }
+        }
+        for (ValueType t : model.getValues()) {
+            size += type(t, seen) + object(4); //codecs
+        }
+        return size;
+    }
+
+    private static long type(DomainType type, Set<Object> seen) {
+        return object(2) + object(3) //type, type key
+                + string(type.getName(), seen)
+                + string(type.getDescription().orElse(null), seen);
+    }
+
+    private static long ref(NamedRef ref, Set<Object> seen) {
+        if (ref == null || !seen.add(ref)) {
+            return 0;
+        }
+        long size = object(4) + string(ref.getName(), seen)
+                + string(ref.getDescription().orElse(null), seen);
+        if (ref instanceof NamedMapRef) {
+            NamedMapRef<?, ?> m = (NamedMapRef<?, ?>) ref;
+            size += ref(m.getKeyRef(), seen) + ref(m.getValueRef(), seen);
+        }
+        return size;
+    }
+
+    private static long string(String s, Set<Object> seen) {
+        if (s == null || !seen.add(s)) {
+            return 0;
+        }
+        //String instance and (Java 8) char[] backing array
+        return object(3) + align(ARRAY_HEADER + 2L * s.length());
+    }
+
+    /**
+     * Estimated size of an array-backed ImmutableNamedTypeMap of n entries:
+     * the map, its name and value arrays, and its hash table.
+     */
+    private static long map(int n) {
+        long size = object(5) + align(ARRAY_HEADER + (long) n * REF) * 2;
+        if (n > ImmutableNamedTypeMap.LINEAR_MAX) {
+            size += align(ARRAY_HEADER + 4L * 2 * n);
+        }
+        return size;
+    }
+
+    private static long object(int fields) {
+        return align(HEADER + fields * REF);
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Lock-free histogram of latencies in power of two nanosecond buckets.
+     */
+    static final class LatencyHistogram {
+
+        static final int BUCKETS = 64;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        LatencyHistogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            buckets[bucket(nanos)].increment();
+        }
+
+        static int bucket(long nanos) {
+            return (nanos <= 0) ? 0
+                    : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        void reset() {
+            for (LongAdder b : buckets) {
+                b.reset();
+            }
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+    }
+}
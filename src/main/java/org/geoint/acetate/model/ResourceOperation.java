@@ -31,11 +31,9 @@ import org.geoint.acetate.ResourceInstance;
  */
 public final class ResourceOperation {
 
-    private final String namespace;
-    private final String version;
-    private final String resourceName;
+    private final TypeKey resourceKey;
     private final String operationName;
-    private final Optional<String> description;
+    private final String description; //nullable
     private final boolean idempotent;
     private final boolean safe;
     private final ImmutableNamedTypeMap<NamedTypeRef> parameters;
@@ -55,11 +53,9 @@ public final class ResourceOperation {
             boolean idempotent, boolean safe,
             Collection<NamedTypeRef> parameters,
             NamedTypeRef<EventType> returnEvent) throws InvalidModelException {
-        this.namespace = namespace;
-        this.version = version;
-        this.resourceName = resourceName;
-        this.operationName = operationName;
-        this.description = Optional.ofNullable(description);
+        this.resourceKey = TypeKey.of(namespace, version, resourceName);
+        this.operationName = Names.canonical(operationName);
+        this.description = description;
         this.idempotent = idempotent;
         this.safe = safe;
         this.parameters
@@ -73,7 +69,7 @@ public final class ResourceOperation {
      * @return resource namespace
      */
     public String getNamespace() {
-        return namespace;
+        return resourceKey.getNamespace();
     }
 
     /**
@@ -82,7 +78,7 @@ public final class ResourceOperation {
      * @return resource version
      */
     public String getResourceVersion() {
-        return version;
+        return resourceKey.getVersion();
     }
 
     /**
@@ -91,7 +87,16 @@ public final class ResourceOperation {
      * @return resource type
      */
     public String getResourceName() {
-        return resourceName;
+        return resourceKey.getName();
+    }
+
+    /**
+     * Key of the declaring resource.
+     *
+     * @return resource type key
+     */
+    public TypeKey getResourceKey() {
+        return resourceKey;
     }
 
     /**
@@ -112,7 +117,7 @@ public final class ResourceOperation {
      * @return resource description
      */
     public Optional<String> getDescription() {
-        return description;
+        return Optional.ofNullable(description);
     }
 
     /**
@@ -145,6 +150,29 @@ public final class ResourceOperation {
         return parameters.values();
     }
 
+    /**
+     * Ordinal of the named parameter; parameters are numbered from zero in
+     * declaration order.
+     *
+     * @param parameterName parameter name
+     * @return parameter ordinal, or -1 if the operation has no such parameter
+     */
+    public int slotOf(String parameterName) {
+        return parameters.ordinalOf(parameterName);
+    }
+
+    /**
+     * Returns the parameter with the ordinal.
+     *
+     * @param ordinal parameter ordinal
+     * @return parameter
+     * @throws IndexOutOfBoundsException if there is no parameter with the
+     * ordinal
+     */
+    public NamedTypeRef refAt(int ordinal) {
+        return parameters.valueAt(ordinal);
+    }
+
     /**
      * Model describing the resource returned from the operation.
      * <p>
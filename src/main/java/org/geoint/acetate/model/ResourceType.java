@@ -114,4 +114,72 @@ public final class ResourceType extends DomainType {
         return links.find(linkName);
     }
 
+    /**
+     * Ordinal of the named composite; composites are numbered from zero in
+     * declaration order.
+     *
+     * @param name composite name
+     * @return composite ordinal, or -1 if the resource has no such composite
+     */
+    public int slotOf(String name) {
+        return composites.ordinalOf(name);
+    }
+
+    /**
+     * Returns the composite with the ordinal.
+     *
+     * @param ordinal composite ordinal
+     * @return composite
+     * @throws IndexOutOfBoundsException if there is no composite with the
+     * ordinal
+     */
+    public NamedRef refAt(int ordinal) {
+        return composites.valueAt(ordinal);
+    }
+
+    /**
+     * Ordinal of the named link; links are numbered from zero in declaration
+     * order.
+     *
+     * @param linkName link name
+     * @return link ordinal, or -1 if the resource has no such link
+     */
+    public int linkSlotOf(String linkName) {
+        return links.ordinalOf(linkName);
+    }
+
+    /**
+     * Returns the link with the ordinal.
+     *
+     * @param ordinal link ordinal
+     * @return link
+     * @throws IndexOutOfBoundsException if there is no link with the ordinal
+     */
+    public NamedTypeRef<ResourceType> linkAt(int ordinal) {
+        return links.valueAt(ordinal);
+    }
+
+    /**
+     * Ordinal of the named operation; operations are numbered from zero in
+     * declaration order.
+     *
+     * @param operationName operation name
+     * @return operation ordinal, or -1 if the resource has no such operation
+     */
+    public int operationSlotOf(String operationName) {
+        return operations.ordinalOf(operationName);
+    }
+
+    /**
+     * Returns the operation with the ordinal.
+     *
+     * @param ordinal operation ordinal
+     * @return operation
+     * @throws IndexOutOfBoundsException if there is no operation with the
+     * ordinal
+     */
+    public ResourceOperation operationAt(int ordinal) {
+        return operations.valueAt(ordinal);
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Hash index of domain types.
+ * <p>
+ * Types are indexed by type name, each name mapping to the (typically single)
+ * types of that name across namespaces and versions. A lookup is therefore a
+ * single hash probe followed by an identity check, and does not require the
+ * caller to create a {@link TypeKey}.
+ * <p>
+ * The thread safety of the index depends on the index factory method used.
+ *
+ * @author steve_siebert
+ */
+final class TypeIndex {
+
+    private final Map<String, DomainType[]> byName;
+
+    private TypeIndex(Map<String, DomainType[]> byName) {
+        this.byName = byName;
+    }
+
+    /**
+     * Creates an index that is not thread-safe.
+     *
+     * @return new index
+     */
+    static TypeIndex newIndex() {
+        return new TypeIndex(new HashMap<>());
+    }
+
+    /**
+     * Creates an index that may be safely read and written concurrently.
+     *
+     * @return new thread-safe index
+     */
+    static TypeIndex concurrentIndex() {
+        return new TypeIndex(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates an index of the types, where the first type of an identity has
+     * precedence over subsequent types of the same identity.
+     *
+     * @param types types to index
+     * @return new index
+     */
+    static TypeIndex of(Stream<DomainType> types) {
+        TypeIndex index = newIndex();
+        types.forEachOrdered(index::add);
+        return index;
+    }
+
+    /**
+     * Adds the type to the index if a type of the same identity has not
+     * already been indexed.
+     *
+     * @param type type to index
+     * @return true if the type was indexed, false if a type of the same
+     * identity was already indexed
+     */
+    boolean add(DomainType type) {
+        final TypeKey key = type.getTypeKey();
+        final boolean[] added = {false};
+        byName.compute(type.getName(), (n, existing) -> {
+            if (existing == null) {
+                added[0] = true;
+                return new DomainType[]{type};
+            }
+            for (DomainType t : existing) {
+                if (t.isType(key)) {
+                    return existing;
+                }
+            }
+            DomainType[] types = new DomainType[existing.length + 1];
+            System.arraycopy(existing, 0, types, 0, existing.length);
+            types[existing.length] = type;
+            added[0] = true;
+            return types;
+        });
+        return added[0];
+    }
+
+    /**
+     * Removes the type of the same identity from the index.
+     *
+     * @param type type to remove
+     * @return true if a type of the same identity was removed
+     */
+    boolean remove(DomainType type) {
+        final TypeKey key = type.getTypeKey();
+        final boolean[] removed = {false};
+        byName.computeIfPresent(type.getName(), (n, existing) -> {
+            for (int i = 0; i < existing.length; i++) {
+                if (existing[i].isType(key)) {
+                    removed[0] = true;
+                    if (existing.length == 1) {
+                        return null;
+                    }
+                    DomainType[] types = new DomainType[existing.length - 1];
+                    System.arraycopy(existing, 0, types, 0, i);
+                    System.arraycopy(existing, i + 1, types, i,
+                            types.length - i);
+                    return types;
+                }
+            }
+            return existing;
+        });
+        return removed[0];
+    }
+
+    DomainType find(String namespace, String version, String typeName) {
+        DomainType[] types = byName.get(typeName);
+        if (types != null) {
+            for (DomainType t : types) {
+                if (t.isType(namespace, version, typeName)) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+
+    DomainType find(TypeKey key) {
+        DomainType[] types = byName.get(key.getName());
+        if (types != null) {
+            for (DomainType t : types) {
+                if (t.isType(key)) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+
+    Stream<DomainType> stream() {
+        return byName.values().stream().flatMap(Stream::of);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical identity of a domain type: namespace, version, and type name.
+ * <p>
+ * The namespace and version are held by the shared, canonical
+ * {@link DomainKey} of the domain.
+ * <p>
+ * TypeKey instances are interned; there is only ever one instance for a given
+ * namespace/version/name triple, so keys may be compared by identity. The hash
+ * code is computed once, on creation.
+ * <p>
+ * Canonical keys are retained for the life of the JVM, so keys should be
+ * created for domain-defined identities and not for arbitrary (ie unvalidated
+ * inbound) strings.
+ *
+ * @author steve_siebert
+ */
+public final class TypeKey {
+
+    private static final ConcurrentMap<TypeKey, TypeKey> CANONICAL
+            = new ConcurrentHashMap<>();
+
+    private final DomainKey domain;
+    private final String name;
+    private final int hash;
+
+    private TypeKey(DomainKey domain, String name) {
+        this.domain = domain;
+        this.name = name;
+        this.hash = 71 * domain.hashCode() + name.hashCode();
+    }
+
+    /**
+     * Returns the canonical key for the domain type.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @param typeName domain type name
+     * @return canonical type key
+     * @throws NullPointerException if any component is null
+     */
+    public static TypeKey of(String namespace, String version, String typeName)
+            throws NullPointerException {
+        return of(DomainKey.of(namespace, version), typeName);
+    }
+
+    /**
+     * Returns the canonical key for the domain type.
+     *
+     * @param domain domain key
+     * @param typeName domain type name
+     * @return canonical type key
+     * @throws NullPointerException if any component is null
+     */
+    public static TypeKey of(DomainKey domain, String typeName)
+            throws NullPointerException {
+        TypeKey key = new TypeKey(
+                Objects.requireNonNull(domain, "Type domain is required."),
+                Objects.requireNonNull(typeName, "Type name is required."));
+        TypeKey canonical = CANONICAL.putIfAbsent(key, key);
+        return (canonical == null) ? key : canonical;
+    }
+
+    /**
+     * Key of the domain of the type.
+     *
+     * @return domain key
+     */
+    public DomainKey getDomain() {
+        return domain;
+    }
+
+    /**
+     * Namespace of the domain.
+     *
+     * @return domain namespace
+     */
+    public String getNamespace() {
+        return domain.getNamespace();
+    }
+
+    /**
+     * Version of the domain.
+     *
+     * @return domain version
+     */
+    public String getVersion() {
+        return domain.getVersion();
+    }
+
+    /**
+     * Domain-unique name of the type.
+     *
+     * @return type name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Check if the domain type descriptor matches this key.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @param typeName type name
+     * @return true if the descriptor identifies this key
+     */
+    public boolean matches(String namespace, String version, String typeName) {
+        return this.name.contentEquals(typeName)
+                && domain.matches(namespace, version);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s.%s-%s", domain.getNamespace(), name,
+                domain.getVersion());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final TypeKey other = (TypeKey) obj;
+        return this.hash == other.hash
+                && this.domain == other.domain
+                && this.name.equals(other.name);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+/**
+ * Binary model catalog format constants.
+ * <p>
+ * All integers are big-endian. String references are indexes into the string
+ * table, -1 indicating an absent (null) string.
+ * <pre>
+ * header     int magic ("ACTC"), short version, short flags
+ * strings    int count, int[count + 1] offsets, byte[] UTF-8 data
+ * models     int count,
+ *            {int namespace, int version, int description, int first,
+ *            int end}[count]
+ * types      int count, int[count] record offsets, int[count] model types,
+ *            int slots, {int hash, int type}[slots] index, record[count]
+ * </pre>
+ * Record offsets are relative to the first record. Model types lists the type
+ * indexes of each model contiguously, in model order; the types of a model
+ * are the entries from its first (inclusive) to its end (exclusive). The type
+ * index is an open-addressing hash table of
+ * {@link #hash(String, String, String) type key hashes}, probed linearly from
+ * {@code hash & (slots - 1)}; empty slots have a type of -1.
+ * Type records are written in dependency order; a type record only references
+ * types of earlier records or types external to the catalog. Each record is:
+ * <pre>
+ * type       byte kind, int model, int name, int description, body
+ * value      int character codec class, int binary codec class
+ * event      int count, ref[count] composites
+ * resource   int count, ref[count] composites, int count, ref[count] links,
+ *            int count, operation[count]
+ * operation  int name, int description, byte flags, int count,
+ *            ref[count] parameters, [ref return event]
+ * ref        byte kind, int name, int description, type ref | map ref
+ * type ref   int namespace, int version, int type name, byte collection
+ * map ref    ref key, ref value
+ * </pre>
+ *
+ * @author steve_siebert
+ */
+final class CatalogFormat {
+
+    static final int MAGIC = 0x41435443; //ACTC
+    static final short VERSION = 2;
+
+    static final int MODEL_BYTES = 5 * Integer.BYTES;
+
+    static final byte KIND_VALUE = 1;
+    static final byte KIND_EVENT = 2;
+    static final byte KIND_RESOURCE = 3;
+
+    static final byte REF_TYPE = 1;
+    static final byte REF_MAP = 2;
+
+    static final byte OP_IDEMPOTENT = 0x01;
+    static final byte OP_SAFE = 0x02;
+    static final byte OP_RETURNS_EVENT = 0x04;
+
+    static final int NO_STRING = -1;
+    static final int NO_TYPE = -1;
+
+    private CatalogFormat() {
+    }
+
+    /**
+     * Type index hash of a type key.
+     * <p>
+     * Computed from {@link String#hashCode()}, which is specified, so the hash
+     * is stable across JVMs.
+     *
+     * @param namespace type namespace
+     * @param version type version
+     * @param name type name
+     * @return index hash
+     */
+    static int hash(String namespace, String version, String name) {
+        int h = namespace.hashCode();
+        h = 31 * h + version.hashCode();
+        h = 31 * h + name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Number of index slots for the number of types, a power of two keeping
+     * the table at most half full.
+     *
+     * @param typeCount number of types
+     * @return number of index slots
+     */
+    static int slotCount(int typeCount) {
+        return Integer.highestOneBit(Math.max(1, typeCount) * 2 - 1) << 1;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import static org.geoint.acetate.model.catalog.CatalogFormat.*;
+
+/**
+ * Absolute positions of the sections of a catalog buffer.
+ * <p>
+ * Only the fixed-size portions of the catalog are read to compute the layout,
+ * no strings or type records are decoded.
+ *
+ * @see CatalogFormat
+ * @author steve_siebert
+ */
+final class CatalogLayout {
+
+    final short version;
+    final int stringCount;
+    final int stringOffsets;
+    final int stringData;
+    final int modelCount;
+    final int models;
+    final int typeCount;
+    final int recordOffsets;
+    final int modelTypes;
+    final int slotCount;
+    final int slots;
+    final int records;
+
+    private CatalogLayout(ByteBuffer buf) throws CatalogException {
+        if (buf.limit() < 8 || buf.getInt(0) != MAGIC) {
+            throw new CatalogException("Not a model catalog");
+        }
+        version = buf.getShort(4);
+        if (version != VERSION) {
+            throw new CatalogException(String.format("Unsupported catalog "
+                    + "version %d", version));
+        }
+        stringCount = buf.getInt(8);
+        stringOffsets = 12;
+        stringData = stringOffsets + (stringCount + 1) * Integer.BYTES;
+        modelCount = buf.getInt(stringData
+                + buf.getInt(stringData - Integer.BYTES));
+        models = stringData + buf.getInt(stringData - Integer.BYTES)
+                + Integer.BYTES;
+        int types = models + modelCount * MODEL_BYTES;
+        typeCount = buf.getInt(types);
+        recordOffsets = types + Integer.BYTES;
+        modelTypes = recordOffsets + typeCount * Integer.BYTES;
+        int index = modelTypes + typeCount * Integer.BYTES;
+        slotCount = buf.getInt(index);
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new CatalogException(String.format("Invalid catalog type "
+                    + "index size %d", slotCount));
+        }
+        slots = index + Integer.BYTES;
+        records = slots + slotCount * 2 * Integer.BYTES;
+        if (records > buf.limit()) {
+            throw new CatalogException("Catalog is truncated");
+        }
+    }
+
+    /**
+     * Reads the layout of the catalog starting at position zero of the
+     * buffer.
+     *
+     * @param buf catalog buffer
+     * @return catalog layout
+     * @throws CatalogException if the buffer is not a catalog
+     * @throws IndexOutOfBoundsException if the catalog is truncated
+     */
+    static CatalogLayout of(ByteBuffer buf) throws CatalogException {
+        return new CatalogLayout(buf);
+    }
+
+    /**
+     * Absolute position of a type record.
+     *
+     * @param buf catalog buffer
+     * @param type type index
+     * @return record position
+     */
+    int record(ByteBuffer buf, int type) {
+        return records + buf.getInt(recordOffsets + type * Integer.BYTES);
+    }
+
+    /**
+     * Type index of an entry of the model types table.
+     *
+     * @param buf catalog buffer
+     * @param entry model types entry
+     * @return type index
+     */
+    int modelType(ByteBuffer buf, int entry) {
+        return buf.getInt(modelTypes + entry * Integer.BYTES);
+    }
+
+    /**
+     * Decodes a string of the string table.
+     *
+     * @param buf catalog buffer
+     * @param id string id
+     * @return string, or null if id is {@link CatalogFormat#NO_STRING}
+     */
+    String string(ByteBuffer buf, int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+        if (id < 0 || id >= stringCount) {
+            throw new IndexOutOfBoundsException(String.format("Unknown "
+                    + "catalog string %d", id));
+        }
+        int start = buf.getInt(stringOffsets + id * Integer.BYTES);
+        int end = buf.getInt(stringOffsets + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer dup = buf.duplicate();
+        dup.position(stringData + start);
+        dup.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
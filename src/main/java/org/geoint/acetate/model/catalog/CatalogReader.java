@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.spi.model.TypeResolver;
+import static org.geoint.acetate.model.catalog.CatalogFormat.*;
+
+/**
+ * Reads domain models from a catalog written by a {@link CatalogWriter}.
+ * <p>
+ * Types referenced by the catalog which are not defined in the catalog are
+ * resolved from the provided resolver. Value type codecs are
+ * {@link LazyTypeCodec instantiated on first use}.
+ *
+ * @see CatalogFormat
+ * @author steve_siebert
+ */
+public final class CatalogReader {
+
+    private final TypeResolver resolver;
+    private final ClassLoader codecClassLoader;
+
+    /**
+     * Catalog reader which loads codecs from the thread context classloader
+     * of the thread creating the reader.
+     *
+     * @param resolver resolves types referenced by, but not defined in, the
+     * catalog
+     */
+    public CatalogReader(TypeResolver resolver) {
+        this(resolver, Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     *
+     * @param resolver resolves types referenced by, but not defined in, the
+     * catalog
+     * @param codecClassLoader classloader used to load codec classes
+     */
+    public CatalogReader(TypeResolver resolver, ClassLoader codecClassLoader) {
+        this.resolver = resolver;
+        this.codecClassLoader = codecClassLoader;
+    }
+
+    /**
+     * Read the models of a catalog file.
+     *
+     * @param path catalog file
+     * @return catalog models, in catalog order
+     * @throws IOException if the file could not be read
+     * @throws InvalidModelException if the file is not a valid catalog or a
+     * model could not be created
+     */
+    public Set<DomainModel> read(Path path)
+            throws IOException, InvalidModelException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Read the models of a catalog from the remaining bytes of the buffer.
+     *
+     * @param buffer catalog bytes
+     * @return catalog models, in catalog order
+     * @throws InvalidModelException if the buffer is not a valid catalog or a
+     * model could not be created
+     */
+    public Set<DomainModel> read(ByteBuffer buffer)
+            throws InvalidModelException {
+        try {
+            return parse(buffer.slice());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException | NegativeArraySizeException ex) {
+            throw new CatalogException("Catalog is truncated or corrupt", ex);
+        }
+    }
+
+    private Set<DomainModel> parse(ByteBuffer buf)
+            throws InvalidModelException {
+        CatalogLayout layout = CatalogLayout.of(buf);
+        String[] strings = new String[layout.stringCount];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = layout.string(buf, i);
+        }
+        IntFunction<String> string = (id) -> (id == NO_STRING)
+                ? null : strings[id];
+
+        String[][] models = new String[layout.modelCount][];
+        List<List<DomainType>> modelTypes = new ArrayList<>(layout.modelCount);
+        buf.position(layout.models);
+        for (int i = 0; i < layout.modelCount; i++) {
+            models[i] = new String[]{string.apply(buf.getInt()),
+                string.apply(buf.getInt()), string.apply(buf.getInt())};
+            buf.position(buf.position() + 2 * Integer.BYTES); //type range
+            modelTypes.add(new ArrayList<>());
+        }
+
+        //records are in dependency order, referenced catalog types are
+        //always read before the types referencing them
+        Map<TypeKey, DomainType> types = new HashMap<>();
+        TypeRecordReader.TypeLookup lookup = (ns, v, n) -> {
+            TypeKey key = TypeKey.of(ns, v, n);
+            DomainType type = types.get(key);
+            return (type != null) ? type : resolver.resolve(key).orElse(null);
+        };
+        buf.position(layout.records);
+        TypeRecordReader records
+                = new TypeRecordReader(buf, string, codecClassLoader);
+        for (int i = 0; i < layout.typeCount; i++) {
+            int model = records.peekModel();
+            DomainType type = records.read(models[model][0], models[model][1],
+                    lookup);
+            types.put(type.getTypeKey(), type);
+            modelTypes.get(model).add(type);
+        }
+
+        Set<DomainModel> result = new LinkedHashSet<>();
+        for (int i = 0; i < layout.modelCount; i++) {
+            result.add(DomainModel.newInstance(models[i][0], models[i][1],
+                    models[i][2], modelTypes.get(i)));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+}
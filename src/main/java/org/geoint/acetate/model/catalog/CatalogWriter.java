@@ -0,0 +1,437 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.NamedMapRef;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceOperation;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.TypeCodec;
+import static org.geoint.acetate.model.catalog.CatalogFormat.*;
+
+/**
+ * Writes domain models to a precompiled binary catalog which can be loaded by
+ * a {@link CatalogReader} without rebuilding the models.
+ * <p>
+ * Codecs are written by class name and must be public, top-level or static
+ * member, classes with a public no-arg constructor.
+ *
+ * @see CatalogFormat
+ * @author steve_siebert
+ */
+public final class CatalogWriter {
+
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    private CatalogWriter() {
+    }
+
+    /**
+     * Write the models to a catalog file, replacing the file if it exists.
+     *
+     * @param path catalog file
+     * @param models models to write
+     * @throws IOException if the file could not be written
+     * @throws CatalogException if a model could not be written to the catalog
+     */
+    public static void write(Path path, Collection<DomainModel> models)
+            throws IOException, CatalogException {
+        try (OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(path))) {
+            write(out, models);
+        }
+    }
+
+    /**
+     * Write the models as a catalog to the stream.
+     *
+     * @param out catalog stream, not closed by this method
+     * @param models models to write
+     * @throws IOException if the stream could not be written
+     * @throws CatalogException if a model could not be written to the catalog
+     */
+    public static void write(OutputStream out, Collection<DomainModel> models)
+            throws IOException, CatalogException {
+        new CatalogWriter().writeCatalog(out, models);
+    }
+
+    private void writeCatalog(OutputStream out, Collection<DomainModel> models)
+            throws IOException, CatalogException {
+        List<DomainModel> modelList = new ArrayList<>(models);
+        if (new HashSet<>(modelList).size() != modelList.size()) {
+            throw new CatalogException("Catalog models must have unique "
+                    + "namespace and version");
+        }
+        Map<DomainType, Integer> typeModels = new IdentityHashMap<>();
+        Map<TypeKey, DomainType> catalogTypes = new HashMap<>();
+        for (int i = 0; i < modelList.size(); i++) {
+            final int modelIndex = i;
+            modelList.get(i).typeStream().forEach((t) -> {
+                typeModels.put(t, modelIndex);
+                catalogTypes.put(t.getTypeKey(), t);
+            });
+        }
+
+        List<DomainType> ordered = order(modelList, catalogTypes);
+
+        //type records are written first so the string table is complete
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        int[] recordOffsets = new int[ordered.size()];
+        for (int i = 0; i < ordered.size(); i++) {
+            recordOffsets[i] = records.size();
+            DomainType t = ordered.get(i);
+            writeType(records, typeModels.get(t), t);
+        }
+        records.flush();
+
+        int[] modelStrings = new int[modelList.size() * 3];
+        for (int i = 0; i < modelList.size(); i++) {
+            DomainModel m = modelList.get(i);
+            modelStrings[i * 3] = string(m.getNamespace());
+            modelStrings[i * 3 + 1] = string(m.getVersion());
+            modelStrings[i * 3 + 2] = string(m.getDescription().orElse(null));
+        }
+
+        //type indexes grouped by model, each model has a contiguous range
+        List<List<Integer>> byModel = new ArrayList<>(modelList.size());
+        for (int i = 0; i < modelList.size(); i++) {
+            byModel.add(new ArrayList<>());
+        }
+        for (int i = 0; i < ordered.size(); i++) {
+            byModel.get(typeModels.get(ordered.get(i))).add(i);
+        }
+
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeShort(VERSION);
+        dout.writeShort(0);
+        writeStrings(dout);
+
+        dout.writeInt(modelList.size());
+        int first = 0;
+        for (int i = 0; i < modelList.size(); i++) {
+            dout.writeInt(modelStrings[i * 3]);
+            dout.writeInt(modelStrings[i * 3 + 1]);
+            dout.writeInt(modelStrings[i * 3 + 2]);
+            dout.writeInt(first);
+            first += byModel.get(i).size();
+            dout.writeInt(first);
+        }
+
+        dout.writeInt(ordered.size());
+        for (int offset : recordOffsets) {
+            dout.writeInt(offset);
+        }
+        for (List<Integer> modelTypes : byModel) {
+            for (int type : modelTypes) {
+                dout.writeInt(type);
+            }
+        }
+        writeIndex(dout, ordered);
+        recordBytes.writeTo(dout);
+        dout.flush();
+    }
+
+    /**
+     * Orders the catalog types so referenced types precede the types that
+     * reference them.
+     * <p>
+     * Types are ordered iteratively (Kahn's algorithm), as the domain builder
+     * orders type creation, so deep reference chains do not exhaust the
+     * stack. Types without unordered references keep their model order.
+     */
+    private static List<DomainType> order(List<DomainModel> models,
+            Map<TypeKey, DomainType> catalogTypes) {
+        Map<TypeKey, List<DomainType>> dependents = new HashMap<>();
+        Map<TypeKey, Integer> unresolved = new HashMap<>();
+        Deque<DomainType> ready = new ArrayDeque<>();
+        List<DomainType> types = new ArrayList<>(catalogTypes.size());
+
+        for (DomainModel m : models) {
+            for (DomainType t : (Iterable<DomainType>) m.typeStream()::iterator) {
+                types.add(t);
+                Set<TypeKey> refs = new HashSet<>();
+                for (DomainType referenced : referencedTypes(t)) {
+                    final TypeKey key = referenced.getTypeKey();
+                    if (catalogTypes.containsKey(key)
+                            && !key.equals(t.getTypeKey()) && refs.add(key)) {
+                        dependents.computeIfAbsent(key,
+                                (k) -> new ArrayList<>()).add(t);
+                    }
+                }
+                unresolved.put(t.getTypeKey(), refs.size());
+                if (refs.isEmpty()) {
+                    ready.add(t);
+                }
+            }
+        }
+
+        List<DomainType> ordered = new ArrayList<>(types.size());
+        while (!ready.isEmpty()) {
+            DomainType t = ready.poll();
+            ordered.add(t);
+            for (DomainType d : dependents.getOrDefault(t.getTypeKey(),
+                    Collections.emptyList())) {
+                if (unresolved.merge(d.getTypeKey(), -1, Integer::sum) == 0) {
+                    ready.add(d);
+                }
+            }
+        }
+        if (ordered.size() < types.size()) {
+            //types in a reference cycle, written in model order
+            for (DomainType t : types) {
+                if (unresolved.get(t.getTypeKey()) > 0) {
+                    ordered.add(t);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static List<DomainType> referencedTypes(DomainType type) {
+        List<DomainType> referenced = new ArrayList<>();
+        if (type instanceof EventType) {
+            ((EventType) type).getComposites()
+                    .forEach((r) -> addReferenced(r, referenced));
+        } else if (type instanceof ResourceType) {
+            ResourceType r = (ResourceType) type;
+            r.getComposites().forEach((c) -> addReferenced(c, referenced));
+            r.getLinks().forEach((l) -> addReferenced(l, referenced));
+            for (ResourceOperation op : r.getOperations()) {
+                for (NamedTypeRef p : op.getParameters()) {
+                    addReferenced(p, referenced);
+                }
+                if (op.getSuccessEventType() != null) {
+                    addReferenced(op.getSuccessEventType(), referenced);
+                }
+            }
+        }
+        return referenced;
+    }
+
+    private static void addReferenced(NamedRef ref, List<DomainType> referenced) {
+        if (ref instanceof NamedTypeRef) {
+            referenced.add(((NamedTypeRef<?>) ref).getReferencedType());
+        } else if (ref instanceof NamedMapRef) {
+            NamedMapRef<?, ?> map = (NamedMapRef<?, ?>) ref;
+            addReferenced(map.getKeyRef(), referenced);
+            addReferenced(map.getValueRef(), referenced);
+        }
+    }
+
+    private void writeType(DataOutputStream out, int model, DomainType type)
+            throws IOException, CatalogException {
+        if (type instanceof ValueType) {
+            ValueType v = (ValueType) type;
+            writeTypeHeader(out, KIND_VALUE, model, type);
+            out.writeInt(string(codecClassName(v, v.getDefaultCharacterCodec())));
+            out.writeInt(string(codecClassName(v, v.getDefaultBinaryCodec())));
+        } else if (type instanceof EventType) {
+            writeTypeHeader(out, KIND_EVENT, model, type);
+            writeRefs(out, ((EventType) type).getComposites());
+        } else if (type instanceof ResourceType) {
+            ResourceType r = (ResourceType) type;
+            writeTypeHeader(out, KIND_RESOURCE, model, type);
+            writeRefs(out, r.getComposites());
+            writeRefs(out, r.getLinks());
+            out.writeInt(r.getOperations().size());
+            for (ResourceOperation op : r.getOperations()) {
+                writeOperation(out, op);
+            }
+        } else {
+            throw new CatalogException(String.format("Unknown domain type "
+                    + "'%s'", type.toString()));
+        }
+    }
+
+    private void writeTypeHeader(DataOutputStream out, byte kind, int model,
+            DomainType type) throws IOException {
+        out.writeByte(kind);
+        out.writeInt(model);
+        out.writeInt(string(type.getName()));
+        out.writeInt(string(type.getDescription().orElse(null)));
+    }
+
+    private void writeOperation(DataOutputStream out, ResourceOperation op)
+            throws IOException, CatalogException {
+        out.writeInt(string(op.getName()));
+        out.writeInt(string(op.getDescription().orElse(null)));
+        byte flags = 0;
+        if (op.isIdempotent()) {
+            flags |= OP_IDEMPOTENT;
+        }
+        if (op.isSafe()) {
+            flags |= OP_SAFE;
+        }
+        if (op.getSuccessEventType() != null) {
+            flags |= OP_RETURNS_EVENT;
+        }
+        out.writeByte(flags);
+        writeRefs(out, op.getParameters());
+        if (op.getSuccessEventType() != null) {
+            writeRef(out, op.getSuccessEventType());
+        }
+    }
+
+    private void writeRefs(DataOutputStream out,
+            Collection<? extends NamedRef> refs)
+            throws IOException, CatalogException {
+        out.writeInt(refs.size());
+        for (NamedRef r : refs) {
+            writeRef(out, r);
+        }
+    }
+
+    private void writeRef(DataOutputStream out, NamedRef ref)
+            throws IOException, CatalogException {
+        if (ref instanceof NamedTypeRef) {
+            NamedTypeRef<?> typeRef = (NamedTypeRef<?>) ref;
+            TypeKey key = typeRef.getReferencedType().getTypeKey();
+            out.writeByte(REF_TYPE);
+            out.writeInt(string(ref.getName()));
+            out.writeInt(string(ref.getDescription().orElse(null)));
+            out.writeInt(string(key.getNamespace()));
+            out.writeInt(string(key.getVersion()));
+            out.writeInt(string(key.getName()));
+            out.writeBoolean(typeRef.isCollection());
+        } else if (ref instanceof NamedMapRef) {
+            NamedMapRef<?, ?> mapRef = (NamedMapRef<?, ?>) ref;
+            out.writeByte(REF_MAP);
+            out.writeInt(string(ref.getName()));
+            out.writeInt(string(ref.getDescription().orElse(null)));
+            writeRef(out, mapRef.getKeyRef());
+            writeRef(out, mapRef.getValueRef());
+        } else {
+            throw new CatalogException(String.format("Unknown reference type "
+                    + "'%s' for reference '%s'", ref.getClass().getName(),
+                    ref.getName()));
+        }
+    }
+
+    /**
+     * Writes the open-addressing type index.
+     */
+    private static void writeIndex(DataOutputStream out,
+            List<DomainType> types) throws IOException {
+        int slots = slotCount(types.size());
+        int[] hashes = new int[slots];
+        int[] indexes = new int[slots];
+        Arrays.fill(indexes, NO_TYPE);
+        for (int i = 0; i < types.size(); i++) {
+            DomainType t = types.get(i);
+            int hash = hash(t.getNamespace(), t.getVersion(), t.getName());
+            int slot = hash & (slots - 1);
+            while (indexes[slot] != NO_TYPE) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            hashes[slot] = hash;
+            indexes[slot] = i;
+        }
+        out.writeInt(slots);
+        for (int i = 0; i < slots; i++) {
+            out.writeInt(hashes[i]);
+            out.writeInt(indexes[i]);
+        }
+    }
+
+    private void writeStrings(DataOutputStream out) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        for (String s : strings.keySet()) {
+            encoded.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        out.writeInt(encoded.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] b : encoded) {
+            offset += b.length;
+            out.writeInt(offset);
+        }
+        for (byte[] b : encoded) {
+            out.write(b);
+        }
+    }
+
+    private int string(String s) {
+        if (s == null) {
+            return NO_STRING;
+        }
+        Integer id = strings.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.put(s, id);
+        }
+        return id;
+    }
+
+    private static String codecClassName(ValueType type, TypeCodec<?> codec)
+            throws CatalogException {
+        if (codec instanceof LazyTypeCodec) {
+            return ((LazyTypeCodec<?>) codec).getCodecClassName();
+        }
+        Class<?> codecClass = codec.getClass();
+        boolean instantiable = Modifier.isPublic(codecClass.getModifiers())
+                && !Modifier.isAbstract(codecClass.getModifiers())
+                && !codecClass.isAnonymousClass()
+                && !codecClass.isLocalClass()
+                && !codecClass.isSynthetic()
+                && (!codecClass.isMemberClass()
+                || Modifier.isStatic(codecClass.getModifiers()));
+        if (instantiable) {
+            try {
+                instantiable = Modifier.isPublic(
+                        codecClass.getConstructor().getModifiers());
+            } catch (NoSuchMethodException ex) {
+                instantiable = false;
+            }
+        }
+        if (!instantiable) {
+            throw new CatalogException(String.format("Codec '%s' of value "
+                    + "type '%s' cannot be referenced by class name, codecs "
+                    + "must be public classes with a public no-arg constructor",
+                    codecClass.getName(), type.toString()));
+        }
+        return codecClass.getName();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.serialization.DomainSerializationException;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+
+/**
+ * Codec referenced by class name, instantiated with its public no-arg
+ * constructor on first use.
+ *
+ * @author steve_siebert
+ * @param <T> serializable domain type
+ */
+public final class LazyTypeCodec<T extends TypeInstance>
+        implements TypeCodec<T> {
+
+    private final String codecClassName;
+    private final ClassLoader classLoader;
+    private volatile TypeCodec<T> codec;
+
+    public LazyTypeCodec(String codecClassName, ClassLoader classLoader) {
+        this.codecClassName = codecClassName;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Class name of the codec implementation.
+     *
+     * @return codec class name
+     */
+    public String getCodecClassName() {
+        return codecClassName;
+    }
+
+    /**
+     * Returns true if the codec has been instantiated.
+     *
+     * @return true if instantiated
+     */
+    public boolean isLoaded() {
+        return codec != null;
+    }
+
+    @Override
+    public boolean supports(String namespace, String version, String type,
+            SerializationFormat format) {
+        return codec().supports(namespace, version, type, format);
+    }
+
+    @Override
+    public boolean supports(TypeKey key, SerializationFormat format) {
+        return codec().supports(key, format);
+    }
+
+    @Override
+    public void serialize(WritableByteChannel out, T domainType,
+            SerializationFormat format)
+            throws DomainSerializationException, IOException {
+        codec().serialize(out, domainType, format);
+    }
+
+    @Override
+    public T deserialize(ReadableByteChannel in, SerializationFormat format)
+            throws DomainSerializationException, IOException {
+        return codec().deserialize(in, format);
+    }
+
+    /**
+     * Returns the codec, instantiating it if this is the first use.
+     *
+     * @return codec
+     * @throws DomainSerializationException if the codec could not be
+     * instantiated
+     */
+    @SuppressWarnings("unchecked")
+    private TypeCodec<T> codec() {
+        TypeCodec<T> c = codec;
+        if (c == null) {
+            synchronized (this) {
+                c = codec;
+                if (c == null) {
+                    try {
+                        c = (TypeCodec<T>) Class
+                                .forName(codecClassName, true, classLoader)
+                                .asSubclass(TypeCodec.class)
+                                .getConstructor()
+                                .newInstance();
+                    } catch (ReflectiveOperationException
+                            | ClassCastException | LinkageError ex) {
+                        throw new DomainSerializationException(String.format(
+                                "Unable to instantiate codec class '%s' using "
+                                + "no-arg constructor", codecClassName), ex);
+                    }
+                    codec = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return codecClassName;
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.DomainRegistry;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.DuplicateDomainException;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.spi.model.DomainModelProvider;
+import org.geoint.acetate.spi.model.TypeResolver;
+import static org.geoint.acetate.model.catalog.CatalogFormat.*;
+
+/**
+ * Domain model provider backed by a memory-mapped catalog file.
+ * <p>
+ * Types are materialized from the mapped catalog the first time they are
+ * resolved, along with the types they reference, and are then retained. Type
+ * lookups use the hash index of the catalog, so heap use grows with the types
+ * a process actually uses rather than the size of the catalog, and the pages
+ * of the catalog are shared, through the OS page cache, by every process
+ * mapping the same file.
+ * <p>
+ * {@link #getDomainModels()} materializes every model of the catalog;
+ * {@link #registerLazily(DomainRegistry)} defers materializing each model
+ * until it is first resolved from the registry.
+ * <p>
+ * Instances are thread-safe. Each type is materialized as a single canonical
+ * instance, even when first resolved concurrently.
+ *
+ * @see CatalogWriter
+ * @author steve_siebert
+ */
+public final class MappedCatalogModelProvider
+        implements DomainModelProvider, TypeResolver {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(MappedCatalogModelProvider.class.getName());
+
+    private final ByteBuffer buf;
+    private final CatalogLayout layout;
+    private final TypeResolver external;
+    private final ClassLoader codecClassLoader;
+    //namespace, version, description of each model
+    private final String[][] models;
+    //first (inclusive) and end (exclusive) model types entry of each model
+    private final int[][] modelTypeRanges;
+    private final AtomicReferenceArray<String> strings;
+    private final AtomicReferenceArray<DomainType> types;
+    private final AtomicReferenceArray<DomainModel> domainModels;
+    private final AtomicInteger materialized = new AtomicInteger();
+
+    private MappedCatalogModelProvider(ByteBuffer buf, TypeResolver external,
+            ClassLoader codecClassLoader) throws CatalogException {
+        this.buf = buf;
+        this.external = external;
+        this.codecClassLoader = codecClassLoader;
+        try {
+            this.layout = CatalogLayout.of(buf);
+            this.strings = new AtomicReferenceArray<>(layout.stringCount);
+            this.types = new AtomicReferenceArray<>(layout.typeCount);
+            this.domainModels = new AtomicReferenceArray<>(layout.modelCount);
+            this.models = new String[layout.modelCount][];
+            this.modelTypeRanges = new int[layout.modelCount][];
+            for (int i = 0; i < layout.modelCount; i++) {
+                int m = layout.models + i * MODEL_BYTES;
+                models[i] = new String[]{string(buf.getInt(m)),
+                    string(buf.getInt(m + Integer.BYTES)),
+                    string(buf.getInt(m + 2 * Integer.BYTES))};
+                int first = buf.getInt(m + 3 * Integer.BYTES);
+                int end = buf.getInt(m + 4 * Integer.BYTES);
+                if (first < 0 || end < first || end > layout.typeCount) {
+                    throw new CatalogException(String.format("Invalid type "
+                            + "range of catalog model %d", i));
+                }
+                modelTypeRanges[i] = new int[]{first, end};
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new CatalogException("Catalog is truncated or corrupt", ex);
+        }
+    }
+
+    /**
+     * Map a catalog file, loading codecs from the thread context classloader.
+     *
+     * @param catalog catalog file
+     * @param external resolves types referenced by, but not defined in, the
+     * catalog
+     * @return mapped catalog provider
+     * @throws IOException if the catalog could not be mapped
+     * @throws CatalogException if the file is not a valid catalog
+     */
+    public static MappedCatalogModelProvider open(Path catalog,
+            TypeResolver external) throws IOException, CatalogException {
+        return open(catalog, external,
+                Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Map a catalog file.
+     *
+     * @param catalog catalog file
+     * @param external resolves types referenced by, but not defined in, the
+     * catalog
+     * @param codecClassLoader classloader used to load codec classes
+     * @return mapped catalog provider
+     * @throws IOException if the catalog could not be mapped
+     * @throws CatalogException if the file is not a valid catalog
+     */
+    public static MappedCatalogModelProvider open(Path catalog,
+            TypeResolver external, ClassLoader codecClassLoader)
+            throws IOException, CatalogException {
+        //the mapping remains valid after the channel is closed
+        try (FileChannel channel
+                = FileChannel.open(catalog, StandardOpenOption.READ)) {
+            return new MappedCatalogModelProvider(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                            channel.size()),
+                    external, codecClassLoader);
+        }
+    }
+
+    /**
+     * Number of types defined by the catalog.
+     *
+     * @return catalog type count
+     */
+    public int getTypeCount() {
+        return layout.typeCount;
+    }
+
+    /**
+     * Number of catalog types which have been materialized.
+     *
+     * @return materialized type count
+     */
+    public int getMaterializedTypeCount() {
+        return materialized.get();
+    }
+
+    /**
+     * Returns all models of the catalog, materializing all catalog types.
+     *
+     * @return catalog models
+     * @throws IllegalStateException if a model could not be materialized
+     */
+    @Override
+    public Set<DomainModel> getDomainModels() {
+        Set<DomainModel> result = new LinkedHashSet<>();
+        for (int i = 0; i < models.length; i++) {
+            try {
+                result.add(model(i));
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Returns the catalog model, materializing all its types.
+     *
+     * @param namespace domain namespace
+     * @param version domain version
+     * @return domain model, if defined by the catalog
+     * @throws InvalidModelException if the model could not be materialized
+     */
+    public Optional<DomainModel> findModel(String namespace, String version)
+            throws InvalidModelException {
+        for (int i = 0; i < models.length; i++) {
+            if (models[i][0].equals(namespace) && models[i][1].equals(version)) {
+                return Optional.of(model(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Lazily registers each catalog model with the registry; each model is
+     * materialized when it is first resolved from the registry.
+     *
+     * @param registry registry
+     * @throws DuplicateDomainException if a catalog model is already
+     * registered, models preceding it in the catalog remain registered
+     * @see DomainRegistry#register(String, String, java.util.function.Supplier)
+     */
+    public void registerLazily(DomainRegistry registry)
+            throws DuplicateDomainException {
+        for (int i = 0; i < models.length; i++) {
+            final int model = i;
+            registry.register(models[i][0], models[i][1], () -> {
+                try {
+                    return model(model);
+                } catch (InvalidModelException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the catalog type, materializing it if required.
+     *
+     * @param namespace type namespace
+     * @param version type version
+     * @param typeName type name
+     * @return catalog type, if defined by the catalog
+     * @throws InvalidModelException if the type could not be materialized
+     */
+    public Optional<DomainType> findType(String namespace, String version,
+            String typeName) throws InvalidModelException {
+        int type = indexOf(namespace, version, typeName);
+        return (type == NO_TYPE) ? Optional.empty() : Optional.of(type(type));
+    }
+
+    /**
+     * Resolves a catalog type, types which could not be materialized are
+     * logged and not resolved.
+     */
+    @Override
+    public Optional<DomainType> resolve(String namespace, String version,
+            String typeName) {
+        try {
+            return findType(namespace, version, typeName);
+        } catch (InvalidModelException ex) {
+            LOGGER.log(Level.WARNING, String.format("Unable to materialize "
+                    + "catalog type '%s.%s-%s'", namespace, typeName, version),
+                    ex);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<DomainType> resolve(TypeKey key) {
+        return resolve(key.getNamespace(), key.getVersion(), key.getName());
+    }
+
+    private DomainModel model(int model) throws InvalidModelException {
+        DomainModel m = domainModels.get(model);
+        if (m != null) {
+            return m;
+        }
+        final int[] range = modelTypeRanges[model];
+        List<DomainType> modelTypes = new ArrayList<>(range[1] - range[0]);
+        try {
+            for (int i = range[0]; i < range[1]; i++) {
+                modelTypes.add(type(layout.modelType(buf, i)));
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new CatalogException("Catalog is truncated or corrupt", ex);
+        }
+        m = DomainModel.newInstance(models[model][0], models[model][1],
+                models[model][2], modelTypes);
+        return domainModels.compareAndSet(model, null, m)
+                ? m : domainModels.get(model);
+    }
+
+    /**
+     * Returns the materialized type, first materializing any unmaterialized
+     * catalog types it references.
+     * <p>
+     * Referenced types are materialized depth-first using an explicit stack,
+     * so deep reference chains do not exhaust the thread stack.
+     */
+    private DomainType type(int type) throws InvalidModelException {
+        DomainType t = types.get(type);
+        if (t != null) {
+            return t;
+        }
+        try {
+            Deque<Integer> pending = new ArrayDeque<>();
+            pending.push(type);
+            while (!pending.isEmpty()) {
+                int next = pending.peek();
+                if (types.get(next) != null) {
+                    pending.pop();
+                    continue;
+                }
+                int dependency = unmaterializedDependency(next);
+                if (dependency == NO_TYPE) {
+                    if (types.compareAndSet(next, null, materialize(next))) {
+                        materialized.incrementAndGet();
+                    }
+                    pending.pop();
+                } else if (pending.contains(dependency)) {
+                    throw new CatalogException("Catalog types reference each "
+                            + "other in a cycle");
+                } else {
+                    pending.push(dependency);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException ex) {
+            throw new CatalogException("Catalog is truncated or corrupt", ex);
+        }
+        return types.get(type);
+    }
+
+    private int unmaterializedDependency(int type) throws CatalogException {
+        for (TypeKey key : reader(type).readReferences()) {
+            int referenced = indexOf(key.getNamespace(), key.getVersion(),
+                    key.getName());
+            if (referenced != NO_TYPE && types.get(referenced) == null) {
+                return referenced;
+            }
+        }
+        return NO_TYPE;
+    }
+
+    private DomainType materialize(int type) throws InvalidModelException {
+        TypeRecordReader reader = reader(type);
+        String[] model = models[reader.peekModel()];
+        return reader.read(model[0], model[1], (ns, v, n) -> {
+            int referenced = indexOf(ns, v, n);
+            return (referenced != NO_TYPE)
+                    ? types.get(referenced)
+                    : external.resolve(ns, v, n).orElse(null);
+        });
+    }
+
+    private TypeRecordReader reader(int type) {
+        ByteBuffer record = buf.duplicate();
+        record.position(layout.record(buf, type));
+        return new TypeRecordReader(record, this::string, codecClassLoader);
+    }
+
+    /**
+     * Probes the catalog type index.
+     *
+     * @return type index, or {@link CatalogFormat#NO_TYPE} if not in the
+     * catalog
+     */
+    private int indexOf(String namespace, String version, String typeName) {
+        final int hash = hash(namespace, version, typeName);
+        final int mask = layout.slotCount - 1;
+        int slot = hash & mask;
+        for (int probes = 0; probes < layout.slotCount; probes++) {
+            int entry = layout.slots + slot * 2 * Integer.BYTES;
+            int type = buf.getInt(entry + Integer.BYTES);
+            if (type == NO_TYPE) {
+                return NO_TYPE;
+            }
+            if (buf.getInt(entry) == hash) {
+                int record = layout.record(buf, type);
+                String[] model = models[buf.getInt(record + 1)];
+                if (model[0].equals(namespace) && model[1].equals(version)
+                        && typeName.equals(
+                                string(buf.getInt(record + 1 + Integer.BYTES)))) {
+                    return type;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_TYPE;
+    }
+
+    private String string(int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+        String s = strings.get(id);
+        if (s == null) {
+            s = layout.string(buf, id);
+            strings.lazySet(id, s);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.NamedMapRef;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceOperation;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.model.UnknownTypeException;
+import org.geoint.acetate.model.ValueType;
+import static org.geoint.acetate.model.catalog.CatalogFormat.*;
+
+/**
+ * Reads type records from a catalog buffer.
+ * <p>
+ * The reader reads from the current position of the buffer, which is
+ * advanced past the record.
+ *
+ * @see CatalogFormat
+ * @author steve_siebert
+ */
+final class TypeRecordReader {
+
+    /**
+     * Resolves the types referenced by a type record.
+     */
+    @FunctionalInterface
+    interface TypeLookup {
+
+        DomainType find(String namespace, String version, String name)
+                throws InvalidModelException;
+    }
+
+    private final ByteBuffer buf;
+    private final IntFunction<String> strings;
+    private final ClassLoader codecClassLoader;
+
+    /**
+     *
+     * @param buf catalog buffer, positioned at a type record
+     * @param strings resolves string ids
+     * @param codecClassLoader classloader for value type codecs
+     */
+    TypeRecordReader(ByteBuffer buf, IntFunction<String> strings,
+            ClassLoader codecClassLoader) {
+        this.buf = buf;
+        this.strings = strings;
+        this.codecClassLoader = codecClassLoader;
+    }
+
+    /**
+     * Index of the model declaring the type of the record at the current
+     * position, without advancing the buffer.
+     *
+     * @return model index
+     */
+    int peekModel() {
+        return buf.getInt(buf.position() + 1);
+    }
+
+    /**
+     * Reads the type record.
+     *
+     * @param namespace namespace of the declaring model
+     * @param version version of the declaring model
+     * @param lookup resolves referenced types
+     * @return type
+     * @throws InvalidModelException if the record is invalid or a referenced
+     * type could not be resolved
+     */
+    DomainType read(String namespace, String version, TypeLookup lookup)
+            throws InvalidModelException {
+        byte kind = buf.get();
+        buf.getInt(); //model
+        String name = string();
+        String desc = string();
+        switch (kind) {
+            case KIND_VALUE:
+                return new ValueType(namespace, version, name, desc,
+                        new LazyTypeCodec<>(string(), codecClassLoader),
+                        new LazyTypeCodec<>(string(), codecClassLoader));
+            case KIND_EVENT:
+                return new EventType(namespace, version, name, desc,
+                        readRefs(lookup));
+            case KIND_RESOURCE:
+                Collection<NamedRef> composites = readRefs(lookup);
+                List<NamedTypeRef<ResourceType>> links = new ArrayList<>();
+                for (NamedRef link : readRefs(lookup)) {
+                    links.add(typeRef(link, ResourceType.class));
+                }
+                int opCount = buf.getInt();
+                List<ResourceOperation> ops = new ArrayList<>(opCount);
+                for (int i = 0; i < opCount; i++) {
+                    ops.add(readOperation(namespace, version, name, lookup));
+                }
+                return new ResourceType(namespace, version, name, desc,
+                        composites, links, ops);
+            default:
+                throw new CatalogException(String.format("Unknown type "
+                        + "record kind %d for type '%s'", kind, name));
+        }
+    }
+
+    /**
+     * Reads the keys of the types referenced by the type record, without
+     * creating the type.
+     *
+     * @return referenced type keys, may contain duplicates
+     * @throws CatalogException if the record is invalid
+     */
+    List<TypeKey> readReferences() throws CatalogException {
+        List<TypeKey> keys = new ArrayList<>();
+        byte kind = buf.get();
+        buf.position(buf.position() + 3 * Integer.BYTES); //model, name, desc
+        switch (kind) {
+            case KIND_VALUE:
+                break;
+            case KIND_EVENT:
+                skipRefs(keys);
+                break;
+            case KIND_RESOURCE:
+                skipRefs(keys);
+                skipRefs(keys);
+                int opCount = buf.getInt();
+                for (int i = 0; i < opCount; i++) {
+                    buf.position(buf.position() + 2 * Integer.BYTES);
+                    byte flags = buf.get();
+                    skipRefs(keys);
+                    if ((flags & OP_RETURNS_EVENT) != 0) {
+                        skipRef(keys);
+                    }
+                }
+                break;
+            default:
+                throw new CatalogException(String.format("Unknown type "
+                        + "record kind %d", kind));
+        }
+        return keys;
+    }
+
+    private void skipRefs(List<TypeKey> keys) throws CatalogException {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            skipRef(keys);
+        }
+    }
+
+    private void skipRef(List<TypeKey> keys) throws CatalogException {
+        byte kind = buf.get();
+        buf.position(buf.position() + 2 * Integer.BYTES); //name, desc
+        switch (kind) {
+            case REF_TYPE:
+                keys.add(TypeKey.of(string(), string(), string()));
+                buf.get(); //collection
+                break;
+            case REF_MAP:
+                skipRef(keys);
+                skipRef(keys);
+                break;
+            default:
+                throw new CatalogException(String.format("Unknown reference "
+                        + "kind %d", kind));
+        }
+    }
+
+    private ResourceOperation readOperation(String namespace, String version,
+            String resourceName, TypeLookup lookup)
+            throws InvalidModelException {
+        String name = string();
+        String desc = string();
+        byte flags = buf.get();
+        List<NamedTypeRef> params = new ArrayList<>();
+        for (NamedRef p : readRefs(lookup)) {
+            params.add(typeRef(p, DomainType.class));
+        }
+        NamedTypeRef<EventType> returns = null;
+        if ((flags & OP_RETURNS_EVENT) != 0) {
+            returns = typeRef(readRef(lookup), EventType.class);
+        }
+        return new ResourceOperation(namespace, version, resourceName, name,
+                desc, (flags & OP_IDEMPOTENT) != 0, (flags & OP_SAFE) != 0,
+                params, returns);
+    }
+
+    private List<NamedRef> readRefs(TypeLookup lookup)
+            throws InvalidModelException {
+        int count = buf.getInt();
+        List<NamedRef> refs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            refs.add(readRef(lookup));
+        }
+        return refs;
+    }
+
+    private NamedRef readRef(TypeLookup lookup) throws InvalidModelException {
+        byte kind = buf.get();
+        String name = string();
+        String desc = string();
+        switch (kind) {
+            case REF_TYPE:
+                String ns = string();
+                String v = string();
+                String typeName = string();
+                DomainType type = lookup.find(ns, v, typeName);
+                if (type == null) {
+                    throw new UnknownTypeException(ns, v, typeName);
+                }
+                return new NamedTypeRef<>(type, name, desc, buf.get() != 0);
+            case REF_MAP:
+                NamedTypeRef<DomainType> key
+                        = typeRef(readRef(lookup), DomainType.class);
+                return new NamedMapRef<>(name, desc, key, readRef(lookup));
+            default:
+                throw new CatalogException(String.format("Unknown reference "
+                        + "kind %d for reference '%s'", kind, name));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends DomainType> NamedTypeRef<T> typeRef(NamedRef ref,
+            Class<T> expected) throws CatalogException {
+        if (!(ref instanceof NamedTypeRef)
+                || !expected.isInstance(
+                        ((NamedTypeRef<?>) ref).getReferencedType())) {
+            throw new CatalogException(String.format("Reference '%s' must "
+                    + "reference a %s", ref.getName(),
+                    expected.getSimpleName()));
+        }
+        return (NamedTypeRef<T>) ref;
+    }
+
+    private String string() {
+        return strings.apply(buf.getInt());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Thrown by a {@link BufferSerializer} if the output buffer has insufficient
+ * space remaining, or by a {@link BufferDeserializer} if the input buffer does
+ * not contain the complete serialized form.
+ * <p>
+ * The position of the buffer is not changed, so the operation may be retried
+ * with a buffer of at least the {@link #getRequiredCapacity() required
+ * capacity}.
+ *
+ * @author steve_siebert
+ */
+public class BufferCapacityException extends DomainSerializationException {
+
+    private final int requiredCapacity;
+
+    /**
+     *
+     * @param requiredCapacity number of bytes required, from the buffer
+     * position, to complete the operation
+     * @param available number of bytes remaining in the buffer
+     */
+    public BufferCapacityException(int requiredCapacity, int available) {
+        super(String.format("Buffer operation requires %d bytes, %d bytes "
+                + "remaining.", requiredCapacity, available));
+        this.requiredCapacity = requiredCapacity;
+    }
+
+    /**
+     * Number of bytes required, from the position of the buffer, to complete
+     * the operation.
+     * <p>
+     * If the complete size could not be determined from the available bytes
+     * (for example, the length of a record could not be read) this is a lower
+     * bound, and a retry may require more.
+     *
+     * @return number of bytes required
+     */
+    public int getRequiredCapacity() {
+        return requiredCapacity;
+    }
+
+    /**
+     * Check that the buffer has the required number of bytes remaining.
+     *
+     * @param buffer buffer
+     * @param required number of bytes required
+     * @throws BufferCapacityException if fewer bytes remain
+     */
+    public static void require(ByteBuffer buffer, int required)
+            throws BufferCapacityException {
+        if (buffer.remaining() < required) {
+            throw new BufferCapacityException(required, buffer.remaining());
+        }
+    }
+}
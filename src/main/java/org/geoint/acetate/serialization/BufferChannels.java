@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.geoint.acetate.TypeInstance;
+
+/**
+ * Adapters between the channel-oriented ({@link TypeSerializer},
+ * {@link TypeDeserializer}) and buffer-oriented ({@link BufferSerializer},
+ * {@link BufferDeserializer}) serialization interfaces.
+ * <p>
+ * Adapters from the buffer-oriented interfaces allocate a buffer for each
+ * call, or borrow one from a {@link BufferPool}, growing it as reported by a
+ * {@link BufferCapacityException}; callers which manage their own buffers
+ * should use the buffer-oriented interfaces directly.
+ *
+ * @author steve_siebert
+ */
+public final class BufferChannels {
+
+    /**
+     * Default initial size of the buffers allocated by the adapters.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 512;
+
+    private BufferChannels() {
+    }
+
+    /**
+     * Adapts a buffer serializer to the channel serializer interface.
+     *
+     * @param <T> instance type
+     * @param serializer buffer serializer
+     * @param initialCapacity initial size of the serialization buffer
+     * @return channel serializer
+     */
+    public static <T extends TypeInstance> TypeSerializer<T> serializer(
+            BufferSerializer<T> serializer, int initialCapacity) {
+        return (out, instance, format) -> {
+            ByteBuffer buffer = ByteBuffer.allocate(initialCapacity);
+            while (true) {
+                try {
+                    serializer.serialize(buffer, instance, format);
+                    break;
+                } catch (BufferCapacityException ex) {
+                    buffer = ByteBuffer.allocate(grow(buffer, ex));
+                }
+            }
+            buffer.flip();
+            write(out, buffer);
+        };
+    }
+
+    public static <T extends TypeInstance> TypeSerializer<T> serializer(
+            BufferSerializer<T> serializer) {
+        return serializer(serializer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Adapts a buffer serializer to the channel serializer interface,
+     * serializing into direct buffers borrowed from the pool.
+     *
+     * @param <T> instance type
+     * @param serializer buffer serializer
+     * @param pool buffer pool
+     * @param initialCapacity initial size of the serialization buffer
+     * @return channel serializer
+     */
+    public static <T extends TypeInstance> TypeSerializer<T> serializer(
+            BufferSerializer<T> serializer, BufferPool pool,
+            int initialCapacity) {
+        return (out, instance, format) -> {
+            int size = initialCapacity;
+            while (true) {
+                try (BufferPool.PooledBuffer pooled = pool.acquire(size)) {
+                    ByteBuffer buffer = pooled.buffer();
+                    try {
+                        serializer.serialize(buffer, instance, format);
+                    } catch (BufferCapacityException ex) {
+                        size = grow(buffer, ex);
+                        continue;
+                    }
+                    buffer.flip();
+                    write(out, buffer);
+                    return;
+                }
+            }
+        };
+    }
+
+    /**
+     * Adapts a buffer deserializer to the channel deserializer interface.
+     * <p>
+     * Only the bytes reported as required by the deserializer are read from
+     * the channel, so consecutive values may be read from one channel. The
+     * channel must be in blocking mode.
+     *
+     * @param <T> instance type
+     * @param deserializer buffer deserializer
+     * @param initialCapacity initial size of the deserialization buffer
+     * @return channel deserializer
+     */
+    public static <T extends TypeInstance> TypeDeserializer<T> deserializer(
+            BufferDeserializer<T> deserializer, int initialCapacity) {
+        return (in, format) -> {
+            ByteBuffer buffer = ByteBuffer.allocate(initialCapacity);
+            buffer.limit(0); //nothing read
+            while (true) {
+                try {
+                    return deserializer.deserialize(buffer, format);
+                } catch (BufferCapacityException ex) {
+                    final int available = buffer.remaining();
+                    final int required = ex.getRequiredCapacity();
+                    if (required <= available) {
+                        throw new DomainSerializationException(String.format(
+                                "Deserializer requested %d bytes with %d bytes "
+                                + "available.", required, available), ex);
+                    }
+                    if (required > buffer.capacity()) {
+                        ByteBuffer grown = ByteBuffer.allocate(grow(buffer, ex));
+                        grown.put(buffer).flip();
+                        buffer = grown;
+                    }
+                    buffer.limit(required).position(available);
+                    while (buffer.hasRemaining()) {
+                        if (in.read(buffer) == -1) {
+                            throw new DomainSerializationException(
+                                    String.format("Channel ended after %d of "
+                                            + "%d required bytes.",
+                                            buffer.position(), required), ex);
+                        }
+                    }
+                    buffer.flip();
+                }
+            }
+        };
+    }
+
+    public static <T extends TypeInstance> TypeDeserializer<T> deserializer(
+            BufferDeserializer<T> deserializer) {
+        return deserializer(deserializer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Adapts a channel serializer to the buffer serializer interface.
+     * <p>
+     * The instance is serialized to a temporary array before being copied to
+     * the buffer.
+     *
+     * @param <T> instance type
+     * @param serializer channel serializer
+     * @return buffer serializer
+     */
+    public static <T extends TypeInstance> BufferSerializer<T> bufferSerializer(
+            TypeSerializer<T> serializer) {
+        return (out, instance, format) -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                serializer.serialize(Channels.newChannel(bytes), instance,
+                        format);
+            } catch (IOException ex) {
+                throw new DomainSerializationException(format,
+                        instance.getClass(), ex);
+            }
+            BufferCapacityException.require(out, bytes.size());
+            out.put(bytes.toByteArray());
+            return bytes.size();
+        };
+    }
+
+    /**
+     * Adapts a channel deserializer to the buffer deserializer interface.
+     * <p>
+     * The buffer position is advanced by the number of bytes read by the
+     * deserializer. Channel deserializers can not report the number of bytes
+     * they require, so an incomplete serialized form fails as reported by
+     * the deserializer rather than with a {@link BufferCapacityException}.
+     *
+     * @param <T> instance type
+     * @param deserializer channel deserializer
+     * @return buffer deserializer
+     */
+    public static <T extends TypeInstance> BufferDeserializer<T> bufferDeserializer(
+            TypeDeserializer<T> deserializer) {
+        return (in, format) -> {
+            ByteBuffer view = in.duplicate();
+            try {
+                T value = deserializer.deserialize(new BufferReadChannel(view),
+                        format);
+                in.position(view.position());
+                return value;
+            } catch (IOException ex) {
+                throw new DomainSerializationException(ex);
+            }
+        };
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer to the channel.
+     *
+     * @param out channel, in blocking mode
+     * @param buffer bytes to write
+     * @return number of bytes written
+     * @throws IOException if thrown by the channel
+     */
+    public static int write(WritableByteChannel out, ByteBuffer buffer)
+            throws IOException {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return length;
+    }
+
+    private static int grow(ByteBuffer buffer, BufferCapacityException ex)
+            throws DomainSerializationException {
+        final int required = ex.getRequiredCapacity();
+        if (required <= buffer.remaining()) {
+            throw new DomainSerializationException(String.format("Serializer "
+                    + "requested %d bytes with %d bytes remaining.",
+                    required, buffer.remaining()), ex);
+        }
+        final int doubled = buffer.capacity() << 1;
+        return (doubled < 0) ? required : Math.max(required, doubled);
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer.
+     */
+    private static final class BufferReadChannel implements ReadableByteChannel {
+
+        private final ByteBuffer buffer;
+        private boolean open = true;
+
+        BufferReadChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(dst.remaining(), buffer.remaining());
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.nio.ByteBuffer;
+import org.geoint.acetate.TypeInstance;
+
+/**
+ * Deserializes a {@link SerializationFormat formatted} domain type from a
+ * caller-owned buffer.
+ * <p>
+ * Buffer-oriented counterpart of {@link TypeDeserializer}. Adapters between
+ * the two styles are provided by {@link BufferChannels}.
+ *
+ * @author steve_siebert
+ * @param <T> instance type
+ */
+@FunctionalInterface
+public interface BufferDeserializer<T extends TypeInstance> {
+
+    /**
+     * Deserializes the domain value starting at the position of the buffer.
+     * <p>
+     * On success the position of the buffer is advanced past the consumed
+     * bytes. If the buffer does not contain the complete serialized form the
+     * position is not changed and a {@link BufferCapacityException} reports
+     * the number of bytes required. Implementations must not read beyond the
+     * serialized form, so that consecutive values may be read from one
+     * buffer.
+     *
+     * @param in buffer containing the formatted data
+     * @param format serialization format
+     * @return object representation of the data value, may not return null
+     * @throws BufferCapacityException if the buffer does not contain the
+     * complete serialized form
+     * @throws DomainSerializationException if the value could not be read
+     */
+    T deserialize(ByteBuffer in, SerializationFormat format)
+            throws BufferCapacityException, DomainSerializationException;
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of direct byte buffers borrowed by serializers and deserializers.
+ * <p>
+ * Buffers are pooled in power of two size classes between the minimum and
+ * maximum buffer size. Each thread caches a few released buffers of each
+ * class up to {@value #LOCAL_MAX_BUFFER_SIZE} bytes, so a thread which
+ * repeatedly acquires and releases a small buffer does not contend with other
+ * threads; larger buffers, and buffers released beyond the thread cache, are
+ * returned to a bounded pool shared by all threads. Thread caches are never
+ * trimmed, so limiting them to the small classes bounds the memory pinned by
+ * each thread. Requests larger than the maximum buffer size are allocated,
+ * and released, without pooling.
+ * <p>
+ * Buffers are borrowed as a {@link PooledBuffer} which must be
+ * {@link PooledBuffer#close() closed} to return the buffer to the pool. In
+ * debug mode (enabled by the constructor or the {@value #DEBUG_PROPERTY}
+ * system property) the pool records where each buffer was acquired and logs
+ * a warning for each PooledBuffer garbage collected without being closed.
+ * <p>
+ * Instances of this class are thread-safe; PooledBuffer instances are not.
+ *
+ * @author steve_siebert
+ */
+public final class BufferPool {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(BufferPool.class.getName());
+
+    /**
+     * System property enabling leak tracking for pools created without an
+     * explicit debug flag.
+     */
+    public static final String DEBUG_PROPERTY
+            = "org.geoint.acetate.serialization.BufferPool.debug";
+    public static final int DEFAULT_MIN_BUFFER_SIZE = 512;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_SHARED_BUFFERS_PER_CLASS = 32;
+    static final int LOCAL_BUFFERS_PER_CLASS = 4;
+    static final int LOCAL_MAX_BUFFER_SIZE = 16 * 1024;
+
+    private final int minShift;
+    private final int maxBufferSize;
+    private final int sharedPerClass;
+    private final SizeClass[] classes;
+    private final int localClasses; //size classes cached by each thread
+    private final ThreadLocal<ByteBuffer[][]> local;
+    private final boolean debug;
+    private final ReferenceQueue<PooledBuffer> collected;
+    private final Set<Leak> tracked;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unpooled = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     *
+     * @param minBufferSize size of the smallest buffer class
+     * @param maxBufferSize size of the largest buffer class
+     * @param sharedBuffersPerClass maximum number of buffers of each class
+     * held by the shared pool
+     * @param debug true to track leaked buffers
+     * @throws IllegalArgumentException if the sizes are not positive powers
+     * of two, the maximum is less than the minimum, or the shared buffer count
+     * is negative
+     */
+    public BufferPool(int minBufferSize, int maxBufferSize,
+            int sharedBuffersPerClass, boolean debug)
+            throws IllegalArgumentException {
+        if (minBufferSize <= 0 || Integer.bitCount(minBufferSize) != 1
+                || maxBufferSize < minBufferSize
+                || Integer.bitCount(maxBufferSize) != 1) {
+            throw new IllegalArgumentException(String.format("Buffer pool "
+                    + "sizes must be powers of two, min %d max %d",
+                    minBufferSize, maxBufferSize));
+        }
+        if (sharedBuffersPerClass < 0) {
+            throw new IllegalArgumentException("Shared buffer count must not "
+                    + "be negative.");
+        }
+        this.minShift = Integer.numberOfTrailingZeros(minBufferSize);
+        this.maxBufferSize = maxBufferSize;
+        this.sharedPerClass = sharedBuffersPerClass;
+        this.classes = new SizeClass[Integer.numberOfTrailingZeros(maxBufferSize)
+                - minShift + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(minBufferSize << i);
+        }
+        this.localClasses = (minBufferSize > LOCAL_MAX_BUFFER_SIZE) ? 0
+                : sizeClass(Math.min(maxBufferSize, LOCAL_MAX_BUFFER_SIZE)) + 1;
+        this.local = ThreadLocal.withInitial(
+                () -> new ByteBuffer[localClasses][LOCAL_BUFFERS_PER_CLASS]);
+        this.debug = debug;
+        this.collected = debug ? new ReferenceQueue<>() : null;
+        this.tracked = debug ? ConcurrentHashMap.newKeySet() : null;
+    }
+
+    public BufferPool(int minBufferSize, int maxBufferSize) {
+        this(minBufferSize, maxBufferSize, DEFAULT_SHARED_BUFFERS_PER_CLASS,
+                Boolean.getBoolean(DEBUG_PROPERTY));
+    }
+
+    public BufferPool() {
+        this(DEFAULT_MIN_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE);
+    }
+
+    /**
+     * Borrow a cleared direct buffer with a capacity of at least the
+     * requested size.
+     *
+     * @param size minimum buffer capacity
+     * @return pooled buffer, which must be closed to return the buffer
+     * @throws IllegalArgumentException if size is negative
+     */
+    public PooledBuffer acquire(int size) throws IllegalArgumentException {
+        if (size < 0) {
+            throw new IllegalArgumentException("Buffer size must not be "
+                    + "negative.");
+        }
+        if (debug) {
+            checkLeaks();
+        }
+        if (size > maxBufferSize) {
+            unpooled.increment();
+            return track(new PooledBuffer(this,
+                    ByteBuffer.allocateDirect(size), -1));
+        }
+
+        final int c = sizeClass(size);
+        ByteBuffer buffer = (c < localClasses) ? pop(local.get()[c]) : null;
+        if (buffer != null) {
+            localHits.increment();
+        } else {
+            buffer = classes[c].poll();
+            if (buffer != null) {
+                sharedHits.increment();
+            } else {
+                misses.increment();
+                buffer = ByteBuffer.allocateDirect(classes[c].bufferSize);
+            }
+        }
+        buffer.clear();
+        return track(new PooledBuffer(this, buffer, c));
+    }
+
+    /**
+     * Number of acquisitions served from a thread cache.
+     *
+     * @return thread cache hits
+     */
+    public long getLocalHitCount() {
+        return localHits.sum();
+    }
+
+    /**
+     * Number of acquisitions served from the shared pool.
+     *
+     * @return shared pool hits
+     */
+    public long getSharedHitCount() {
+        return sharedHits.sum();
+    }
+
+    /**
+     * Number of acquisitions within the pooled sizes which required a new
+     * buffer to be allocated.
+     *
+     * @return pool misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of acquisitions larger than the maximum pooled size.
+     *
+     * @return unpooled allocations
+     */
+    public long getUnpooledCount() {
+        return unpooled.sum();
+    }
+
+    /**
+     * Ratio of pooled size acquisitions served without allocating.
+     *
+     * @return hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        final long hits = localHits.sum() + sharedHits.sum();
+        final long total = hits + misses.sum();
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Number of buffers held by the shared pool.
+     *
+     * @return shared pool buffer count
+     */
+    public int getSharedBufferCount() {
+        int count = 0;
+        for (SizeClass c : classes) {
+            count += c.count.get();
+        }
+        return count;
+    }
+
+    /**
+     * Check if leaked buffers are tracked.
+     *
+     * @return true if in debug mode
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Number of leaked buffers detected, only tracked in debug mode.
+     *
+     * @return leaked buffer count
+     */
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    /**
+     * Logs the buffers which have been garbage collected without being
+     * released since the last check.
+     * <p>
+     * Checks are made on each acquisition in debug mode; this method does
+     * nothing if the pool is not in debug mode.
+     *
+     * @return number of leaks detected by this check
+     */
+    public int checkLeaks() {
+        if (!debug) {
+            return 0;
+        }
+        int detected = 0;
+        Leak leak;
+        while ((leak = (Leak) collected.poll()) != null) {
+            if (tracked.remove(leak)) {
+                detected++;
+                leaks.increment();
+                LOGGER.log(Level.WARNING, String.format("Pooled buffer of %d "
+                        + "bytes was not released.", leak.capacity),
+                        leak.acquiredAt);
+            }
+        }
+        return detected;
+    }
+
+    /**
+     * Size class index for a buffer of the requested size.
+     */
+    int sizeClass(int size) {
+        if (size <= (1 << minShift)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - minShift;
+    }
+
+    private PooledBuffer track(PooledBuffer buffer) {
+        if (debug) {
+            buffer.leak = new Leak(buffer, collected);
+            tracked.add(buffer.leak);
+        }
+        return buffer;
+    }
+
+    private void release(PooledBuffer pooled) {
+        if (pooled.leak != null) {
+            tracked.remove(pooled.leak);
+            pooled.leak.clear();
+        }
+        if (pooled.sizeClass < 0) {
+            return; //unpooled
+        }
+        if (pooled.sizeClass >= localClasses
+                || !push(local.get()[pooled.sizeClass], pooled.buffer)) {
+            classes[pooled.sizeClass].offer(pooled.buffer, sharedPerClass);
+        }
+    }
+
+    private static ByteBuffer pop(ByteBuffer[] stack) {
+        for (int i = stack.length - 1; i >= 0; i--) {
+            ByteBuffer b = stack[i];
+            if (b != null) {
+                stack[i] = null;
+                return b;
+            }
+        }
+        return null;
+    }
+
+    private static boolean push(ByteBuffer[] stack, ByteBuffer buffer) {
+        for (int i = 0; i < stack.length; i++) {
+            if (stack[i] == null) {
+                stack[i] = buffer;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A direct buffer borrowed from a {@link BufferPool}.
+     * <p>
+     * The buffer must not be used after the PooledBuffer is closed.
+     */
+    public static final class PooledBuffer implements AutoCloseable {
+
+        private final BufferPool pool;
+        private final ByteBuffer buffer;
+        private final int sizeClass; //-1 if not pooled
+        private Leak leak; //debug only
+        private boolean released;
+
+        private PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass) {
+            this.pool = pool;
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+        }
+
+        /**
+         * The borrowed buffer.
+         *
+         * @return direct buffer
+         * @throws IllegalStateException if the buffer was released
+         */
+        public ByteBuffer buffer() throws IllegalStateException {
+            if (released) {
+                throw new IllegalStateException("Pooled buffer was released.");
+            }
+            return buffer;
+        }
+
+        /**
+         * Return the buffer to the pool.
+         *
+         * @throws IllegalStateException if the buffer was already released
+         */
+        @Override
+        public void close() throws IllegalStateException {
+            if (released) {
+                throw new IllegalStateException("Pooled buffer was already "
+                        + "released.");
+            }
+            released = true;
+            pool.release(this);
+        }
+    }
+
+    private static final class SizeClass {
+
+        private final int bufferSize;
+        private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        ByteBuffer poll() {
+            ByteBuffer b = buffers.poll();
+            if (b != null) {
+                count.decrementAndGet();
+            }
+            return b;
+        }
+
+        void offer(ByteBuffer buffer, int max) {
+            if (count.incrementAndGet() > max) {
+                count.decrementAndGet(); //full, let the buffer be collected
+                return;
+            }
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Records the acquisition of a buffer, enqueued if the PooledBuffer is
+     * collected before it was released.
+     */
+    private static final class Leak extends PhantomReference<PooledBuffer> {
+
+        private final Throwable acquiredAt;
+        private final int capacity;
+
+        Leak(PooledBuffer buffer, ReferenceQueue<PooledBuffer> queue) {
+            super(buffer, queue);
+            this.acquiredAt = new Throwable("Pooled buffer acquired");
+            this.capacity = buffer.buffer.capacity();
+        }
+    }
+}
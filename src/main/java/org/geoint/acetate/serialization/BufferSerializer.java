@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.nio.ByteBuffer;
+import org.geoint.acetate.TypeInstance;
+
+/**
+ * Serializes a {@link TypeInstance} into a caller-owned buffer.
+ * <p>
+ * Buffer-oriented counterpart of {@link TypeSerializer}, allowing callers to
+ * pool and reuse buffers and to batch channel writes. Adapters between the
+ * two styles are provided by {@link BufferChannels}.
+ *
+ * @author steve_siebert
+ * @param <T> domain value instance type
+ */
+@FunctionalInterface
+public interface BufferSerializer<T extends TypeInstance> {
+
+    /**
+     * Serializes the instance into the buffer, starting at the position of
+     * the buffer.
+     * <p>
+     * On success the position of the buffer is advanced past the written
+     * bytes. If the buffer has insufficient space remaining the position of
+     * the buffer is not changed (though bytes between the position and limit
+     * may have been overwritten).
+     *
+     * @param out buffer to write the serialized data
+     * @param domainType type instance, may not be null
+     * @param format serialized format
+     * @return number of bytes written
+     * @throws BufferCapacityException if the buffer has insufficient space
+     * remaining
+     * @throws DomainSerializationException if serialization failed
+     */
+    int serialize(ByteBuffer out, T domainType, SerializationFormat format)
+            throws BufferCapacityException, DomainSerializationException;
+}
@@ -15,10 +15,17 @@
  */
 package org.geoint.acetate.serialization;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
-import java.nio.charset.IllegalCharsetNameException;
-import java.nio.charset.UnsupportedCharsetException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Format utilities supporting character serialization formats.
@@ -27,6 +34,12 @@ import java.nio.charset.UnsupportedCharsetException;
  * {@link SerializationFormat} to override the default charset.
  * <p>
  * If no charset is specified, the JVM {@link Charset#defaultCharset} is used.
+ * <p>
+ * The charset of a format is resolved once and cached by the format.
+ * Encoders and decoders are cached per thread and reused, and UTF-8 is
+ * encoded directly without an encoder. Malformed input and unmappable
+ * characters are replaced, as by {@link Charset#encode(String)} and
+ * {@link Charset#decode(ByteBuffer)}.
  *
  * @author steve_siebert
  */
@@ -37,6 +50,11 @@ public class CharacterFormats {
      */
     public static final String FORMAT_PARAM_NAME = "charset";
 
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private static final ThreadLocal<Coders> CODERS
+            = ThreadLocal.withInitial(Coders::new);
+
     /**
      * Return the {@link Charset} defined by the asString parameters, or the
      * default JVM Charset.
@@ -45,13 +63,7 @@ public class CharacterFormats {
      * @return Charset defined by asString or JVM default
      */
     public static Charset ofOrDefault(SerializationFormat format) {
-        try {
-            return format.findParameter(FORMAT_PARAM_NAME)
-                    .map(Charset::forName)
-                    .orElse(Charset.defaultCharset());
-        } catch (IllegalCharsetNameException | UnsupportedCharsetException ex) {
-            return Charset.defaultCharset();
-        }
+        return format.charset();
     }
 
     /**
@@ -63,7 +75,54 @@ public class CharacterFormats {
      * @return byte buffer containing string content
      */
     public static ByteBuffer asByteBuffer(String str, SerializationFormat format) {
-        return ofOrDefault(format).encode(str);
+        final Charset charset = format.charset();
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            ByteBuffer buffer = ByteBuffer.allocate(utf8Length(str));
+            encodeUtf8(str, buffer);
+            buffer.flip();
+            return buffer;
+        }
+        try {
+            return CODERS.get().encoder(charset).encode(CharBuffer.wrap(str));
+        } catch (CharacterCodingException ex) {
+            //not thrown, coding errors are replaced
+            throw new DomainSerializationException(format, String.class, ex);
+        }
+    }
+
+    /**
+     * Encode the characters into the buffer.
+     * <p>
+     * If the buffer does not have sufficient space remaining for the encoded
+     * characters the position of the buffer is not changed.
+     *
+     * @param chars characters to encode
+     * @param out buffer to write to
+     * @param format character format
+     * @return number of bytes written
+     * @throws BufferOverflowException if the buffer has insufficient space
+     * remaining
+     */
+    public static int encode(CharSequence chars, ByteBuffer out,
+            SerializationFormat format) throws BufferOverflowException {
+        final int start = out.position();
+        final Charset charset = format.charset();
+        try {
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                encodeUtf8(chars, out);
+            } else {
+                CharsetEncoder encoder = CODERS.get().encoder(charset);
+                CharBuffer in = CharBuffer.wrap(chars);
+                if (encoder.encode(in, out, true).isOverflow()
+                        || encoder.flush(out).isOverflow()) {
+                    throw new BufferOverflowException();
+                }
+            }
+        } catch (BufferOverflowException ex) {
+            out.position(start);
+            throw ex;
+        }
+        return out.position() - start;
     }
 
     /**
@@ -74,7 +133,49 @@ public class CharacterFormats {
      * @return properly encoded string
      */
     public static String asString(ByteBuffer bytes, SerializationFormat format) {
-        return ofOrDefault(format).decode(bytes).toString();
+        final Charset charset = format.charset();
+        if (bytes.hasArray() && StandardCharsets.UTF_8.equals(charset)) {
+            final int length = bytes.remaining();
+            String str = new String(bytes.array(),
+                    bytes.arrayOffset() + bytes.position(), length, charset);
+            bytes.position(bytes.limit());
+            return str;
+        }
+        try {
+            return CODERS.get().decoder(charset).decode(bytes).toString();
+        } catch (CharacterCodingException ex) {
+            //not thrown, coding errors are replaced
+            throw new DomainSerializationException(format, String.class, ex);
+        }
+    }
+
+    /**
+     * Number of bytes required to encode the characters as UTF-8.
+     * <p>
+     * Unpaired surrogates are counted as a single (replacement) byte.
+     *
+     * @param chars characters
+     * @return UTF-8 encoded length
+     */
+    public static int utf8Length(CharSequence chars) {
+        final int length = chars.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            final char c = chars.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                bytes += 2; //4 bytes for the pair
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
     }
 
     /**
@@ -90,4 +191,77 @@ public class CharacterFormats {
         return SerializationFormat.GENERIC_TEXT_FORMAT.isCompatable(format)
                 || format.findParameter(FORMAT_PARAM_NAME).isPresent();
     }
+
+    /**
+     * Encodes the characters as UTF-8, replacing unpaired surrogates.
+     *
+     * @throws BufferOverflowException if the buffer has insufficient space,
+     * the buffer position is undefined
+     */
+    private static void encodeUtf8(CharSequence chars, ByteBuffer out)
+            throws BufferOverflowException {
+        final int length = chars.length();
+        int i = 0;
+        //ascii run
+        if (out.remaining() >= length) {
+            for (char c; i < length && (c = chars.charAt(i)) < 0x80; i++) {
+                out.put((byte) c);
+            }
+        }
+        for (; i < length; i++) {
+            final char c = chars.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, chars.charAt(++i));
+                    out.put((byte) (0xF0 | (cp >> 18)));
+                    out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    out.put((byte) (0x80 | (cp & 0x3F)));
+                } else {
+                    out.put(REPLACEMENT);
+                }
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Per-thread encoders and decoders, by charset.
+     */
+    private static final class Coders {
+
+        private final Map<Charset, CharsetEncoder> encoders = new HashMap<>(4);
+        private final Map<Charset, CharsetDecoder> decoders = new HashMap<>(4);
+
+        CharsetEncoder encoder(Charset charset) {
+            CharsetEncoder encoder = encoders.get(charset);
+            if (encoder == null) {
+                encoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                encoders.put(charset, encoder);
+            }
+            return encoder.reset();
+        }
+
+        CharsetDecoder decoder(Charset charset) {
+            CharsetDecoder decoder = decoders.get(charset);
+            if (decoder == null) {
+                decoder = charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                decoders.put(charset, decoder);
+            }
+            return decoder.reset();
+        }
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.spi.serialization.DomainCodecProvider;
+
+/**
+ * Selects the codec of a domain type for a serialization format.
+ * <p>
+ * Codecs are selected from the {@link DomainCodecProvider providers} of the
+ * registry, in the order they were provided (or discovered by the
+ * {@link ServiceLoader}); the first provider returning a codec wins. If no
+ * provider supplies a codec for a {@link ValueType}, the
+ * {@link ValueType#getDefaultCharacterCodec() default character codec} is
+ * selected for {@link CharacterFormats#isCharacterFormat character formats}
+ * and the {@link ValueType#getDefaultBinaryCodec() default binary codec} for
+ * any other format, if that codec {@link TypeCodec#supports(TypeKey,
+ * SerializationFormat) supports} the format.
+ * <p>
+ * The selection, including the absence of a codec, is memoized by type key
+ * and format, so repeated selection is a single hash lookup. The memo is
+ * bounded; once full, an arbitrary selection is evicted for each new one.
+ * <p>
+ * Instances of this class are thread-safe if the providers are thread-safe.
+ *
+ * @author steve_siebert
+ */
+public final class CodecRegistry {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(CodecRegistry.class.getName());
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final List<DomainCodecProvider> providers;
+    private final int maxEntries;
+    private final ConcurrentMap<CodecKey, Optional<TypeCodec>> selected;
+
+    /**
+     *
+     * @param providers codec providers, in order of precedence
+     * @param maxEntries maximum number of memoized selections
+     * @throws IllegalArgumentException if maxEntries is negative
+     */
+    public CodecRegistry(Collection<? extends DomainCodecProvider> providers,
+            int maxEntries) throws IllegalArgumentException {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("CodecRegistry max entries "
+                    + "must not be negative.");
+        }
+        this.providers = Collections.unmodifiableList(
+                new ArrayList<>(providers));
+        this.maxEntries = maxEntries;
+        this.selected = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+    }
+
+    public CodecRegistry(Collection<? extends DomainCodecProvider> providers) {
+        this(providers, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a registry from the {@link DomainCodecProvider providers}
+     * discovered by the {@link ServiceLoader} on the specified classpath.
+     *
+     * @param cl classloader
+     * @return codec registry
+     */
+    public static CodecRegistry load(ClassLoader cl) {
+        List<DomainCodecProvider> providers = new ArrayList<>();
+        ServiceLoader.load(DomainCodecProvider.class, cl)
+                .forEach(providers::add);
+        return new CodecRegistry(providers);
+    }
+
+    /**
+     * Create a registry from the {@link DomainCodecProvider providers}
+     * discovered by the {@link ServiceLoader} on the
+     * {@link Thread#getContextClassLoader() current thread context
+     * classloader}.
+     *
+     * @return codec registry
+     */
+    public static CodecRegistry load() {
+        return load(Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Codec providers of this registry, in order of precedence.
+     *
+     * @return codec providers
+     */
+    public List<DomainCodecProvider> getProviders() {
+        return providers;
+    }
+
+    /**
+     * Select the codec of the type for the format.
+     *
+     * @param type domain type
+     * @param format serialization format
+     * @return codec, if one supports the type and format
+     */
+    public Optional<TypeCodec> findCodec(DomainType type,
+            SerializationFormat format) {
+        CodecKey key = new CodecKey(type.getTypeKey(), format);
+        Optional<TypeCodec> codec = selected.get(key);
+        if (codec == null) {
+            codec = select(type, format);
+            if (maxEntries > 0) {
+                evict();
+                Optional<TypeCodec> existing = selected.putIfAbsent(key, codec);
+                if (existing != null) {
+                    codec = existing;
+                }
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * Makes room for a selection by removing arbitrary memoized selections
+     * while the memo is full.
+     */
+    private void evict() {
+        Iterator<CodecKey> keys = selected.keySet().iterator();
+        while (selected.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * Select the codec of the type for the format.
+     *
+     * @param type domain type
+     * @param format serialization format
+     * @return codec
+     * @throws UnsupportedFormatException if no codec supports the type and
+     * format
+     */
+    public TypeCodec getCodec(DomainType type, SerializationFormat format)
+            throws UnsupportedFormatException {
+        return findCodec(type, format)
+                .orElseThrow(() -> new UnsupportedFormatException(
+                        format.asContentType(),
+                        String.format("No codec supports type '%s' as '%s'.",
+                                type.toString(), format.asContentType())));
+    }
+
+    /**
+     * Clears the memoized codec selections.
+     */
+    public void invalidate() {
+        selected.clear();
+    }
+
+    /**
+     * Number of memoized codec selections.
+     *
+     * @return memoized selection count
+     */
+    public int size() {
+        return selected.size();
+    }
+
+    private Optional<TypeCodec> select(DomainType type,
+            SerializationFormat format) {
+        for (DomainCodecProvider provider : providers) {
+            try {
+                Optional<TypeCodec> codec = provider.getCodecs(type, format);
+                if (codec != null && codec.isPresent()) {
+                    return codec;
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, String.format("Codec provider '%s' "
+                        + "failed to provide a codec for type '%s' as '%s'.",
+                        provider.getClass().getName(), type.toString(),
+                        format.asContentType()), ex);
+            }
+        }
+
+        if (type instanceof ValueType) {
+            ValueType value = (ValueType) type;
+            TypeCodec codec = CharacterFormats.isCharacterFormat(format)
+                    ? value.getDefaultCharacterCodec()
+                    : value.getDefaultBinaryCodec();
+            if (codec != null && codec.supports(type.getTypeKey(), format)) {
+                return Optional.of(codec);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static final class CodecKey {
+
+        private final TypeKey type; //interned
+        private final SerializationFormat format;
+        private final int hash;
+
+        CodecKey(TypeKey type, SerializationFormat format) {
+            this.type = type;
+            this.format = format;
+            this.hash = 31 * type.hashCode() + format.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CodecKey)) {
+                return false;
+            }
+            final CodecKey other = (CodecKey) obj;
+            return this.type == other.type
+                    && Objects.equals(this.format, other.format);
+        }
+    }
+}
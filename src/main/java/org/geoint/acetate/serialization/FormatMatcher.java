@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Matches serialization formats against a precompiled set of supported
+ * formats.
+ * <p>
+ * A supported format matches a requested format if:
+ * <ul>
+ * <li>the categories are equal, or the supported category is
+ * {@link SerializationFormat#TYPE_WILDCARD a wildcard};</li>
+ * <li>the types are equal, or the supported type is a wildcard; and</li>
+ * <li>each parameter of the supported format is defined, with an equal
+ * value, by the requested format (the requested format may define additional
+ * parameters).</li>
+ * </ul>
+ * A wildcard category or type of the requested format (ie {@code text/*} or
+ * {@code *}{@code /*}) matches any supported format of the category.
+ * <p>
+ * Where more than one supported format matches, the most specific wins: an
+ * exact type over a type wildcard over a category wildcard, then the format
+ * defining the most parameters, then the format added first.
+ * <p>
+ * Supported formats are indexed by category and type, so the cost of a
+ * match depends only on the number of supported formats sharing the
+ * category and type of the requested format, not on the total number of
+ * supported formats.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> value associated with each supported format
+ */
+public final class FormatMatcher<T> {
+
+    private static final String WILDCARD = SerializationFormat.TYPE_WILDCARD;
+    private static final Comparator<Entry<?>> SPECIFICITY
+            = Comparator.<Entry<?>>comparingInt((e) -> wildcards(e.format))
+            .thenComparingInt((e) -> -e.format.getParameterCount())
+            .thenComparingInt((e) -> e.order);
+
+    //category -> type -> entries, most specific first
+    private final Map<String, Map<String, List<Entry<T>>>> index;
+    //category -> all entries of the category, most specific first
+    private final Map<String, List<Entry<T>>> categories;
+    private final List<Entry<T>> all;
+
+    private FormatMatcher(List<Entry<T>> entries) {
+        Map<String, Map<String, List<Entry<T>>>> idx = new HashMap<>();
+        Map<String, List<Entry<T>>> cats = new HashMap<>();
+        for (Entry<T> e : entries) {
+            idx.computeIfAbsent(e.format.getCategory(), (c) -> new HashMap<>())
+                    .computeIfAbsent(e.format.getType(), (t) -> new ArrayList<>())
+                    .add(e);
+            cats.computeIfAbsent(e.format.getCategory(), (c) -> new ArrayList<>())
+                    .add(e);
+        }
+        idx.values().forEach((types) -> types.values()
+                .forEach((l) -> l.sort(SPECIFICITY)));
+        cats.values().forEach((l) -> l.sort(SPECIFICITY));
+        List<Entry<T>> sorted = new ArrayList<>(entries);
+        sorted.sort(SPECIFICITY);
+
+        this.index = idx;
+        this.categories = cats;
+        this.all = sorted;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the value of the most specific supported format matching the
+     * requested format.
+     *
+     * @param format requested format
+     * @return value of the matching supported format, if any
+     */
+    public Optional<T> match(SerializationFormat format) {
+        final String category = format.getCategory();
+        final String type = format.getType();
+
+        if (WILDCARD.equals(category)) {
+            return first(all, format);
+        }
+        if (WILDCARD.equals(type)) {
+            Optional<T> value = first(categories.get(category), format);
+            return value.isPresent()
+                    ? value
+                    : first(categories.get(WILDCARD), format);
+        }
+
+        Map<String, List<Entry<T>>> types = index.get(category);
+        if (types != null) {
+            Optional<T> value = first(types.get(type), format);
+            if (!value.isPresent()) {
+                value = first(types.get(WILDCARD), format);
+            }
+            if (value.isPresent()) {
+                return value;
+            }
+        }
+        types = index.get(WILDCARD);
+        return (types == null)
+                ? Optional.empty()
+                : first(types.get(WILDCARD), format);
+    }
+
+    /**
+     * Check if any supported format matches the requested format.
+     *
+     * @param format requested format
+     * @return true if a supported format matches
+     */
+    public boolean matches(SerializationFormat format) {
+        return match(format).isPresent();
+    }
+
+    /**
+     * Number of supported formats.
+     *
+     * @return supported format count
+     */
+    public int size() {
+        return all.size();
+    }
+
+    /**
+     * Rank of the wildcards of a format: 0 for an exact type, 1 for a type
+     * wildcard, 2 for a category wildcard.
+     */
+    private static int wildcards(SerializationFormat format) {
+        if (WILDCARD.equals(format.getCategory())) {
+            return 2;
+        }
+        return WILDCARD.equals(format.getType()) ? 1 : 0;
+    }
+
+    private Optional<T> first(List<Entry<T>> entries,
+            SerializationFormat format) {
+        if (entries != null) {
+            for (Entry<T> e : entries) {
+                if (parametersMatch(e.format, format)) {
+                    return Optional.of(e.value);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Check if the supported format accepts the requested format, ignoring
+     * wildcards of the requested format.
+     *
+     * @param supported supported format
+     * @param format requested format
+     * @return true if the supported format accepts the requested format
+     */
+    static boolean accepts(SerializationFormat supported,
+            SerializationFormat format) {
+        return (WILDCARD.equals(supported.getCategory())
+                || supported.getCategory().equals(format.getCategory()))
+                && (WILDCARD.equals(supported.getType())
+                || supported.getType().equals(format.getType()))
+                && parametersMatch(supported, format);
+    }
+
+    private static boolean parametersMatch(SerializationFormat supported,
+            SerializationFormat format) {
+        if (supported.getParameterCount() == 0) {
+            return true;
+        }
+        if (supported.getParameterCount() > format.getParameterCount()) {
+            return false;
+        }
+        final boolean[] match = {true};
+        supported.forEachParameter((n, v) -> {
+            if (match[0]) {
+                match[0] = format.findParameter(n)
+                        .map(v::equals)
+                        .orElse(false);
+            }
+        });
+        return match[0];
+    }
+
+    private static final class Entry<T> {
+
+        private final SerializationFormat format;
+        private final T value;
+        private final int order;
+
+        Entry(SerializationFormat format, T value, int order) {
+            this.format = format;
+            this.value = value;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Collects the supported formats of a matcher.
+     *
+     * @param <T> value associated with each supported format
+     */
+    public static final class Builder<T> {
+
+        private final List<Entry<T>> entries = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add a supported format.
+         *
+         * @param format supported format
+         * @param value value returned when the format is matched
+         * @return this builder
+         * @throws NullPointerException if format or value are null
+         */
+        public Builder<T> add(SerializationFormat format, T value)
+                throws NullPointerException {
+            if (format == null || value == null) {
+                throw new NullPointerException("Supported format and value "
+                        + "are required.");
+            }
+            entries.add(new Entry<>(format, value, entries.size()));
+            return this;
+        }
+
+        public FormatMatcher<T> build() {
+            return new FormatMatcher<>(Collections.unmodifiableList(
+                    new ArrayList<>(entries)));
+        }
+    }
+}
@@ -15,19 +15,33 @@
  */
 package org.geoint.acetate.serialization;
 
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Describes a specific serialization format.
+ * <p>
+ * Formats parsed from a {@link #contentType(String) content type} are
+ * interned: parsing a previously parsed content type string is a single
+ * hash lookup which returns the same instance, and content types which
+ * differ only in case or whitespace share one canonical instance. The
+ * intern cache is bounded; once full, arbitrary content types are evicted to
+ * admit new ones, except the generic formats which remain canonical.
  *
  * @author steve_siebert
  */
@@ -36,6 +50,18 @@ public class SerializationFormat {
     private static final List<String> RFC_TYPES = Arrays.asList("application",
             "audio", "image", "message", "multipart", "text", "video");
 
+    /**
+     * Maximum number of interned content types.
+     */
+    static final int MAX_INTERNED = 256;
+    //must be initialized before the generic formats, which are parsed
+    //raw content type -> format
+    private static final ConcurrentMap<String, SerializationFormat> PARSED
+            = new ConcurrentHashMap<>();
+    //format -> canonical instance
+    private static final ConcurrentMap<SerializationFormat, SerializationFormat> CANONICAL
+            = new ConcurrentHashMap<>();
+
     /**
      * Generic binary RFC 1341 content type.
      */
@@ -82,57 +108,201 @@ public class SerializationFormat {
     private final String category;
     private final String type;
     private final Map<String, String> parameters;
+    private final int hash;
+    private volatile Charset charset; //resolved on first use
 
     public SerializationFormat(String category, String type,
             Map<String, String> parameters) {
-        this.category = category;
-        this.type = type;
-        this.parameters = new HashMap(parameters); //defensive copy
+        this(parameters.isEmpty()
+                ? Collections.emptyMap()
+                : new HashMap<>(parameters), //defensive copy
+                category, type);
     }
 
     public SerializationFormat(String category, String type) {
-        this(category, type, Collections.EMPTY_MAP);
+        this(Collections.emptyMap(), category, type);
+    }
+
+    /**
+     * Takes ownership of the parameter map.
+     */
+    private SerializationFormat(Map<String, String> parameters,
+            String category, String type) {
+        this.category = category;
+        this.type = type;
+        this.parameters = parameters;
+        int h = 3;
+        h = 37 * h + Objects.hashCode(category);
+        h = 37 * h + Objects.hashCode(type);
+        h = 37 * h + parameters.hashCode();
+        this.hash = h;
     }
 
     /**
      * Describe an RFC 1341 ContentType value as a format definition.
+     * <p>
+     * The category, subtype, and parameter names are case insensitive and
+     * are lower-cased; parameter values are case sensitive and may be
+     * quoted. Whitespace surrounding the separators is ignored. The media
+     * range {@code *}{@code /*} is accepted as a format of any category.
      *
      * @param contentType RFC 1341 content category
      * @return format
+     * @throws UnsupportedFormatException if the value is not an RFC 1341
+     * content type
      */
     public static SerializationFormat contentType(String contentType)
             throws UnsupportedFormatException {
+        SerializationFormat format = PARSED.get(contentType);
+        if (format != null) {
+            return format;
+        }
+        format = parse(contentType);
+        evict(CANONICAL);
+        SerializationFormat canonical = CANONICAL.putIfAbsent(format, format);
+        if (canonical != null) {
+            format = canonical;
+        }
+        evict(PARSED);
+        PARSED.putIfAbsent(contentType, format);
+        return format;
+    }
+
+    /**
+     * Check if the raw content type is held by the intern cache.
+     *
+     * @param contentType raw content type
+     * @return true if parsing the content type is a cache hit
+     */
+    static boolean isInterned(String contentType) {
+        return PARSED.containsKey(contentType);
+    }
+
+    /**
+     * Makes room for a content type by removing arbitrary interned content
+     * types, other than the generic formats, while the cache is full.
+     */
+    private static <K> void evict(ConcurrentMap<K, SerializationFormat> interned) {
+        Iterator<Map.Entry<K, SerializationFormat>> entries
+                = interned.entrySet().iterator();
+        while (interned.size() >= MAX_INTERNED && entries.hasNext()) {
+            if (!isGeneric(entries.next().getValue())) {
+                entries.remove();
+            }
+        }
+    }
+
+    private static boolean isGeneric(SerializationFormat format) {
+        return format == GENERIC_BINARY_FORMAT
+                || format == GENERIC_TEXT_FORMAT
+                || format == GENERIC_JSON_FORMAT
+                || format == GENERIC_XML_FORMAT;
+    }
+
+    private static SerializationFormat parse(String contentType)
+            throws UnsupportedFormatException {
+        final int length = contentType.length();
+        final int typeSplitIndex = contentType.indexOf('/');
+        if (typeSplitIndex == -1) {
+            throw notContentType(contentType);
+        }
+        //rfc category name is case insensitve
+        final String category = token(contentType, 0, typeSplitIndex);
+        final boolean anyCategory = TYPE_WILDCARD.equals(category);
+        if (!anyCategory && !RFC_TYPES.contains(category)) {
+            throw notContentType(contentType);
+        }
+
+        int pos = indexOf(contentType, ';', typeSplitIndex + 1);
+        //rfc subtype name is case insensitive
+        final String type = token(contentType, typeSplitIndex + 1, pos);
+        if (type.isEmpty() || (anyCategory && !TYPE_WILDCARD.equals(type))) {
+            throw notContentType(contentType);
+        }
+
+        Map<String, String> params = null;
+        while (pos < length) {
+            final int nameStart = pos + 1;
+            final int next = indexOf(contentType, ';', nameStart);
+            final int valueSplitIndex = contentType.indexOf('=', nameStart);
+            if (valueSplitIndex == -1 || valueSplitIndex > next) {
+                if (skipWhitespace(contentType, nameStart, next) != next) {
+                    throw notContentType(contentType);
+                }
+                pos = next; //empty parameter
+                continue;
+            }
+            //rfc param name is case insensitive
+            final String name = token(contentType, nameStart, valueSplitIndex);
+            if (name.isEmpty()) {
+                throw notContentType(contentType);
+            }
 
-        int typeSplitIndex = contentType.indexOf('/');
-        String[] subAndParam = contentType.substring(typeSplitIndex + 1).split(";");
-        final String type = contentType.substring(0, typeSplitIndex).toLowerCase();//rfc category name is case insensitve
-
-        if (type == null 
-                || typeSplitIndex == -1
-                || subAndParam.length == 0
-                || subAndParam[0].isEmpty()
-                || !RFC_TYPES.contains(type)) {
-            throw new UnsupportedFormatException("Format does not appear to "
-                    + "be an RFC 1341 content type.");
+            //rfc param value is case SENSITIVE
+            final int valueStart = skipWhitespace(contentType,
+                    valueSplitIndex + 1, length);
+            final String value;
+            if (valueStart < length && contentType.charAt(valueStart) == '"') {
+                final int quoteEnd = contentType.indexOf('"', valueStart + 1);
+                if (quoteEnd == -1) {
+                    throw notContentType(contentType);
+                }
+                value = contentType.substring(valueStart + 1, quoteEnd);
+                pos = indexOf(contentType, ';', quoteEnd + 1);
+                if (skipWhitespace(contentType, quoteEnd + 1, pos) != pos) {
+                    throw notContentType(contentType);
+                }
+            } else {
+                pos = indexOf(contentType, ';', valueStart);
+                value = contentType.substring(valueStart,
+                        trimEnd(contentType, valueStart, pos));
+            }
+
+            if (params == null) {
+                params = new HashMap<>(4);
+            }
+            params.put(name, value);
         }
 
         return new SerializationFormat(
-                type,
-                subAndParam[0].toLowerCase(), //rfc subtype name is case insensitive
-                Arrays.stream(subAndParam, 1, subAndParam.length)
-                .map((p) -> {
-                    final int paramSplitIndex = p.indexOf('=');
-                    return new String[]{p.substring(0, paramSplitIndex), p.substring(paramSplitIndex + 1)};
-                })
-                .collect(Collectors.toMap((p) -> p[0].toLowerCase(), //rfc param name is case insensitive
-                        (p) -> {
-                            String v = p[1];
-                            if (v.startsWith("\"")) {
-                                return v.substring(1, v.length() - 1);
-                            }
-                            return v;
-                        })//rfc param value is case SENSITIVE
-                ));
+                (params == null) ? Collections.emptyMap() : params,
+                category, type);
+    }
+
+    /**
+     * Returns the lower-cased token between the indexes, without surrounding
+     * whitespace.
+     */
+    private static String token(String s, int from, int to) {
+        from = skipWhitespace(s, from, to);
+        to = trimEnd(s, from, to);
+        //toLowerCase returns the same instance if already lower case
+        return s.substring(from, to).toLowerCase(Locale.ROOT);
+    }
+
+    private static int indexOf(String s, char c, int from) {
+        final int i = s.indexOf(c, from);
+        return (i == -1) ? s.length() : i;
+    }
+
+    private static int skipWhitespace(String s, int from, int to) {
+        while (from < to && Character.isWhitespace(s.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String s, int from, int to) {
+        while (to > from && Character.isWhitespace(s.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static UnsupportedFormatException notContentType(
+            String contentType) {
+        return new UnsupportedFormatException(contentType, "Format does not "
+                + "appear to be an RFC 1341 content type.");
     }
 
     /**
@@ -163,6 +333,31 @@ public class SerializationFormat {
         return Optional.ofNullable(parameters.get(paramName));
     }
 
+    /**
+     * Charset of the format, resolved from the
+     * {@link CharacterFormats#FORMAT_PARAM_NAME charset parameter} once and
+     * cached.
+     *
+     * @return charset defined by the format or the JVM default
+     */
+    Charset charset() {
+        Charset c = charset;
+        if (c == null) {
+            String name = parameters.get(CharacterFormats.FORMAT_PARAM_NAME);
+            c = Charset.defaultCharset();
+            if (name != null) {
+                try {
+                    c = Charset.forName(name);
+                } catch (IllegalCharsetNameException
+                        | UnsupportedCharsetException ex) {
+                    //use default
+                }
+            }
+            charset = c;
+        }
+        return c;
+    }
+
     /**
      * Get a specific format parameter or return the default value.
      *
@@ -194,24 +389,18 @@ public class SerializationFormat {
 
     /**
      * Determine if this format is compatible with the provided format.
+     * <p>
+     * The formats are compatible if they are equal, or if this format accepts
+     * the provided format under the rules of a {@link FormatMatcher}: a
+     * wildcard category or type of this format matches any value, and each
+     * parameter of this format must be defined equally by the provided
+     * format. Use a FormatMatcher to match a format against many formats.
      *
      * @param other format to compare compatibility
      * @return true if this format is compatible with the provided format
      */
     public boolean isCompatable(SerializationFormat other) {
-        //TODO provide a means to provide runtime overriding of this default 
-        //implementation (maybe allow providing optional predicates at construction?)
-        if (this.equals(other)) {
-            return true;
-        }
-
-        if (this.getCategory().contentEquals(other.getCategory())) {
-            if (this.getType().contentEquals(TYPE_WILDCARD)) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.equals(other) || FormatMatcher.accepts(this, other);
     }
 
     /**
@@ -221,7 +410,8 @@ public class SerializationFormat {
      */
     public String asContentType() {
         StringBuilder sb = new StringBuilder()
-                .append((RFC_TYPES.contains(category) || category.startsWith("X-"))
+                .append((RFC_TYPES.contains(category) || category.startsWith("X-")
+                        || TYPE_WILDCARD.equals(category))
                         ? String.format("%s/%s", category, type)
                         : "application/octet-stream");
         String paramString = parameters.entrySet().stream()
@@ -240,10 +430,6 @@ public class SerializationFormat {
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 37 * hash + Objects.hashCode(this.category);
-        hash = 37 * hash + Objects.hashCode(this.type);
-        hash = 37 * hash + Objects.hashCode(this.parameters);
         return hash;
     }
 
@@ -259,6 +445,9 @@ public class SerializationFormat {
             return false;
         }
         final SerializationFormat other = (SerializationFormat) obj;
+        if (this.hash != other.hash) {
+            return false;
+        }
         if (!Objects.equals(this.category, other.category)) {
             return false;
         }
@@ -16,6 +16,7 @@
 package org.geoint.acetate.serialization;
 
 import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.model.TypeKey;
 
 /**
  * Serialization and deserialization functions for a format/type.
@@ -38,4 +39,21 @@ public interface TypeCodec<T extends TypeInstance>
      */
     boolean supports(String namespace, String version, String type,
             SerializationFormat format);
+
+    /**
+     * Determine if the codec implementation supports this format context.
+     * <p>
+     * Codecs bound to specific types should override this method and compare
+     * keys by identity; the default implementation delegates to
+     * {@link #supports(String, String, String, SerializationFormat)}.
+     *
+     * @param key domain type key
+     * @param format serialization format
+     * @return true if this codec supports serialization/deserialization for
+     * this context
+     */
+    default boolean supports(TypeKey key, SerializationFormat format) {
+        return supports(key.getNamespace(), key.getVersion(), key.getName(),
+                format);
+    }
 }
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import org.geoint.acetate.ValueInstance;
+import org.geoint.acetate.model.TypeKey;
 
 /**
  *
@@ -32,17 +33,22 @@ public interface ValueCodec
             SerializationFormat supportedFormat,
             TypeSerializer<ValueInstance> serializer,
             TypeDeserializer<ValueInstance> deserializer) {
+        final TypeKey key = TypeKey.of(ns, dv, tn);
         return new TypeCodec<ValueInstance>() {
 
             @Override
             public boolean supports(String namespace, String version,
                     String type, SerializationFormat format) {
-                return ns.contentEquals(namespace)
-                        && dv.contentEquals(version)
-                        && tn.contentEquals(type)
+                return key.matches(namespace, version, type)
                         && supportedFormat.isCompatable(format);
             }
 
+            @Override
+            public boolean supports(TypeKey typeKey,
+                    SerializationFormat format) {
+                return key == typeKey && supportedFormat.isCompatable(format);
+            }
+
             @Override
             public void serialize(WritableByteChannel out,
                     ValueInstance domainType, SerializationFormat format)
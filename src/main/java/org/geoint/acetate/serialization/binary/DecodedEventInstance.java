@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.util.Optional;
+import java.util.Set;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.EventType;
+
+/**
+ * Event instance decoded by a {@link SchemaBinaryCodec}.
+ *
+ * @author steve_siebert
+ */
+final class DecodedEventInstance implements EventInstance {
+
+    private final EventType model;
+    private final String eventGuid;
+    private final String resourceNamespace;
+    private final String resourceType;
+    private final String resourceVerison;
+    private final String resourceGuid;
+    private final String resourceVersion;
+    private final String eventSource;
+    private final TypeInstanceRef[] composites; //by ordinal, null if absent
+
+    DecodedEventInstance(EventType model, String eventGuid,
+            String resourceNamespace, String resourceType,
+            String resourceVerison, String resourceGuid,
+            String resourceVersion, String eventSource,
+            TypeInstanceRef[] composites) {
+        this.model = model;
+        this.eventGuid = eventGuid;
+        this.resourceNamespace = resourceNamespace;
+        this.resourceType = resourceType;
+        this.resourceVerison = resourceVerison;
+        this.resourceGuid = resourceGuid;
+        this.resourceVersion = resourceVersion;
+        this.eventSource = eventSource;
+        this.composites = composites;
+    }
+
+    @Override
+    public EventType getModel() {
+        return model;
+    }
+
+    @Override
+    public String getEventGuid() {
+        return eventGuid;
+    }
+
+    @Override
+    public String getResourceNamespace() {
+        return resourceNamespace;
+    }
+
+    @Override
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    @Override
+    public String getResourceVerison() {
+        return resourceVerison;
+    }
+
+    @Override
+    public String getResourceGuid() {
+        return resourceGuid;
+    }
+
+    @Override
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    @Override
+    public String getEventSource() {
+        return eventSource;
+    }
+
+    @Override
+    public Set<TypeInstanceRef> getComposites() {
+        return RecordReader.present(composites);
+    }
+
+    @Override
+    public Optional<TypeInstanceRef> findComposite(String attributeName) {
+        final int ordinal = model.slotOf(attributeName);
+        return (ordinal < 0)
+                ? Optional.empty()
+                : Optional.ofNullable(composites[ordinal]);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", model.toString(), eventGuid);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.NamedTypeRef;
+
+/**
+ * Composite or link of a decoded instance.
+ *
+ * @author steve_siebert
+ * @param <T> referenced instance type
+ */
+final class DecodedInstanceRef<T extends TypeInstance>
+        implements TypeInstanceRef<T> {
+
+    private final NamedTypeRef model;
+    private final List<T> instances;
+
+    DecodedInstanceRef(NamedTypeRef model, List<T> instances) {
+        this.model = model;
+        this.instances = Collections.unmodifiableList(instances);
+    }
+
+    @Override
+    public T getReferencedType() {
+        return instances.isEmpty() ? null : instances.get(0);
+    }
+
+    @Override
+    public void forEachType(Consumer<T> instance) {
+        instances.forEach(instance);
+    }
+
+    @Override
+    public NamedTypeRef getModel() {
+        return model;
+    }
+
+    @Override
+    public String toString() {
+        return model.getName();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.ResourceInstanceOperation;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.ResourceType;
+
+/**
+ * Resource instance decoded by a {@link SchemaBinaryCodec}.
+ * <p>
+ * Operations are behavior of a live resource and are not serialized, so a
+ * decoded resource has no operations.
+ *
+ * @author steve_siebert
+ */
+final class DecodedResourceInstance implements ResourceInstance {
+
+    private final ResourceType model;
+    private final String instanceGuid;
+    private final String instanceVersion;
+    private final String previousVersion; //nullable
+    private final TypeInstanceRef[] composites; //by ordinal, null if absent
+    private final TypeInstanceRef[] links; //by ordinal, null if absent
+
+    DecodedResourceInstance(ResourceType model, String instanceGuid,
+            String instanceVersion, String previousVersion,
+            TypeInstanceRef[] composites, TypeInstanceRef[] links) {
+        this.model = model;
+        this.instanceGuid = instanceGuid;
+        this.instanceVersion = instanceVersion;
+        this.previousVersion = previousVersion;
+        this.composites = composites;
+        this.links = links;
+    }
+
+    @Override
+    public ResourceType getModel() {
+        return model;
+    }
+
+    @Override
+    public String getInstanceGuid() {
+        return instanceGuid;
+    }
+
+    @Override
+    public String getInstanceVersion() {
+        return instanceVersion;
+    }
+
+    @Override
+    public Optional<String> getPreviousResourceVersion() {
+        return Optional.ofNullable(previousVersion);
+    }
+
+    @Override
+    public Set<TypeInstanceRef> getComposites() {
+        return RecordReader.present(composites);
+    }
+
+    @Override
+    public Optional<TypeInstanceRef> findComposite(String compositeName) {
+        final int ordinal = model.slotOf(compositeName);
+        return (ordinal < 0)
+                ? Optional.empty()
+                : Optional.ofNullable(composites[ordinal]);
+    }
+
+    @Override
+    public Set<TypeInstanceRef<ResourceInstance>> getLinks() {
+        return (Set) RecordReader.present(links);
+    }
+
+    @Override
+    public Optional<TypeInstanceRef<ResourceInstance>> findLink(String linkName) {
+        final int ordinal = model.linkSlotOf(linkName);
+        return (ordinal < 0)
+                ? Optional.empty()
+                : Optional.ofNullable(links[ordinal]);
+    }
+
+    @Override
+    public Set<ResourceInstanceOperation> getOperations() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Optional<ResourceInstanceOperation> findOperation(
+            String operationName) {
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s-%s]", model.toString(), instanceGuid,
+                instanceVersion);
+    }
+}
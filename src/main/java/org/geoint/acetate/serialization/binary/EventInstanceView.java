@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.Set;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.DomainSerializationException;
+
+/**
+ * Flyweight event instance over an event record encoded by a
+ * {@link SchemaBinaryCodec}.
+ * <p>
+ * The view reads the record directly from the wrapped buffer, which may be a
+ * heap, direct, or mapped buffer, without copying it. Headers and composites
+ * are decoded on first access, so composites that are not requested are never
+ * decoded. A single view may be rewrapped over each record of a stream;
+ * instances returned by the view before a rewrap remain valid.
+ * <p>
+ * The buffer must not be modified while wrapped. Views are not thread-safe.
+ *
+ * @author steve_siebert
+ */
+public final class EventInstanceView implements EventInstance {
+
+    private static final int EVENT_GUID = 0;
+    private static final int RESOURCE_NAMESPACE = 1;
+    private static final int RESOURCE_TYPE = 2;
+    private static final int RESOURCE_VERISON = 3;
+    private static final int RESOURCE_GUID = 4;
+    private static final int RESOURCE_VERSION = 5;
+    private static final int EVENT_SOURCE = 6;
+    private static final int HEADERS = 7;
+    private static final int COMPOSITES = 0;
+
+    private final EventType model;
+    private final RecordView record;
+
+    /**
+     *
+     * @param model event type of the wrapped records
+     */
+    public EventInstanceView(EventType model) {
+        this(model, SchemaBinaryCodec.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     *
+     * @param model event type of the wrapped records
+     * @param maxDepth maximum depth of nested event and resource records
+     * @throws IllegalArgumentException if maxDepth is less than one
+     */
+    public EventInstanceView(EventType model, int maxDepth)
+            throws IllegalArgumentException {
+        this.model = model;
+        this.record = new RecordView(model, maxDepth, HEADERS,
+                new RecordView.Section(model.getComposites().size(),
+                        model::refAt));
+    }
+
+    /**
+     * Wrap the record at the buffer position, advancing the position past the
+     * record.
+     *
+     * @param buffer buffer containing the record
+     * @return this view
+     * @throws BufferCapacityException if the buffer does not contain the
+     * complete record, the buffer position is unchanged
+     * @throws DomainSerializationException if the record length is malformed
+     */
+    public EventInstanceView wrap(ByteBuffer buffer)
+            throws BufferCapacityException, DomainSerializationException {
+        final int length = record.wrap(buffer, buffer.position());
+        buffer.position(buffer.position() + length);
+        return this;
+    }
+
+    /**
+     * Wrap the record at the buffer index, the buffer position is unchanged.
+     *
+     * @param buffer buffer containing the record
+     * @param index index of the record
+     * @return this view
+     * @throws BufferCapacityException if the buffer does not contain the
+     * complete record
+     * @throws DomainSerializationException if the record length is malformed
+     */
+    public EventInstanceView wrap(ByteBuffer buffer, int index)
+            throws BufferCapacityException, DomainSerializationException {
+        record.wrap(buffer, index);
+        return this;
+    }
+
+    /**
+     * Length of the wrapped record in bytes, including its length prefix.
+     *
+     * @return record length
+     * @throws IllegalStateException if the view does not wrap a record
+     */
+    public int getRecordLength() throws IllegalStateException {
+        return record.recordLength();
+    }
+
+    @Override
+    public EventType getModel() {
+        return model;
+    }
+
+    @Override
+    public String getEventGuid() {
+        return record.header(EVENT_GUID);
+    }
+
+    @Override
+    public String getResourceNamespace() {
+        return record.header(RESOURCE_NAMESPACE);
+    }
+
+    @Override
+    public String getResourceType() {
+        return record.header(RESOURCE_TYPE);
+    }
+
+    @Override
+    public String getResourceVerison() {
+        return record.header(RESOURCE_VERISON);
+    }
+
+    @Override
+    public String getResourceGuid() {
+        return record.header(RESOURCE_GUID);
+    }
+
+    @Override
+    public String getResourceVersion() {
+        return record.header(RESOURCE_VERSION);
+    }
+
+    @Override
+    public String getEventSource() {
+        return record.header(EVENT_SOURCE);
+    }
+
+    @Override
+    public Set<TypeInstanceRef> getComposites() {
+        return record.members(COMPOSITES);
+    }
+
+    @Override
+    public Optional<TypeInstanceRef> findComposite(String attributeName) {
+        final int ordinal = model.slotOf(attributeName);
+        return (ordinal < 0)
+                ? Optional.empty()
+                : Optional.ofNullable(record.member(COMPOSITES, ordinal));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", model.toString(), getEventGuid());
+    }
+}
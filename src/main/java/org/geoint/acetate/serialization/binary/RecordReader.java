@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.BufferChannels;
+import org.geoint.acetate.serialization.BufferDeserializer;
+import org.geoint.acetate.serialization.CharacterFormats;
+import org.geoint.acetate.serialization.DomainSerializationException;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+
+/**
+ * Reads instances written by a {@link RecordWriter}.
+ * <p>
+ * Lengths read from the record are validated against the bytes remaining in
+ * the enclosing record before any allocation, so a corrupt or hostile record
+ * fails with a {@link DomainSerializationException} rather than exhausting
+ * memory.
+ *
+ * @author steve_siebert
+ */
+final class RecordReader {
+
+    private final int maxDepth;
+
+    RecordReader(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Read the body of a record.
+     *
+     * @param body record body, exactly
+     * @param type record type
+     * @return decoded instance
+     * @throws DomainSerializationException if the record is corrupt
+     */
+    TypeInstance read(ByteBuffer body, DomainType type)
+            throws DomainSerializationException {
+        try {
+            TypeInstance instance = body(body, type, 0);
+            if (body.hasRemaining()) {
+                throw corrupt(type);
+            }
+            return instance;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new DomainSerializationException(String.format("Record of "
+                    + "type '%s' is truncated or corrupt.", type.toString()),
+                    ex);
+        }
+    }
+
+    private TypeInstance body(ByteBuffer body, DomainType type, int depth) {
+        if (type instanceof ValueType) {
+            return value(body, (ValueType) type);
+        }
+        if (depth >= maxDepth) {
+            throw new DomainSerializationException(String.format("Instance of "
+                    + "'%s' exceeds the maximum nesting depth of %d.",
+                    type.toString(), maxDepth));
+        }
+        if (type instanceof EventType) {
+            final EventType event = (EventType) type;
+            return new DecodedEventInstance(event,
+                    string(body), string(body), string(body), string(body),
+                    string(body), string(body), string(body),
+                    section(body, event, event.getComposites().size(),
+                            event::refAt, depth));
+        }
+        if (type instanceof ResourceType) {
+            final ResourceType resource = (ResourceType) type;
+            return new DecodedResourceInstance(resource,
+                    string(body), string(body), string(body),
+                    section(body, resource, resource.getComposites().size(),
+                            resource::refAt, depth),
+                    section(body, resource, resource.getLinks().size(),
+                            resource::linkAt, depth));
+        }
+        throw new DomainSerializationException(String.format("Unknown "
+                + "domain type '%s'.", type.toString()));
+    }
+
+    private TypeInstanceRef[] section(ByteBuffer body, DomainType type,
+            int declared, IntFunction<? extends NamedRef> refAt, int depth) {
+        final byte[] bitmap = new byte[(declared + 7) >>> 3];
+        body.get(bitmap);
+
+        final TypeInstanceRef[] refs = new TypeInstanceRef[declared];
+        for (int i = 0; i < declared; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                refs[i] = member(body, type, refAt.apply(i), depth);
+            }
+        }
+        if (declared % 8 != 0
+                && ((bitmap[bitmap.length - 1] & 0xFF) >>> (declared % 8)) != 0) {
+            throw corrupt(type); //bits set beyond the declared members
+        }
+        return refs;
+    }
+
+    /**
+     * Read the member of a record at the position of the buffer.
+     *
+     * @param body buffer positioned at the member
+     * @param type type declaring the member
+     * @param model member model
+     * @param depth depth of the declaring record
+     * @return decoded member
+     * @throws DomainSerializationException if the member is corrupt or not
+     * supported
+     * @throws BufferUnderflowException if the buffer ends within the member
+     */
+    TypeInstanceRef member(ByteBuffer body, DomainType type, NamedRef model,
+            int depth) throws DomainSerializationException {
+        if (!(model instanceof NamedTypeRef)) {
+            throw new DomainSerializationException(String.format("Member "
+                    + "'%s' of type '%s' is not supported by the binary "
+                    + "codec, only type references are supported.",
+                    model.getName(), type.toString()));
+        }
+        final NamedTypeRef typeRef = (NamedTypeRef) model;
+        final DomainType refType = typeRef.getReferencedType();
+        final List<TypeInstance> elements;
+        if (typeRef.isCollection()) {
+            final int count = Varints.read(body);
+            if (count > body.remaining()) { //each element is at least a byte
+                throw corrupt(type);
+            }
+            elements = new ArrayList<>(count);
+            for (int e = 0; e < count; e++) {
+                elements.add(element(body, refType, depth + 1));
+            }
+        } else {
+            elements = Collections.singletonList(
+                    element(body, refType, depth + 1));
+        }
+        return new DecodedInstanceRef<>(typeRef, elements);
+    }
+
+    private TypeInstance element(ByteBuffer body, DomainType type, int depth) {
+        final int length = Varints.read(body);
+        if (length > body.remaining()) {
+            throw corrupt(type);
+        }
+        final ByteBuffer element = slice(body, body.position(), length);
+        body.position(body.position() + length);
+        final TypeInstance instance = body(element, type, depth);
+        if (element.hasRemaining()) {
+            throw corrupt(type);
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the value with the default binary codec of the value type; the
+     * value record is complete, so a value codec requiring more bytes than
+     * the record holds indicates a corrupt record.
+     */
+    private static TypeInstance value(ByteBuffer body, ValueType type) {
+        final TypeCodec codec = type.getDefaultBinaryCodec();
+        final BufferDeserializer deserializer
+                = (codec instanceof BufferDeserializer)
+                        ? (BufferDeserializer) codec
+                        : BufferChannels.bufferDeserializer(codec);
+        try {
+            return deserializer.deserialize(body,
+                    SerializationFormat.GENERIC_BINARY_FORMAT);
+        } catch (BufferCapacityException ex) {
+            throw corrupt(type, ex);
+        }
+    }
+
+    /**
+     * Read a nullable string at the position of the buffer.
+     */
+    static String string(ByteBuffer body) {
+        final int length = Varints.read(body) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > body.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String s = CharacterFormats.asString(
+                slice(body, body.position(), length), RecordWriter.UTF8);
+        body.position(body.position() + length);
+        return s;
+    }
+
+    /**
+     * Slice of the buffer between the indexes, the position of the buffer is
+     * not changed.
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int index, int length) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.limit(index + length).position(index);
+        return dup.slice();
+    }
+
+    /**
+     * Returns the present refs, in ordinal order.
+     */
+    static Set<TypeInstanceRef> present(TypeInstanceRef[] refs) {
+        Set<TypeInstanceRef> present = new LinkedHashSet<>();
+        for (TypeInstanceRef r : refs) {
+            if (r != null) {
+                present.add(r);
+            }
+        }
+        return Collections.unmodifiableSet(present);
+    }
+
+    static DomainSerializationException corrupt(DomainType type) {
+        return new DomainSerializationException(String.format("Record of "
+                + "type '%s' is corrupt.", type.toString()));
+    }
+
+    static DomainSerializationException corrupt(DomainType type,
+            Throwable cause) {
+        return new DomainSerializationException(String.format("Record of "
+                + "type '%s' is corrupt.", type.toString()), cause);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.IntFunction;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.DomainSerializationException;
+
+/**
+ * Lazily decoded view of a record written by a {@link RecordWriter}.
+ * <p>
+ * Wrapping a record only reads its length. The offsets of the header strings
+ * and of the members of each section are indexed on first access, by
+ * skipping over the length prefixed elements without decoding them, and only
+ * the accessed headers and members are decoded. Sections are indexed in
+ * order, as the start of a section is the end of the previous section.
+ * <p>
+ * The offset tables are allocated once and reused each time a record is
+ * wrapped.
+ *
+ * @author steve_siebert
+ */
+final class RecordView {
+
+    private final DomainType type;
+    private final RecordReader reader;
+    private final int[] headerOffsets;
+    private final String[] headers;
+    private final boolean[] headerDecoded;
+    private final Section[] sections;
+
+    private ByteBuffer buffer; //null until wrapped
+    private int prefixLength; //as encoded, may not be minimal
+    private int bodyStart;
+    private int bodyEnd;
+    private int headerEnd; //-1 if not indexed
+    private int sectionsIndexed;
+
+    /**
+     *
+     * @param type record type
+     * @param maxDepth maximum depth of nested event and resource records
+     * @param headerCount number of header strings of the record
+     * @param sections sections of the record, in order
+     * @throws IllegalArgumentException if maxDepth is less than one
+     */
+    RecordView(DomainType type, int maxDepth, int headerCount,
+            Section... sections) throws IllegalArgumentException {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum record depth must be "
+                    + "at least one.");
+        }
+        this.type = type;
+        this.reader = new RecordReader(maxDepth);
+        this.headerOffsets = new int[headerCount];
+        this.headers = new String[headerCount];
+        this.headerDecoded = new boolean[headerCount];
+        this.sections = sections;
+    }
+
+    /**
+     * Wrap the record at the buffer index.
+     *
+     * @param buffer buffer containing the record
+     * @param index index of the record length
+     * @return length of the record, including its length prefix
+     * @throws BufferCapacityException if the buffer does not contain the
+     * complete record
+     * @throws DomainSerializationException if the record length is malformed
+     */
+    int wrap(ByteBuffer buffer, int index)
+            throws BufferCapacityException, DomainSerializationException {
+        final int available = buffer.limit() - index;
+        final int prefix = Varints.encodedSize(buffer, index);
+        if (prefix < 0) {
+            throw new BufferCapacityException(available + 1, available);
+        }
+        final int length = Varints.read(buffer, index);
+        if (length > available - prefix) {
+            throw new BufferCapacityException(prefix + length, available);
+        }
+
+        this.buffer = buffer;
+        this.prefixLength = prefix;
+        this.bodyStart = index + prefix;
+        this.bodyEnd = bodyStart + length;
+        this.headerEnd = -1;
+        this.sectionsIndexed = 0;
+        Arrays.fill(headers, null);
+        Arrays.fill(headerDecoded, false);
+        for (Section s : sections) {
+            Arrays.fill(s.decoded, null);
+        }
+        return prefix + length;
+    }
+
+    /**
+     * Length of the wrapped record, including its length prefix.
+     */
+    int recordLength() {
+        checkWrapped();
+        return prefixLength + bodyEnd - bodyStart;
+    }
+
+    /**
+     * Decodes the header string.
+     *
+     * @param header header index
+     * @return header value, may be null
+     */
+    String header(int header) {
+        indexHeaders();
+        if (!headerDecoded[header]) {
+            final int offset = headerOffsets[header];
+            try {
+                headers[header] = RecordReader.string(
+                        RecordReader.slice(buffer, offset, bodyEnd - offset));
+            } catch (BufferUnderflowException ex) {
+                throw corrupt(ex);
+            }
+            headerDecoded[header] = true;
+        }
+        return headers[header];
+    }
+
+    /**
+     * Decodes the member of the section.
+     *
+     * @param section section index
+     * @param ordinal member ordinal
+     * @return decoded member, or null if not present
+     */
+    TypeInstanceRef member(int section, int ordinal) {
+        final Section s = section(section);
+        final int offset = s.offsets[ordinal];
+        if (offset < 0) {
+            return null;
+        }
+        if (s.decoded[ordinal] == null) {
+            try {
+                s.decoded[ordinal] = reader.member(
+                        RecordReader.slice(buffer, offset, bodyEnd - offset),
+                        type, s.refAt.apply(ordinal), 0);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+                throw corrupt(ex);
+            }
+        }
+        return s.decoded[ordinal];
+    }
+
+    /**
+     * Decodes the present members of the section.
+     *
+     * @param section section index
+     * @return present members, in ordinal order
+     */
+    Set<TypeInstanceRef> members(int section) {
+        final Section s = section(section);
+        for (int i = 0; i < s.offsets.length; i++) {
+            member(section, i);
+        }
+        return RecordReader.present(s.decoded);
+    }
+
+    private int indexHeaders() {
+        checkWrapped();
+        if (headerEnd < 0) {
+            int pos = bodyStart;
+            for (int i = 0; i < headerOffsets.length; i++) {
+                headerOffsets[i] = pos;
+                final int length = varint(pos);
+                pos = skip(pos + varintSize(pos), (length == 0) ? 0 : length - 1);
+            }
+            headerEnd = pos;
+        }
+        return headerEnd;
+    }
+
+    private Section section(int section) {
+        checkWrapped();
+        while (sectionsIndexed <= section) {
+            final int start = (sectionsIndexed == 0)
+                    ? indexHeaders()
+                    : sections[sectionsIndexed - 1].end;
+            index(sections[sectionsIndexed], start);
+            sectionsIndexed++;
+        }
+        return sections[section];
+    }
+
+    private void index(Section section, int start) {
+        final int declared = section.offsets.length;
+        int pos = skip(start, (declared + 7) >>> 3);
+        for (int i = 0; i < declared; i++) {
+            if ((buffer.get(start + (i >>> 3)) & (1 << (i & 7))) == 0) {
+                section.offsets[i] = -1;
+                continue;
+            }
+            section.offsets[i] = pos;
+            final NamedRef model = section.refAt.apply(i);
+            if (!(model instanceof NamedTypeRef)) {
+                throw new DomainSerializationException(String.format("Member "
+                        + "'%s' of type '%s' is not supported by the binary "
+                        + "codec, only type references are supported.",
+                        model.getName(), type.toString()));
+            }
+            if (((NamedTypeRef) model).isCollection()) {
+                final int count = varint(pos);
+                pos += varintSize(pos);
+                for (int e = 0; e < count; e++) {
+                    pos = skipElement(pos);
+                }
+            } else {
+                pos = skipElement(pos);
+            }
+        }
+        if (declared % 8 != 0
+                && ((buffer.get(start + (declared >>> 3)) & 0xFF)
+                >>> (declared % 8)) != 0) {
+            throw RecordReader.corrupt(type); //bits beyond the declared members
+        }
+        section.end = pos;
+        if (section == sections[sections.length - 1] && pos != bodyEnd) {
+            throw RecordReader.corrupt(type);
+        }
+    }
+
+    private int skipElement(int pos) {
+        final int length = varint(pos);
+        return skip(pos + varintSize(pos), length);
+    }
+
+    private int skip(int pos, int length) {
+        if (length > bodyEnd - pos) {
+            throw RecordReader.corrupt(type);
+        }
+        return pos + length;
+    }
+
+    private int varintSize(int index) {
+        final int size = Varints.encodedSize(buffer, index);
+        if (size < 0 || size > bodyEnd - index) {
+            throw RecordReader.corrupt(type);
+        }
+        return size;
+    }
+
+    private int varint(int index) {
+        varintSize(index);
+        return Varints.read(buffer, index);
+    }
+
+    private void checkWrapped() {
+        if (buffer == null) {
+            throw new IllegalStateException("View does not wrap a record.");
+        }
+    }
+
+    private DomainSerializationException corrupt(RuntimeException ex) {
+        return new DomainSerializationException(String.format("Record of "
+                + "type '%s' is truncated or corrupt.", type.toString()), ex);
+    }
+
+    /**
+     * Offset table of a record section.
+     */
+    static final class Section {
+
+        private final IntFunction<? extends NamedRef> refAt;
+        private final int[] offsets; //-1 if absent
+        private final TypeInstanceRef[] decoded;
+        private int end;
+
+        /**
+         *
+         * @param declared number of declared members
+         * @param refAt member model by ordinal
+         */
+        Section(int declared, IntFunction<? extends NamedRef> refAt) {
+            this.refAt = refAt;
+            this.offsets = new int[declared];
+            this.decoded = new TypeInstanceRef[declared];
+        }
+    }
+}
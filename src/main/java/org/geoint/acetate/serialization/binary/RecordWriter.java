@@ -0,0 +1,403 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.BufferChannels;
+import org.geoint.acetate.serialization.BufferSerializer;
+import org.geoint.acetate.serialization.CharacterFormats;
+import org.geoint.acetate.serialization.DomainSerializationException;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+
+/**
+ * Writes instances in the {@link SchemaBinaryCodec} record format.
+ * <p>
+ * A record is a varint length followed by the record body. The length of a
+ * body is not known until it has been written, so each record reserves the
+ * maximum varint length and the body is moved down over the unused prefix
+ * bytes once written. The reserved bytes may not fit a buffer with room for
+ * the encoded record, so a record may instead be {@link #size measured}
+ * first and then written with the measured prefixes.
+ * <p>
+ * Each method writing part of a record returns the number of bytes of that
+ * part; if the buffer is null the part is only measured.
+ *
+ * @author steve_siebert
+ */
+final class RecordWriter {
+
+    static final SerializationFormat UTF8
+            = SerializationFormat.contentType("text/plain;charset=UTF-8");
+
+    private static final int MIN_SCRATCH_SIZE = 256;
+
+    private final int maxDepth;
+
+    RecordWriter(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Write the instance as a record, reserving the maximum varint length for
+     * the prefix of each record.
+     *
+     * @throws BufferOverflowException if the buffer has insufficient space
+     * for the record and the reserved prefix bytes, the buffer position is
+     * undefined
+     * @throws DomainSerializationException if the instance can not be written
+     */
+    void write(ByteBuffer out, DomainType type, TypeInstance instance)
+            throws BufferOverflowException, DomainSerializationException {
+        element(out, type, instance, 0, null);
+    }
+
+    /**
+     * Measure the encoded size of the record of the instance, retaining the
+     * body length of each record for {@link #write(ByteBuffer, DomainType,
+     * TypeInstance, Lengths) writing} the instance with exact prefixes.
+     *
+     * @return encoded record size
+     * @throws DomainSerializationException if the instance can not be written
+     */
+    int size(DomainType type, TypeInstance instance, Lengths lengths)
+            throws DomainSerializationException {
+        lengths.clear();
+        return element(null, type, instance, 0, lengths);
+    }
+
+    /**
+     * Write the instance as a record with the prefixes measured by
+     * {@link #size}, requiring no space beyond the encoded record size.
+     *
+     * @throws BufferOverflowException if the buffer has insufficient space,
+     * the buffer position is undefined
+     * @throws DomainSerializationException if the instance can not be written
+     * or does not match the measured lengths
+     */
+    void write(ByteBuffer out, DomainType type, TypeInstance instance,
+            Lengths lengths)
+            throws BufferOverflowException, DomainSerializationException {
+        lengths.rewind();
+        element(out, type, instance, 0, lengths);
+    }
+
+    private int element(ByteBuffer out, DomainType type,
+            TypeInstance instance, int depth, Lengths lengths) {
+        if (out == null) {
+            final int slot = lengths.reserve();
+            final int length = body(null, type, instance, depth, lengths);
+            lengths.set(slot, length);
+            return Varints.size(length) + length;
+        }
+
+        final int start = out.position();
+        final int measured;
+        if (lengths == null) {
+            measured = -1;
+            if (start + Varints.MAX_SIZE > out.limit()) {
+                throw new BufferOverflowException();
+            }
+            out.position(start + Varints.MAX_SIZE);
+        } else {
+            measured = lengths.next(type);
+            Varints.write(out, measured);
+        }
+
+        final int bodyStart = out.position();
+        body(out, type, instance, depth, lengths);
+        final int length = out.position() - bodyStart;
+
+        if (lengths != null) {
+            if (length != measured) {
+                throw Lengths.changed(type);
+            }
+            return out.position() - start;
+        }
+        final int prefix = Varints.size(length);
+        Varints.write(out, start, length);
+        if (prefix < Varints.MAX_SIZE) {
+            moveDown(out, bodyStart, start + prefix, length);
+        }
+        out.position(start + prefix + length);
+        return prefix + length;
+    }
+
+    private int body(ByteBuffer out, DomainType type, TypeInstance instance,
+            int depth, Lengths lengths) {
+        if (type instanceof ValueType) {
+            return value(out, (ValueType) type, instance, lengths);
+        } else if (depth >= maxDepth) {
+            throw new DomainSerializationException(String.format("Instance of "
+                    + "'%s' exceeds the maximum nesting depth of %d.",
+                    type.toString(), maxDepth));
+        } else if (type instanceof EventType) {
+            return event(out, (EventType) type, (EventInstance) instance,
+                    depth, lengths);
+        } else if (type instanceof ResourceType) {
+            return resource(out, (ResourceType) type,
+                    (ResourceInstance) instance, depth, lengths);
+        }
+        throw new DomainSerializationException(String.format("Unknown "
+                + "domain type '%s'.", type.toString()));
+    }
+
+    private int event(ByteBuffer out, EventType type, EventInstance event,
+            int depth, Lengths lengths) {
+        return string(out, event.getEventGuid())
+                + string(out, event.getResourceNamespace())
+                + string(out, event.getResourceType())
+                + string(out, event.getResourceVerison())
+                + string(out, event.getResourceGuid())
+                + string(out, event.getResourceVersion())
+                + string(out, event.getEventSource())
+                + section(out, type, type.getComposites().size(),
+                        event.getComposites(), type::slotOf, type::refAt,
+                        depth, lengths);
+    }
+
+    private int resource(ByteBuffer out, ResourceType type,
+            ResourceInstance resource, int depth, Lengths lengths) {
+        return string(out, resource.getInstanceGuid())
+                + string(out, resource.getInstanceVersion())
+                + string(out, resource.getPreviousResourceVersion()
+                        .orElse(null))
+                + section(out, type, type.getComposites().size(),
+                        resource.getComposites(), type::slotOf, type::refAt,
+                        depth, lengths)
+                + section(out, type, type.getLinks().size(),
+                        resource.getLinks(), type::linkSlotOf, type::linkAt,
+                        depth, lengths);
+    }
+
+    /**
+     * Writes a presence bitmap of the declared refs followed by each present
+     * ref in ordinal order.
+     */
+    private int section(ByteBuffer out, DomainType type, int declared,
+            Collection<? extends TypeInstanceRef> refs,
+            ToIntFunction<String> slotOf, IntFunction<? extends NamedRef> refAt,
+            int depth, Lengths lengths) {
+        final TypeInstanceRef<?>[] present = new TypeInstanceRef<?>[declared];
+        for (TypeInstanceRef<?> ref : refs) {
+            final int ordinal = slotOf.applyAsInt(ref.getName());
+            if (ordinal < 0) {
+                throw new DomainSerializationException(String.format("'%s' "
+                        + "is not a member of type '%s'.", ref.getName(),
+                        type.toString()));
+            }
+            present[ordinal] = ref;
+        }
+
+        int size = (declared + 7) >>> 3;
+        if (out != null) {
+            for (int i = 0; i < declared; i += 8) {
+                int bits = 0;
+                for (int b = 0; b < 8 && i + b < declared; b++) {
+                    if (present[i + b] != null) {
+                        bits |= 1 << b;
+                    }
+                }
+                out.put((byte) bits);
+            }
+        }
+
+        for (int i = 0; i < declared; i++) {
+            if (present[i] != null) {
+                size += ref(out, type, refAt.apply(i), present[i], depth,
+                        lengths);
+            }
+        }
+        return size;
+    }
+
+    private int ref(ByteBuffer out, DomainType type, NamedRef model,
+            TypeInstanceRef<?> ref, int depth, Lengths lengths) {
+        if (!(model instanceof NamedTypeRef)) {
+            throw new DomainSerializationException(String.format("Member "
+                    + "'%s' of type '%s' is not supported by the binary "
+                    + "codec, only type references are supported.",
+                    model.getName(), type.toString()));
+        }
+        final NamedTypeRef<?> typeRef = (NamedTypeRef<?>) model;
+        final DomainType refType = typeRef.getReferencedType();
+        if (typeRef.isCollection()) {
+            List<TypeInstance> elements = new ArrayList<>();
+            ref.forEachType(elements::add);
+            int size = Varints.size(elements.size());
+            if (out != null) {
+                Varints.write(out, elements.size());
+            }
+            for (TypeInstance e : elements) {
+                size += element(out, refType, e, depth + 1, lengths);
+            }
+            return size;
+        }
+        final TypeInstance e = ref.getReferencedType();
+        if (e == null) {
+            throw new DomainSerializationException(String.format("Member "
+                    + "'%s' of type '%s' has no instance.",
+                    model.getName(), type.toString()));
+        }
+        return element(out, refType, e, depth + 1, lengths);
+    }
+
+    /**
+     * Writes the value with the default binary codec of the value type; the
+     * value is measured by writing it to the scratch buffer of the lengths.
+     */
+    @SuppressWarnings("unchecked")
+    private static int value(ByteBuffer out, ValueType type,
+            TypeInstance value, Lengths lengths) {
+        final TypeCodec<TypeInstance> codec = type.getDefaultBinaryCodec();
+        final BufferSerializer<TypeInstance> serializer
+                = (codec instanceof BufferSerializer)
+                        ? (BufferSerializer<TypeInstance>) codec
+                        : BufferChannels.bufferSerializer(codec);
+        if (out != null) {
+            final int start = out.position();
+            serializer.serialize(out, value,
+                    SerializationFormat.GENERIC_BINARY_FORMAT);
+            return out.position() - start;
+        }
+
+        while (true) {
+            final ByteBuffer scratch = lengths.scratch();
+            try {
+                serializer.serialize(scratch, value,
+                        SerializationFormat.GENERIC_BINARY_FORMAT);
+                return scratch.position();
+            } catch (BufferCapacityException ex) {
+                lengths.grow(type, ex.getRequiredCapacity());
+            }
+        }
+    }
+
+    /**
+     * Writes a nullable string; the varint length is offset by one, zero
+     * indicating null.
+     */
+    private static int string(ByteBuffer out, String s) {
+        if (s == null) {
+            if (out != null) {
+                out.put((byte) 0);
+            }
+            return 1;
+        }
+        final int length = CharacterFormats.utf8Length(s);
+        if (out != null) {
+            Varints.write(out, length + 1);
+            CharacterFormats.encode(s, out, UTF8);
+        }
+        return Varints.size(length + 1) + length;
+    }
+
+    private static void moveDown(ByteBuffer buffer, int from, int to,
+            int length) {
+        if (buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            System.arraycopy(array, offset + from, array, offset + to, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer.put(to + i, buffer.get(from + i));
+        }
+    }
+
+    /**
+     * Body lengths of the records of an instance, in the order the records
+     * are written, measured by {@link RecordWriter#size}.
+     * <p>
+     * Instances are not thread-safe.
+     */
+    static final class Lengths {
+
+        private int[] lengths = new int[16];
+        private int count;
+        private int next;
+        private ByteBuffer scratch; //value measurement, allocated on demand
+
+        void clear() {
+            count = 0;
+            next = 0;
+        }
+
+        void rewind() {
+            next = 0;
+        }
+
+        private int reserve() {
+            if (count == lengths.length) {
+                lengths = Arrays.copyOf(lengths, count << 1);
+            }
+            return count++;
+        }
+
+        private void set(int slot, int length) {
+            lengths[slot] = length;
+        }
+
+        private int next(DomainType type) {
+            if (next == count) {
+                throw changed(type);
+            }
+            return lengths[next++];
+        }
+
+        private ByteBuffer scratch() {
+            if (scratch == null) {
+                scratch = ByteBuffer.allocate(MIN_SCRATCH_SIZE);
+            }
+            scratch.clear();
+            return scratch;
+        }
+
+        private void grow(DomainType type, int required) {
+            final int capacity = scratch.capacity();
+            if (capacity > Integer.MAX_VALUE >> 1) {
+                throw new DomainSerializationException(String.format(
+                        "Value of '%s' is too large to serialize.",
+                        type.toString()));
+            }
+            scratch = ByteBuffer.allocate(Math.max(required, capacity << 1));
+        }
+
+        private static DomainSerializationException changed(DomainType type) {
+            return new DomainSerializationException(String.format("Instance "
+                    + "of '%s' changed while it was serialized.",
+                    type.toString()));
+        }
+    }
+}
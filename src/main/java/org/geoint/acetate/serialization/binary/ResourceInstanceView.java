@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.ResourceInstanceOperation;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.DomainSerializationException;
+
+/**
+ * Flyweight resource instance over a resource record encoded by a
+ * {@link SchemaBinaryCodec}.
+ * <p>
+ * The view reads the record directly from the wrapped buffer, which may be a
+ * heap, direct, or mapped buffer, without copying it. Headers, composites, and
+ * links are decoded on first access, so members that are not requested are
+ * never decoded. A single view may be rewrapped over each record of a stream;
+ * instances returned by the view before a rewrap remain valid.
+ * <p>
+ * Operations are not serialized, so the view has no operations. The buffer
+ * must not be modified while wrapped. Views are not thread-safe.
+ *
+ * @author steve_siebert
+ */
+public final class ResourceInstanceView implements ResourceInstance {
+
+    private static final int INSTANCE_GUID = 0;
+    private static final int INSTANCE_VERSION = 1;
+    private static final int PREVIOUS_VERSION = 2;
+    private static final int HEADERS = 3;
+    private static final int COMPOSITES = 0;
+    private static final int LINKS = 1;
+
+    private final ResourceType model;
+    private final RecordView record;
+
+    /**
+     *
+     * @param model resource type of the wrapped records
+     */
+    public ResourceInstanceView(ResourceType model) {
+        this(model, SchemaBinaryCodec.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     *
+     * @param model resource type of the wrapped records
+     * @param maxDepth maximum depth of nested event and resource records
+     * @throws IllegalArgumentException if maxDepth is less than one
+     */
+    public ResourceInstanceView(ResourceType model, int maxDepth)
+            throws IllegalArgumentException {
+        this.model = model;
+        this.record = new RecordView(model, maxDepth, HEADERS,
+                new RecordView.Section(model.getComposites().size(),
+                        model::refAt),
+                new RecordView.Section(model.getLinks().size(),
+                        model::linkAt));
+    }
+
+    /**
+     * Wrap the record at the buffer position, advancing the position past the
+     * record.
+     *
+     * @param buffer buffer containing the record
+     * @return this view
+     * @throws BufferCapacityException if the buffer does not contain the
+     * complete record, the buffer position is unchanged
+     * @throws DomainSerializationException if the record length is malformed
+     */
+    public ResourceInstanceView wrap(ByteBuffer buffer)
+            throws BufferCapacityException, DomainSerializationException {
+        final int length = record.wrap(buffer, buffer.position());
+        buffer.position(buffer.position() + length);
+        return this;
+    }
+
+    /**
+     * Wrap the record at the buffer index, the buffer position is unchanged.
+     *
+     * @param buffer buffer containing the record
+     * @param index index of the record
+     * @return this view
+     * @throws BufferCapacityException if the buffer does not contain the
+     * complete record
+     * @throws DomainSerializationException if the record length is malformed
+     */
+    public ResourceInstanceView wrap(ByteBuffer buffer, int index)
+            throws BufferCapacityException, DomainSerializationException {
+        record.wrap(buffer, index);
+        return this;
+    }
+
+    /**
+     * Length of the wrapped record in bytes, including its length prefix.
+     *
+     * @return record length
+     * @throws IllegalStateException if the view does not wrap a record
+     */
+    public int getRecordLength() throws IllegalStateException {
+        return record.recordLength();
+    }
+
+    @Override
+    public ResourceType getModel() {
+        return model;
+    }
+
+    @Override
+    public String getInstanceGuid() {
+        return record.header(INSTANCE_GUID);
+    }
+
+    @Override
+    public String getInstanceVersion() {
+        return record.header(INSTANCE_VERSION);
+    }
+
+    @Override
+    public Optional<String> getPreviousResourceVersion() {
+        return Optional.ofNullable(record.header(PREVIOUS_VERSION));
+    }
+
+    @Override
+    public Set<TypeInstanceRef> getComposites() {
+        return record.members(COMPOSITES);
+    }
+
+    @Override
+    public Optional<TypeInstanceRef> findComposite(String compositeName) {
+        final int ordinal = model.slotOf(compositeName);
+        return (ordinal < 0)
+                ? Optional.empty()
+                : Optional.ofNullable(record.member(COMPOSITES, ordinal));
+    }
+
+    @Override
+    public Set<TypeInstanceRef<ResourceInstance>> getLinks() {
+        return (Set) record.members(LINKS);
+    }
+
+    @Override
+    public Optional<TypeInstanceRef<ResourceInstance>> findLink(String linkName) {
+        final int ordinal = model.linkSlotOf(linkName);
+        return (ordinal < 0)
+                ? Optional.empty()
+                : Optional.ofNullable(record.member(LINKS, ordinal));
+    }
+
+    @Override
+    public Set<ResourceInstanceOperation> getOperations() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Optional<ResourceInstanceOperation> findOperation(
+            String operationName) {
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s-%s]", model.toString(), getInstanceGuid(),
+                getInstanceVersion());
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.TypeKey;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.BufferChannels;
+import org.geoint.acetate.serialization.BufferDeserializer;
+import org.geoint.acetate.serialization.BufferSerializer;
+import org.geoint.acetate.serialization.DomainSerializationException;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+import org.geoint.acetate.serialization.TypeDeserializer;
+import org.geoint.acetate.serialization.TypeSerializer;
+import org.geoint.acetate.serialization.UnsupportedFormatException;
+
+/**
+ * Compact binary codec for event and resource instances, driven by the
+ * definition of the type.
+ * <p>
+ * An instance is written as a record: a varint length followed by the record
+ * body. Type identity is not written; the reader is expected to know the
+ * type of the record (ie from the codec selected for the message).
+ * <ul>
+ * <li>Event body: the event guid, resource namespace, resource type,
+ * resource version, resource guid, resource instance version, and event
+ * source as nullable strings, followed by the composites section.</li>
+ * <li>Resource body: the instance guid, instance version, and previous
+ * version as nullable strings, followed by the composites section and the
+ * links section. Operations are behavior and are not written.</li>
+ * <li>Nullable string: varint of the UTF-8 length plus one (zero for null)
+ * followed by the UTF-8 bytes.</li>
+ * <li>Section: a presence bitmap of one bit per declared member in
+ * {@link EventType#slotOf(String) ordinal} order (least significant bit
+ * first), followed by each present member in ordinal order. A collection
+ * member is a varint element count followed by the elements, any other member
+ * is a single element.</li>
+ * <li>Element: a record of the referenced type. The body of a
+ * {@link ValueType} record is written by the default binary codec of the
+ * value type; event and resource bodies are written as above.</li>
+ * </ul>
+ * Map members are not supported. Nested event and resource records (ie
+ * resource links) are limited to a maximum depth, so cyclic links fail rather
+ * than recursing without bound.
+ * <p>
+ * Instances are immutable and thread-safe if the value codecs are
+ * thread-safe.
+ *
+ * @author steve_siebert
+ * @param <T> instance type
+ */
+public final class SchemaBinaryCodec<T extends TypeInstance>
+        implements TypeCodec<T>, BufferSerializer<T>, BufferDeserializer<T> {
+
+    /**
+     * RFC 1341 content type of the binary record format.
+     */
+    public static final String CONTENT_TYPE
+            = "application/vnd.geoint.acetate+binary";
+    public static final SerializationFormat FORMAT
+            = SerializationFormat.contentType(CONTENT_TYPE);
+    /**
+     * Default maximum depth of nested event and resource records.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 32;
+
+    private final DomainType type;
+    private final RecordWriter writer;
+    private final RecordReader reader;
+    private final TypeSerializer<T> channelSerializer;
+    private final TypeDeserializer<T> channelDeserializer;
+
+    private SchemaBinaryCodec(DomainType type, int maxDepth)
+            throws IllegalArgumentException {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum record depth must be "
+                    + "at least one.");
+        }
+        this.type = type;
+        this.writer = new RecordWriter(maxDepth);
+        this.reader = new RecordReader(maxDepth);
+        this.channelSerializer = BufferChannels.serializer(this);
+        this.channelDeserializer = BufferChannels.deserializer(this);
+    }
+
+    public static SchemaBinaryCodec<EventInstance> forEvent(EventType type) {
+        return forEvent(type, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     *
+     * @param type event type
+     * @param maxDepth maximum depth of nested event and resource records
+     * @return event codec
+     * @throws IllegalArgumentException if maxDepth is less than one
+     */
+    public static SchemaBinaryCodec<EventInstance> forEvent(EventType type,
+            int maxDepth) throws IllegalArgumentException {
+        return new SchemaBinaryCodec<>(type, maxDepth);
+    }
+
+    public static SchemaBinaryCodec<ResourceInstance> forResource(
+            ResourceType type) {
+        return forResource(type, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     *
+     * @param type resource type
+     * @param maxDepth maximum depth of nested event and resource records
+     * @return resource codec
+     * @throws IllegalArgumentException if maxDepth is less than one
+     */
+    public static SchemaBinaryCodec<ResourceInstance> forResource(
+            ResourceType type, int maxDepth) throws IllegalArgumentException {
+        return new SchemaBinaryCodec<>(type, maxDepth);
+    }
+
+    /**
+     * Type of the instances of this codec.
+     *
+     * @return domain type
+     */
+    public DomainType getType() {
+        return type;
+    }
+
+    @Override
+    public boolean supports(String namespace, String version, String typeName,
+            SerializationFormat format) {
+        return type.isType(namespace, version, typeName)
+                && FORMAT.isCompatable(format);
+    }
+
+    @Override
+    public boolean supports(TypeKey key, SerializationFormat format) {
+        return type.getTypeKey() == key && FORMAT.isCompatable(format);
+    }
+
+    @Override
+    public int serialize(ByteBuffer out, T instance, SerializationFormat format)
+            throws BufferCapacityException, DomainSerializationException {
+        checkFormat(format);
+        final int start = out.position();
+        try {
+            try {
+                writer.write(out, type, instance);
+            } catch (BufferOverflowException | BufferCapacityException ex) {
+                //the reserved record prefixes may not fit a buffer with room
+                //for the record, measure and write with exact prefixes
+                out.position(start);
+                final RecordWriter.Lengths lengths = new RecordWriter.Lengths();
+                final int size = writer.size(type, instance, lengths);
+                if (size > out.remaining()) {
+                    throw new BufferCapacityException(size, out.remaining());
+                }
+                try {
+                    writer.write(out, type, instance, lengths);
+                } catch (BufferOverflowException
+                        | BufferCapacityException changed) {
+                    throw new DomainSerializationException(String.format(
+                            "Instance of '%s' changed while it was "
+                            + "serialized.", type.toString()), changed);
+                }
+            }
+        } catch (ClassCastException ex) {
+            out.position(start);
+            throw new DomainSerializationException(format, instance.getClass(),
+                    "Instance does not match the type of its model.", ex);
+        } catch (RuntimeException ex) {
+            out.position(start);
+            throw ex;
+        }
+        return out.position() - start;
+    }
+
+    @Override
+    public T deserialize(ByteBuffer in, SerializationFormat format)
+            throws BufferCapacityException, DomainSerializationException {
+        checkFormat(format);
+        final int start = in.position();
+        final int prefix = Varints.encodedSize(in, start);
+        if (prefix < 0) {
+            throw new BufferCapacityException(in.remaining() + 1,
+                    in.remaining());
+        }
+        final int length = Varints.read(in, start);
+        if (length > Integer.MAX_VALUE - prefix) {
+            throw new DomainSerializationException(String.format("Record of "
+                    + "type '%s' is corrupt.", type.toString()));
+        }
+        BufferCapacityException.require(in, prefix + length);
+
+        final T instance = (T) reader.read(
+                RecordReader.slice(in, start + prefix, length), type);
+        in.position(start + prefix + length);
+        return instance;
+    }
+
+    @Override
+    public void serialize(WritableByteChannel out, T instance,
+            SerializationFormat format)
+            throws DomainSerializationException, IOException {
+        channelSerializer.serialize(out, instance, format);
+    }
+
+    @Override
+    public T deserialize(ReadableByteChannel in, SerializationFormat format)
+            throws DomainSerializationException, IOException {
+        return channelDeserializer.deserialize(in, format);
+    }
+
+    private static void checkFormat(SerializationFormat format)
+            throws UnsupportedFormatException {
+        if (!FORMAT.isCompatable(format)) {
+            throw new UnsupportedFormatException(format.asContentType());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s as %s", type.toString(), CONTENT_TYPE);
+    }
+}
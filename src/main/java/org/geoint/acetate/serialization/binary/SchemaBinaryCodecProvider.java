@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.util.Optional;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+import org.geoint.acetate.spi.serialization.DomainCodecProvider;
+
+/**
+ * Provides the {@link SchemaBinaryCodec} of event and resource types for the
+ * {@link SchemaBinaryCodec#FORMAT binary record format}.
+ *
+ * @author steve_siebert
+ */
+public final class SchemaBinaryCodecProvider implements DomainCodecProvider {
+
+    @Override
+    public Optional<TypeCodec> getCodecs(DomainType type,
+            SerializationFormat format) {
+        if (!SchemaBinaryCodec.FORMAT.isCompatable(format)) {
+            return Optional.empty();
+        }
+        if (type instanceof EventType) {
+            return Optional.of(SchemaBinaryCodec.forEvent((EventType) type));
+        }
+        if (type instanceof ResourceType) {
+            return Optional.of(
+                    SchemaBinaryCodec.forResource((ResourceType) type));
+        }
+        return Optional.empty();
+    }
+
+}
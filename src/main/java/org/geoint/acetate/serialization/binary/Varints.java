@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.nio.ByteBuffer;
+import org.geoint.acetate.serialization.DomainSerializationException;
+
+/**
+ * Unsigned LEB128 variable length encoding of non-negative ints.
+ *
+ * @author steve_siebert
+ */
+final class Varints {
+
+    /**
+     * Maximum encoded size of an int.
+     */
+    static final int MAX_SIZE = 5;
+
+    private Varints() {
+    }
+
+    /**
+     * Encoded size of the value.
+     *
+     * @param value non-negative value
+     * @return number of bytes
+     */
+    static int size(int value) {
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    static void write(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Write the value at the buffer index without changing the buffer
+     * position.
+     */
+    static void write(ByteBuffer out, int index, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put(index++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put(index, (byte) value);
+    }
+
+    /**
+     * Reads a non-negative value.
+     *
+     * @param in buffer
+     * @return value
+     * @throws DomainSerializationException if the encoded value is malformed
+     * or negative
+     * @throws java.nio.BufferUnderflowException if the buffer ends within the
+     * value
+     */
+    static int read(ByteBuffer in) throws DomainSerializationException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_SIZE; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new DomainSerializationException("Malformed variable length "
+                + "integer.");
+    }
+
+    /**
+     * Reads a non-negative value at the buffer index without changing the
+     * buffer position.
+     *
+     * @param in buffer
+     * @param index index of the first byte of the value
+     * @return value
+     * @throws DomainSerializationException if the encoded value is malformed
+     * or negative
+     * @throws IndexOutOfBoundsException if the buffer limit is reached within
+     * the value
+     */
+    static int read(ByteBuffer in, int index) throws DomainSerializationException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_SIZE; shift += 7) {
+            final byte b = in.get(index++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new DomainSerializationException("Malformed variable length "
+                + "integer.");
+    }
+
+    /**
+     * Size of the value encoded at the buffer index.
+     *
+     * @param in buffer
+     * @param index index of the first byte of the value
+     * @return number of bytes of the encoded value, or -1 if the buffer limit
+     * is reached within the value
+     * @throws DomainSerializationException if the value is longer than an
+     * encoded int
+     */
+    static int encodedSize(ByteBuffer in, int index)
+            throws DomainSerializationException {
+        for (int i = 0; i < MAX_SIZE; i++) {
+            if (index + i >= in.limit()) {
+                return -1;
+            }
+            if (in.get(index + i) >= 0) {
+                return i + 1;
+            }
+        }
+        throw new DomainSerializationException("Malformed variable length "
+                + "integer.");
+    }
+}
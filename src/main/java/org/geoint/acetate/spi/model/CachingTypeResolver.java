@@ -0,0 +1,295 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.spi.model;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.geoint.acetate.model.DomainRegistry;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeKey;
+
+/**
+ * TypeResolver decorator which caches both positive and negative resolution
+ * results of the decorated resolver.
+ * <p>
+ * The cache is bounded; once the maximum number of entries is reached the
+ * oldest entries are evicted first (FIFO). Cached results are tagged with the
+ * revision of the source they were resolved from and are ignored once the
+ * revision changes, so a cache created for a {@link DomainRegistry} is
+ * invalidated each time a model is registered.
+ * <p>
+ * Instances of this class are thread-safe if the decorated resolver is
+ * thread-safe.
+ *
+ * @author steve_siebert
+ */
+public final class CachingTypeResolver implements TypeResolver {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final TypeResolver resolver;
+    private final int maxEntries;
+    private final LongSupplier sourceRevision; //null if not externally revisioned
+    private final AtomicLong epoch = new AtomicLong();
+    private final ConcurrentMap<CacheKey, CacheEntry> cache;
+    private final Queue<CacheKey> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long lastRevision;
+
+    /**
+     * Caches the resolution results of the provided resolver.
+     * <p>
+     * The cache must be {@link #invalidate() invalidated} manually if the
+     * types known to the resolver change.
+     *
+     * @param resolver resolver to decorate
+     * @param maxEntries maximum number of cached results
+     */
+    public CachingTypeResolver(TypeResolver resolver, int maxEntries) {
+        this(resolver, maxEntries, null);
+    }
+
+    /**
+     * Caches the resolution results of the domain registry, invalidating the
+     * cache each time the registry changes.
+     *
+     * @param registry domain registry
+     * @param maxEntries maximum number of cached results
+     */
+    public CachingTypeResolver(DomainRegistry registry, int maxEntries) {
+        this(registry, maxEntries, registry::getRevision);
+    }
+
+    /**
+     * Caches the resolution results of the provided resolver, invalidating
+     * cached results when the revision of the source changes.
+     *
+     * @param resolver resolver to decorate
+     * @param maxEntries maximum number of cached results
+     * @param sourceRevision monotonically increasing revision of the resolver
+     * types
+     * @throws IllegalArgumentException if maxEntries is less than one
+     * @throws NullPointerException if resolver is null
+     */
+    public CachingTypeResolver(TypeResolver resolver, int maxEntries,
+            LongSupplier sourceRevision)
+            throws IllegalArgumentException, NullPointerException {
+        if (resolver == null) {
+            throw new NullPointerException("CachingTypeResolver requires a "
+                    + "resolver to decorate.");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("CachingTypeResolver must "
+                    + "cache at least one entry.");
+        }
+        this.resolver = resolver;
+        this.maxEntries = maxEntries;
+        this.sourceRevision = sourceRevision;
+        this.cache = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+        this.lastRevision = currentRevision();
+    }
+
+    @Override
+    public Optional<DomainType> resolve(String namespace, String version,
+            String typeName) {
+        return resolve(new CacheKey(namespace, version, typeName), null);
+    }
+
+    @Override
+    public Optional<DomainType> resolve(TypeKey key) {
+        return resolve(new CacheKey(key.getNamespace(), key.getVersion(),
+                key.getName()), key);
+    }
+
+    private Optional<DomainType> resolve(CacheKey cacheKey, TypeKey typeKey) {
+        final long revision = currentRevision();
+        if (revision != lastRevision) {
+            //source changed, free the stale entries
+            lastRevision = revision;
+            cache.clear();
+            evictionQueue.clear();
+        }
+
+        CacheEntry entry = cache.get(cacheKey);
+        if (entry != null && entry.revision == revision) {
+            hits.increment();
+            return entry.type;
+        }
+
+        misses.increment();
+        final Optional<DomainType> type = (typeKey == null)
+                ? resolver.resolve(cacheKey.namespace, cacheKey.version,
+                        cacheKey.name)
+                : resolver.resolve(typeKey);
+        if (cache.put(cacheKey, new CacheEntry(type, revision)) == null) {
+            evictionQueue.offer(cacheKey);
+            evict();
+        }
+        return type;
+    }
+
+    private void evict() {
+        while (cache.size() > maxEntries) {
+            CacheKey eldest = evictionQueue.poll();
+            if (eldest == null) {
+                //a concurrent invalidation cleared the queue after a result
+                //was cached, evict the untracked results instead
+                evictUntracked();
+                return;
+            }
+            if (cache.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private void evictUntracked() {
+        Iterator<CacheKey> keys = cache.keySet().iterator();
+        while (cache.size() > maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    private long currentRevision() {
+        //both values only increase, so the sum changes if either changes
+        return epoch.get()
+                + ((sourceRevision == null) ? 0 : sourceRevision.getAsLong());
+    }
+
+    /**
+     * Invalidates all cached results.
+     */
+    public void invalidate() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * Number of results currently cached.
+     *
+     * @return cached result count
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Maximum number of cached results.
+     *
+     * @return max cache size
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Number of resolutions served from the cache.
+     *
+     * @return cache hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of resolutions delegated to the decorated resolver.
+     *
+     * @return cache misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of cached results evicted to keep the cache within its bounds.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Ratio of cache hits to total resolutions.
+     *
+     * @return hit ratio between 0 and 1, 0 if nothing was resolved
+     */
+    public double getHitRatio() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return (total == 0) ? 0d : (double) h / total;
+    }
+
+    private static final class CacheKey {
+
+        private final String namespace;
+        private final String version;
+        private final String name;
+        private final int hash;
+
+        CacheKey(String namespace, String version, String name) {
+            this.namespace = namespace;
+            this.version = version;
+            this.name = name;
+            int h = 7;
+            h = 71 * h + namespace.hashCode();
+            h = 71 * h + name.hashCode();
+            h = 71 * h + version.hashCode();
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            return hash == other.hash
+                    && name.equals(other.name)
+                    && namespace.equals(other.namespace)
+                    && version.equals(other.version);
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final Optional<DomainType> type;
+        private final long revision;
+
+        CacheEntry(Optional<DomainType> type, long revision) {
+            this.type = type;
+            this.revision = revision;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.spi.model;
+
+import java.util.stream.Stream;
+import org.geoint.acetate.model.DomainType;
+
+/**
+ * A type resolver which is able to enumerate all the types it may resolve.
+ * <p>
+ * Enumerable resolvers may be merged with other enumerable resolvers into a
+ * single index.
+ *
+ * @author steve_siebert
+ */
+public interface EnumerableTypeResolver extends TypeResolver {
+
+    /**
+     * Returns a Stream of all the types known to the resolver, in resolution
+     * precedence order.
+     * <p>
+     * If more than one type shares the same identity, the first type in the
+     * stream is the type that would be resolved.
+     *
+     * @return known types
+     */
+    Stream<DomainType> typeStream();
+}
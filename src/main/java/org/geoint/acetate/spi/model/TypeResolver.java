@@ -17,6 +17,7 @@ package org.geoint.acetate.spi.model;
 
 import java.util.Optional;
 import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.TypeKey;
 
 /**
  * Provides domain descriptor to type resolution services.
@@ -36,4 +37,18 @@ public interface TypeResolver {
      */
     Optional<DomainType> resolve(String namespace, String version,
             String typeName);
+
+    /**
+     * Returns the requested type, if known to the resolver.
+     * <p>
+     * Resolvers that index types by {@link TypeKey} should override this
+     * method; the default implementation delegates to
+     * {@link #resolve(String, String, String)}.
+     *
+     * @param key type key
+     * @return domain type, if known to the resolver
+     */
+    default Optional<DomainType> resolve(TypeKey key) {
+        return resolve(key.getNamespace(), key.getVersion(), key.getName());
+    }
 }
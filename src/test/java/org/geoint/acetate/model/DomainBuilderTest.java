@@ -15,7 +15,10 @@
  */
 package org.geoint.acetate.model;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import org.geoint.acetate.model.DomainBuilder.EventBuilder;
 import org.geoint.acetate.serialization.MockValueBinaryCodec;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -243,6 +246,158 @@ public class DomainBuilderTest {
         assertEquals(eventName, valueEventType.getName());
     }
 
+    /**
+     * Test that each type is created once and shared by all references.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSharedTypeReference() throws Exception {
+        DomainBuilder b = addTestResource(addTestEvent(
+                addTestValue(newTestDomainBuilder())));
+        DomainModel m = b.build();
+
+        ValueType v = m.getValues().iterator().next();
+        EventType e = m.getEvents().iterator().next();
+        ResourceType r = m.getResources().iterator().next();
+        assertSame(v, ((NamedTypeRef) e.findComposite(valueRefName).get())
+                .getReferencedType());
+        assertSame(v, ((NamedTypeRef) r.findComposite(valueRefName).get())
+                .getReferencedType());
+        assertSame(m, b.build());
+    }
+
+    /**
+     * Test that a deep chain of references is built.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeepReferenceChain() throws Exception {
+        final int depth = 2000;
+        DomainBuilder b = addTestValue(newTestDomainBuilder());
+        for (int i = 0; i < depth; i++) {
+            b.defineEvent(eventName + i)
+                    .withCompositeType(valueRefName,
+                            (i == 0) ? valueName : eventName + (i - 1))
+                    .build()
+                    .build();
+        }
+        DomainModel m = b.build();
+        assertEquals(depth, m.getEvents().size());
+    }
+
+    /**
+     * Test that types referencing each other in a cycle fail with a
+     * CircularReferenceException describing the cycle.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCircularReference() throws Exception {
+        DomainBuilder b = newTestDomainBuilder();
+        b.defineEvent("a").withCompositeType("ref", "b").build().build();
+        b.defineEvent("b").withCompositeType("ref", "c").build().build();
+        b.defineEvent("c").withCompositeType("ref", "a").build().build();
+        try {
+            b.build();
+            fail("expected CircularReferenceException");
+        } catch (CircularReferenceException ex) {
+            assertEquals(4, ex.getPath().size());
+            assertEquals(ex.getPath().get(0), ex.getPath().get(3));
+            assertTrue(ex.getPath().containsAll(
+                    Arrays.asList("a", "b", "c")));
+        }
+    }
+
+    /**
+     * Test that a parallel build results in the same domain model as a
+     * sequential build.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelBuild() throws Exception {
+        DomainModel sequential = addLargeDomain(newTestDomainBuilder()).build();
+        DomainModel parallel = addLargeDomain(newTestDomainBuilder())
+                .buildParallel();
+
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.typeStream().collect(Collectors.toList()),
+                parallel.typeStream().collect(Collectors.toList()));
+        for (EventType e : sequential.getEvents()) {
+            EventType pe = (EventType) parallel.findType(e.getName()).get();
+            assertEquals(e.getComposites().size(), pe.getComposites().size());
+            for (NamedRef ref : e.getComposites()) {
+                assertEquals(ref, pe.findComposite(ref.getName()).get());
+            }
+        }
+        //shared instances
+        ValueType v = (ValueType) parallel.findType(valueName).get();
+        for (EventType e : parallel.getEvents()) {
+            assertSame(v, ((NamedTypeRef) e.findComposite(valueRefName).get())
+                    .getReferencedType());
+        }
+    }
+
+    @Test
+    public void testDeclarationOrdinals() throws Exception {
+        DomainBuilder b = addTestEvent(addTestValue(newTestDomainBuilder()));
+        b.defineResource(resourceName)
+                .withCompositeType("z", valueName).build()
+                .withCompositeType("a", valueName).build()
+                .withCompositeType("m", valueName).build()
+                .withOperation("update")
+                .withParameter("second", valueName).build()
+                .withParameter("first", valueName).build()
+                .createsEvent("updated", eventName).build()
+                .build() //operation
+                .build(); //resource
+        ResourceType r = (ResourceType) b.build().findType(resourceName).get();
+
+        String[] names = {"z", "a", "m"};
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(i, r.slotOf(names[i]));
+            assertEquals(names[i], r.refAt(i).getName());
+        }
+        assertEquals(-1, r.slotOf("missing"));
+        assertEquals(0, r.operationSlotOf("update"));
+        ResourceOperation op = r.operationAt(0);
+        assertEquals(0, op.slotOf("second"));
+        assertEquals(1, op.slotOf("first"));
+        assertEquals("first", op.refAt(1).getName());
+    }
+
+    @Test(expected = CircularReferenceException.class)
+    public void testParallelCircularReference() throws Exception {
+        DomainBuilder b = newTestDomainBuilder();
+        b.defineEvent("a").withCompositeType("ref", "b").build().build();
+        b.defineEvent("b").withCompositeType("ref", "a").build().build();
+        b.buildParallel(); //CircularReferenceException expected
+    }
+
+    @Test(expected = UnknownTypeException.class)
+    public void testParallelInvalidMissingValue() throws Exception {
+        DomainBuilder b = newTestDomainBuilder();
+        addTestEvent(b);
+        b.buildParallel(); //UnknownTypeException expected
+    }
+
+    private DomainBuilder addLargeDomain(DomainBuilder b)
+            throws InvalidModelException {
+        addTestValue(b);
+        for (int i = 0; i < 500; i++) {
+            EventBuilder e = b.defineEvent(eventName + i)
+                    .withCompositeType(valueRefName, valueName)
+                    .build();
+            if (i > 0) {
+                e.withCompositeType(eventRefName, eventName + (i / 2)).build();
+            }
+            e.build();
+        }
+        return b;
+    }
+
     private DomainBuilder addTestResource(DomainBuilder b)
             throws InvalidModelException {
         return b.defineResource(resourceName, resourceDesc)
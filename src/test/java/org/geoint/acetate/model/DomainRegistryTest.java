@@ -0,0 +1,424 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.geoint.acetate.model.ProviderLoadReport.ProviderResult;
+import org.geoint.acetate.spi.model.DomainModelProvider;
+import org.geoint.acetate.spi.model.TypeResolver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class DomainRegistryTest {
+
+    private static final String NS = "org.geoint.acetate.test";
+    private static final String V = "1.0";
+    private static final String TN = "testEvent";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testFindRegisteredModel() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        DomainModel m = testModel(NS, V);
+        registry.register(m);
+
+        assertSame(m, registry.findModel(NS, V).get());
+        assertFalse(registry.findModel(NS, "2.0").isPresent());
+        assertFalse(registry.findModel("unknown", V).isPresent());
+        assertEquals(1, registry.getDomainModels().size());
+    }
+
+    @Test
+    public void testResolveRegisteredType() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V));
+        registry.register(testModel(NS, "2.0"));
+
+        assertTrue(registry.resolve(NS, V, TN).get().isType(NS, V, TN));
+        assertTrue(registry.resolve(NS, "2.0", TN).get()
+                .isType(NS, "2.0", TN));
+        assertFalse(registry.resolve(NS, V, "unknown").isPresent());
+        assertFalse(registry.resolve("unknown", V, TN).isPresent());
+    }
+
+    @Test(expected = DuplicateDomainException.class)
+    public void testDuplicateModel() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V));
+        registry.register(testModel(NS, V)); //DuplicateDomainException expected
+    }
+
+    @Test
+    public void testConcurrentRegistration() throws Exception {
+        final int numModels = 200;
+        DomainRegistry registry = new DomainRegistry();
+        Set<DomainModel> before = registry.getDomainModels();
+
+        IntStream.range(0, numModels).parallel().forEach((i) -> {
+            try {
+                registry.register(testModel(NS, String.valueOf(i)));
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        assertEquals(numModels, registry.getDomainModels().size());
+        assertTrue(before.isEmpty()); //snapshots are immutable
+        for (int i = 0; i < numModels; i++) {
+            assertTrue(registry.resolve(NS, String.valueOf(i), TN).isPresent());
+        }
+    }
+
+    @Test
+    public void testLazyRegistration() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        registry.register(NS, V, () -> {
+            calls.incrementAndGet();
+            try {
+                return testModel(NS, V);
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertEquals(0, calls.get());
+
+        try {
+            registry.register(NS, V, () -> null);
+            fail("placeholder should reserve the domain");
+        } catch (DuplicateDomainException ex) {
+            //expected
+        }
+        assertEquals(0, calls.get());
+
+        ExecutorService exec = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<DomainType>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(exec.submit(() -> {
+                    start.await();
+                    return registry.resolve(NS, V, TN).get();
+                }));
+            }
+            start.countDown();
+            DomainType type = results.get(0).get();
+            for (Future<DomainType> r : results) {
+                assertSame(type, r.get());
+            }
+        } finally {
+            exec.shutdown();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, registry.getDomainModels().size());
+        assertSame(registry.findModel(NS, V).get(),
+                registry.getDomainModels().iterator().next());
+    }
+
+    @Test
+    public void testLazySupplierReentry() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        AtomicInteger calls = new AtomicInteger();
+        registry.register(NS, V, () -> {
+            calls.incrementAndGet();
+            //own domain is not resolvable while being supplied
+            assertFalse(registry.findModel(NS, V).isPresent());
+            //other lazy domain resolves this one while it is being supplied
+            assertTrue(registry.findModel(NS, "2.0").isPresent());
+            try {
+                DomainBuilder builder = registry.builder(NS, V);
+                builder.defineEvent(TN).build();
+                return builder.build();
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        registry.register(NS, "2.0", () -> {
+            assertFalse(registry.findModel(NS, V).isPresent());
+            return models("2.0").iterator().next();
+        });
+
+        assertTrue(registry.resolve(NS, V, TN).isPresent());
+        assertEquals(1, calls.get());
+        assertEquals(2, registry.getDomainModels().size());
+        try {
+            registry.builder(NS, V);
+            fail("domain is registered");
+        } catch (DuplicateDomainException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testTypeStreamDoesNotSupplyLazyModels() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        AtomicInteger calls = new AtomicInteger();
+        registry.register(testModel(NS, V));
+        registry.register(NS, "2.0", () -> {
+            calls.incrementAndGet();
+            return models("2.0").iterator().next();
+        });
+
+        assertEquals(1, registry.typeStream().count());
+        TypeResolver compiled = HierarchicalTypeResolver
+                .newHierarchy(registry).compile();
+        assertEquals(0, calls.get());
+        assertTrue(compiled.resolve(NS, "2.0", TN).isPresent());
+        assertEquals(1, calls.get());
+        assertTrue(compiled.resolve(NS, V, TN).isPresent());
+    }
+
+    @Test
+    public void testLazyRegistrationMaterializedByGetDomainModels()
+            throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V));
+        registry.register(NS, "2.0", () -> models("2.0").iterator().next());
+
+        assertEquals(1, registry.typeStream().count());
+        assertEquals(2, registry.getDomainModels().size());
+        assertEquals(2, registry.typeStream().count());
+    }
+
+    @Test
+    public void testFailedLazyRegistrationRemoved() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(NS, V, () -> {
+            throw new IllegalStateException("supplier failure");
+        });
+        registry.register(NS, "2.0", () -> models("3.0").iterator().next());
+
+        assertFalse(registry.resolve(NS, V, TN).isPresent());
+        assertFalse(registry.findModel(NS, "2.0").isPresent());
+        assertTrue(registry.getDomainModels().isEmpty());
+
+        //reservation was released
+        registry.register(testModel(NS, V));
+        assertTrue(registry.resolve(NS, V, TN).isPresent());
+    }
+
+    @Test
+    public void testRegistryEvents() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        registry.addListener(new DomainRegistryListener() {
+            @Override
+            public void modelsRegistered(Collection<DomainModel> models) {
+                received.add("registered " + models.stream()
+                        .map(DomainModel::getVersion).sorted()
+                        .collect(Collectors.joining(",")));
+            }
+
+            @Override
+            public void modelFailed(String namespace, String version,
+                    Throwable cause) {
+                received.add("failed " + version + " "
+                        + cause.getClass().getSimpleName());
+            }
+
+            @Override
+            public void providerLoaded(ProviderResult result) {
+                received.add("provider " + result.getProviderName());
+            }
+        });
+
+        registry.register(testModel(NS, "2.0"));
+        assertEquals("registered 2.0", received.poll(5, TimeUnit.SECONDS));
+
+        ProviderResult result = registry.loadProvider(new FirstProvider());
+        assertEquals(1, result.getRegisteredModels().size());
+        Set<String> events = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(received.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(
+                "failed 2.0 DuplicateDomainException",
+                "registered 1.0",
+                "provider " + FirstProvider.class.getName())), events);
+
+        registry.register(NS, "3.0", () -> models("3.0").iterator().next());
+        assertTrue(registry.findModel(NS, "3.0").isPresent());
+        assertEquals("registered 3.0", received.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, registry.getDroppedEventCount());
+    }
+
+    @Test
+    public void testSlowListenerDoesNotBlockRegistration() throws Exception {
+        DomainRegistry registry = new DomainRegistry(1);
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        registry.addListener(new DomainRegistryListener() {
+            @Override
+            public void modelsRegistered(Collection<DomainModel> models) {
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        registry.register(testModel(NS, "0"));
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            registry.register(testModel(NS, String.valueOf(i)));
+        }
+        assertEquals(11, registry.getDomainModels().size());
+        assertEquals(9, registry.getDroppedEventCount());
+        release.countDown();
+    }
+
+    @Test
+    public void testLoadProvidersParallel() throws Exception {
+        File services = new File(tmp.getRoot(),
+                "META-INF/services/" + DomainModelProvider.class.getName());
+        services.getParentFile().mkdirs();
+        Files.write(services.toPath(), Arrays.asList(
+                "# test providers",
+                FirstProvider.class.getName(),
+                SecondProvider.class.getName() + "  # trailing comment",
+                "",
+                FailingProvider.class.getName(),
+                "org.geoint.acetate.test.UnknownProvider",
+                FirstProvider.class.getName()), //duplicate declaration
+                StandardCharsets.UTF_8);
+
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, "0.1"));
+        long revision = registry.getRevision();
+
+        ProviderLoadReport report;
+        try (URLClassLoader cl = new URLClassLoader(
+                new URL[]{tmp.getRoot().toURI().toURL()},
+                getClass().getClassLoader())) {
+            report = registry.loadProvidersParallel(cl);
+        }
+
+        assertEquals(4, report.getProviderResults().size());
+        assertTrue(report.hasFailures());
+        assertEquals(revision + 1, registry.getRevision()); //single batch
+        assertEquals(4, registry.getDomainModels().size());
+        assertEquals(3, report.getRegisteredModels().size());
+
+        Map<String, ProviderResult> results = report.getProviderResults()
+                .stream().collect(Collectors.toMap(
+                        ProviderResult::getProviderName, Function.identity()));
+
+        ProviderResult first = results.get(FirstProvider.class.getName());
+        assertTrue(first.isSuccessful());
+        assertEquals(2, first.getRegisteredModels().size());
+
+        //first discovered provider wins the 2.0 collision
+        ProviderResult second = results.get(SecondProvider.class.getName());
+        assertFalse(second.isSuccessful());
+        assertFalse(second.getProviderFailure().isPresent());
+        assertEquals(1, second.getRegisteredModels().size());
+        assertEquals(1, second.getModelFailures().size());
+        assertTrue(second.getModelFailures().get(0)
+                instanceof DuplicateDomainException);
+
+        ProviderResult failing = results.get(FailingProvider.class.getName());
+        assertTrue(failing.getProviderFailure().get()
+                instanceof IllegalStateException);
+
+        ProviderResult unknown
+                = results.get("org.geoint.acetate.test.UnknownProvider");
+        assertTrue(unknown.getProviderFailure().get()
+                instanceof ClassNotFoundException);
+
+        assertTrue(registry.resolve(NS, "3.0", TN).isPresent());
+        assertSame(first.getRegisteredModels().stream()
+                .filter((m) -> m.getVersion().equals("2.0"))
+                .findFirst().get(),
+                registry.findModel(NS, "2.0").get());
+    }
+
+    public static class FirstProvider implements DomainModelProvider {
+
+        @Override
+        public Set<DomainModel> getDomainModels() {
+            return models("1.0", "2.0");
+        }
+    }
+
+    public static class SecondProvider implements DomainModelProvider {
+
+        @Override
+        public Set<DomainModel> getDomainModels() {
+            return models("2.0", "3.0");
+        }
+    }
+
+    public static class FailingProvider implements DomainModelProvider {
+
+        @Override
+        public Set<DomainModel> getDomainModels() {
+            throw new IllegalStateException("provider failure");
+        }
+    }
+
+    private static Set<DomainModel> models(String... versions) {
+        Set<DomainModel> models = new HashSet<>();
+        for (String v : versions) {
+            try {
+                models.add(testModel(NS, v));
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return models;
+    }
+
+    private static DomainModel testModel(String namespace, String version)
+            throws InvalidModelException {
+        return DomainModel.newInstance(namespace, version,
+                Collections.singletonList(new EventType(namespace, version, TN,
+                        Collections.EMPTY_LIST)));
+    }
+}
@@ -72,6 +72,45 @@ public class HierarchicalTypeResolverTest {
         assertEquals(1, tierTwoResolver.numResolved);
     }
 
+    @Test
+    public void testCompiledResolve() throws Exception {
+        EventType shadowed = new EventType(NS, V, "shared", "root",
+                Collections.EMPTY_LIST);
+        EventType shadowing = new EventType(NS, V, "shared", "child",
+                Collections.EMPTY_LIST);
+        EventType rootOnly = new EventType(NS, V, "root",
+                Collections.EMPTY_LIST);
+        TrackingTypeResolver opaque = eventResolver(NS, V, "opaque");
+
+        TypeResolver compiled = HierarchicalTypeResolver
+                .newHierarchy(new MemoryTypeResolver(shadowed, rootOnly))
+                .addChild(opaque)
+                .addChild(new MemoryTypeResolver(shadowing))
+                .compile();
+
+        //child-most resolver takes precedence
+        assertSame(shadowing, compiled.resolve(NS, V, "shared").get());
+        assertSame(rootOnly, compiled.resolve(rootOnly.getTypeKey()).get());
+        assertTrue(compiled.resolve(NS, V, "opaque").isPresent());
+        assertEquals(1, opaque.numResolved);
+        assertFalse(compiled.resolve(NS, V, "unknown").isPresent());
+    }
+
+    @Test
+    public void testCompileEnumerableHierarchy() throws Exception {
+        TypeResolver compiled = HierarchicalTypeResolver
+                .newHierarchy(new MemoryTypeResolver(
+                        new EventType(NS, V, "root", Collections.EMPTY_LIST)))
+                .addChild(new MemoryTypeResolver(
+                        new EventType(NS, V, "child", Collections.EMPTY_LIST)))
+                .compile();
+
+        //all enumerable, compiled to a single index
+        assertFalse(compiled instanceof HierarchicalTypeResolver);
+        assertTrue(compiled.resolve(NS, V, "root").isPresent());
+        assertTrue(compiled.resolve(NS, V, "child").isPresent());
+    }
+
     private TrackingTypeResolver eventResolver(String namespace,
             String version, String typeName) throws InvalidModelException {
         return new TrackingTypeResolver(
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class ImmutableNamedTypeMapTest {
+
+    @Test
+    public void testLinearLookup() throws Exception {
+        assertLookups(items(ImmutableNamedTypeMap.LINEAR_MAX));
+    }
+
+    @Test
+    public void testHashedLookup() throws Exception {
+        assertLookups(items(ImmutableNamedTypeMap.LINEAR_MAX + 1));
+        assertLookups(items(1000));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ImmutableNamedTypeMap<String> map = ImmutableNamedTypeMap
+                .createMap(Collections.emptyList(), (s) -> s);
+        assertTrue(map.isEmpty());
+        assertNull(map.get("a"));
+        assertFalse(map.values().iterator().hasNext());
+        assertEquals(Collections.emptyMap().hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void testIterationOrderOfSourceMap() throws Exception {
+        List<String> items = items(20);
+        Collections.reverse(items);
+        ImmutableNamedTypeMap<String> map = ImmutableNamedTypeMap
+                .createMap(LinkedHashMap::new, items, (s) -> s);
+        assertEquals(items, new ArrayList<>(map.values()));
+        assertEquals(items, new ArrayList<>(map.keySet()));
+        assertEquals(items, map.entrySet().stream().map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSortedSourceMap() throws Exception {
+        ImmutableNamedTypeMap<String> map = ImmutableNamedTypeMap
+                .createMap(TreeMap::new, Arrays.asList("b", "c", "a"),
+                        (s) -> s);
+        assertEquals(Arrays.asList("a", "b", "c"),
+                new ArrayList<>(map.keySet()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSourceMapComparatorRejected() throws Exception {
+        ImmutableNamedTypeMap.createMap(
+                () -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER),
+                Arrays.asList("a", "b"), (String s) -> s);
+    }
+
+    @Test
+    public void testOrdinals() throws Exception {
+        for (int size : new int[]{3, 100}) {
+            List<String> items = items(size);
+            Collections.reverse(items);
+            ImmutableNamedTypeMap<String> map
+                    = ImmutableNamedTypeMap.createMap(items, (s) -> s);
+            for (int i = 0; i < items.size(); i++) {
+                assertEquals(i, map.ordinalOf(items.get(i)));
+                assertSame(items.get(i), map.valueAt(i));
+            }
+            assertEquals(-1, map.ordinalOf("missing"));
+        }
+    }
+
+    @Test
+    public void testViewsAreReused() throws Exception {
+        ImmutableNamedTypeMap<String> map = ImmutableNamedTypeMap
+                .createMap(items(3), (s) -> s);
+        assertSame(map.values(), map.values());
+        assertSame(map.keySet(), map.keySet());
+        assertSame(map.entrySet(), map.entrySet());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testValuesImmutable() throws Exception {
+        ImmutableNamedTypeMap.createMap(items(3), (String s) -> s)
+                .values().clear();
+    }
+
+    @Test(expected = DuplicateNamedTypeException.class)
+    public void testDuplicateName() throws Exception {
+        ImmutableNamedTypeMap.createMap(Arrays.asList("a", "b", "a"),
+                (s) -> s);
+    }
+
+    private void assertLookups(List<String> items) throws Exception {
+        ImmutableNamedTypeMap<String> map
+                = ImmutableNamedTypeMap.createMap(items, (s) -> "k" + s);
+        Map<String, String> expected = new HashMap<>();
+        items.forEach((i) -> expected.put("k" + i, i));
+
+        assertEquals(items.size(), map.size());
+        for (String i : items) {
+            assertSame(i, map.get("k" + i));
+            assertTrue(map.containsKey("k" + i));
+            assertTrue(map.containsValue(i));
+            assertEquals(i, map.find("k" + i).get());
+        }
+        assertNull(map.get(items.get(0)));
+        assertNull(map.get(1));
+        assertFalse(map.find("missing").isPresent());
+        assertEquals("default", map.getOrDefault("missing", "default"));
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected.entrySet(), map.entrySet());
+        assertEquals(map, ImmutableNamedTypeMap.createMap(items,
+                (s) -> "k" + s));
+    }
+
+    private static List<String> items(int count) {
+        return IntStream.range(0, count).mapToObj(String::valueOf)
+                .collect(Collectors.toList());
+    }
+}
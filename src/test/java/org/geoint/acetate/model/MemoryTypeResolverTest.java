@@ -18,6 +18,8 @@ package org.geoint.acetate.model;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.IntStream;
 import org.junit.Test;
 import org.junit.BeforeClass;
 import static org.junit.Assert.*;
@@ -53,10 +55,80 @@ public class MemoryTypeResolverTest {
 
     @Test
     public void testProvidedCollectionResolver() throws InvalidModelException {
+        EventType other = new EventType(NS, V, "other", Collections.EMPTY_LIST);
         Collection<DomainType> types = new ArrayList<>();
+        types.add(TEST_EVENT);
         MemoryTypeResolver r = new MemoryTypeResolver(types);
+        assertTrue(r.resolve(NS, V, TN).isPresent());
+
+        //the collection is copied when the resolver is created
+        types.add(other);
+        assertFalse(r.resolve(other.getTypeKey()).isPresent());
+        assertTrue(r.add(other));
+        assertTrue(r.resolve(other.getTypeKey()).isPresent());
+        assertFalse(r.add(other));
+    }
+
+    @Test
+    public void testProvidedCollectionRemoval() throws InvalidModelException {
+        Collection<DomainType> types = new ArrayList<>();
         types.add(TEST_EVENT);
+        MemoryTypeResolver r = new MemoryTypeResolver(types);
+
+        types.remove(TEST_EVENT);
         assertTrue(r.resolve(NS, V, TN).isPresent());
+        assertTrue(r.getTypes().remove(TEST_EVENT));
+        assertFalse(r.resolve(NS, V, TN).isPresent());
+    }
+
+    @Test
+    public void testRemoveKeepsIndexInSync() throws InvalidModelException {
+        for (MemoryTypeResolver r : new MemoryTypeResolver[]{
+            new MemoryTypeResolver(), MemoryTypeResolver.concurrent()}) {
+            assertTrue(r.add(TEST_EVENT));
+            assertTrue(r.getTypes().remove(TEST_EVENT));
+            assertFalse(r.resolve(NS, V, TN).isPresent());
+
+            assertTrue(r.add(TEST_EVENT));
+            Iterator<DomainType> i = r.getTypes().iterator();
+            i.next();
+            i.remove();
+            assertFalse(r.resolve(TEST_EVENT.getTypeKey()).isPresent());
+            assertTrue(r.getTypes().isEmpty());
+        }
+    }
+
+    @Test
+    public void testDuplicateTypeFirstResolved() throws InvalidModelException {
+        EventType duplicate = new EventType(NS, V, TN, "duplicate",
+                Collections.EMPTY_LIST);
+        MemoryTypeResolver r = new MemoryTypeResolver(TEST_EVENT, duplicate);
+        assertSame(TEST_EVENT, r.resolve(NS, V, TN).get());
+
+        MemoryTypeResolver mutable = new MemoryTypeResolver();
+        assertTrue(mutable.add(TEST_EVENT));
+        assertFalse(mutable.add(duplicate));
+        assertSame(TEST_EVENT, mutable.resolve(NS, V, TN).get());
+    }
+
+    @Test
+    public void testConcurrentResolver() throws InvalidModelException {
+        final int numTypes = 1000;
+        MemoryTypeResolver r = MemoryTypeResolver.concurrent();
+        IntStream.range(0, numTypes).parallel().forEach((i) -> {
+            try {
+                assertTrue(r.add(new EventType(NS, V, TN + i,
+                        Collections.EMPTY_LIST)));
+            } catch (InvalidModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        assertEquals(numTypes, r.getTypes().size());
+        for (int i = 0; i < numTypes; i++) {
+            assertTrue(r.resolve(TypeKey.of(NS, V, TN + i)).isPresent());
+        }
+        assertFalse(r.resolve(NS, V, TN).isPresent());
     }
 
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+import java.util.Set;
+import org.geoint.acetate.serialization.MockValueBinaryCodec;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the model object graph shares identity data rather than copying
+ * it into each type.
+ *
+ * @author steve_siebert
+ */
+public class ModelFootprintTest {
+
+    private static final String NS = "org.geoint.acetate.test";
+    private static final String V = "1.0";
+
+    @Test
+    public void testTypesShareDomainKey() throws Exception {
+        ValueType value = new ValueType(new String(NS), new String(V), "value",
+                new MockValueBinaryCodec(), new MockValueBinaryCodec());
+        EventType event = new EventType(new String(NS), new String(V),
+                "event", Collections.emptyList());
+        DomainModel model = DomainModel.newInstance(new String(NS),
+                new String(V), Arrays.asList(value, event));
+
+        assertSame(model.getDomainKey(), value.getTypeKey().getDomain());
+        assertSame(model.getDomainKey(), event.getTypeKey().getDomain());
+        assertSame(value.getNamespace(), event.getNamespace());
+        assertSame(value.getVersion(), model.getVersion());
+    }
+
+    @Test
+    public void testMemberNamesCanonical() throws Exception {
+        ValueType value = new ValueType(NS, V, "value",
+                new MockValueBinaryCodec(), new MockValueBinaryCodec());
+        EventType e1 = new EventType(NS, V, "e1", Collections.singletonList(
+                new NamedTypeRef<>(value, new String("id"))));
+        EventType e2 = new EventType(NS, V, "e2", Collections.singletonList(
+                new NamedTypeRef<>(value, new String("id"))));
+        ResourceOperation op1 = new ResourceOperation(NS, V, "resource",
+                new String("update"), true, false, Collections.emptyList(),
+                new NamedTypeRef<>(e1));
+        ResourceOperation op2 = new ResourceOperation(NS, V, "other",
+                new String("update"), true, false, Collections.emptyList(),
+                new NamedTypeRef<>(e2));
+
+        assertNotSame(e1.refAt(0), e2.refAt(0));
+        assertSame(e1.refAt(0).getName(), e2.refAt(0).getName());
+        assertSame(op1.getName(), op2.getName());
+        assertSame(TypeKey.of(NS, V, "resource"), op1.getResourceKey());
+    }
+
+    @Test
+    public void testNoOptionalFields() {
+        for (Class<?> c : new Class<?>[]{DomainModel.class, ValueType.class,
+            EventType.class, ResourceType.class, ResourceOperation.class,
+            NamedTypeRef.class, NamedMapRef.class, TypeKey.class,
+            DomainKey.class}) {
+            for (Class<?> t = c; t != Object.class; t = t.getSuperclass()) {
+                for (Field f : t.getDeclaredFields()) {
+                    if (!Modifier.isStatic(f.getModifiers())) {
+                        assertNotEquals(t.getName() + "." + f.getName(),
+                                Optional.class, f.getType());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDescriptionFootprint() throws Exception {
+        final String description = "a reference with a long description";
+        NamedRef bare = new PlainRef("ref", null);
+        NamedRef described = new PlainRef("ref", description);
+
+        assertEquals(description, described.getDescription().get());
+        assertFalse(bare.getDescription().isPresent());
+        //the description itself is all a described element retains
+        assertEquals(retainedSize(bare) + retainedSize(description),
+                retainedSize(described));
+        //the baseline layout also retained an Optional per description
+        final long baseline = retainedSize(
+                new BaselineRef("ref", Optional.of(description)));
+        assertEquals(baseline - 16, retainedSize(described));
+    }
+
+    @Test
+    public void testTypeRetainedSize() throws Exception {
+        //a long namespace, so a per-type copy would dominate the footprint
+        final String ns = String.join("", Collections.nCopies(100, NS));
+        final int count = 1000;
+        EventType[] events = new EventType[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = new EventType(new String(ns), new String(V),
+                    "event" + i, Collections.emptyList());
+        }
+        DomainModel model = DomainModel.newInstance(ns, V,
+                Arrays.asList(events));
+
+        //per type: the type, its key and name, and an empty member table;
+        //the namespace and version are held once by the shared domain key
+        final long perType = retainedSize((Object) events) / count;
+        assertTrue("retained " + perType + " bytes per type", perType <= 160);
+        assertTrue(retainedSize(model) < retainedSize((Object) events)
+                + 16 * count + ns.length() * 2 + 1024);
+    }
+
+    /**
+     * Retained size of the object graph, for a 64-bit JVM with compressed
+     * references and (Java 8) char-backed strings.
+     * <p>
+     * Model classes are walked by reflection; strings, optionals and arrays
+     * are sized directly, and other JDK objects fail the test so they are not
+     * silently ignored.
+     */
+    private static long retainedSize(Object root) throws Exception {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long size = 0;
+        while (!pending.isEmpty()) {
+            Object o = pending.pop();
+            if (!seen.add(o)) {
+                continue;
+            }
+            Class<?> c = o.getClass();
+            if (c.isArray()) {
+                final int length = Array.getLength(o);
+                if (c.getComponentType().isPrimitive()) {
+                    size += align(16 + (long) length
+                            * primitiveSize(c.getComponentType()));
+                } else {
+                    size += align(16 + 4L * length);
+                    for (int i = 0; i < length; i++) {
+                        Object e = Array.get(o, i);
+                        if (e != null) {
+                            pending.push(e);
+                        }
+                    }
+                }
+            } else if (o instanceof Optional) {
+                size += 16;
+                ((Optional<?>) o).ifPresent(pending::push);
+            } else if (o instanceof String) {
+                size += 24 + align(16 + 2L * ((String) o).length());
+            } else if (c.getName().startsWith("org.geoint.")) {
+                long shallow = 12;
+                for (Class<?> t = c; t != Object.class; t = t.getSuperclass()) {
+                    for (Field f : t.getDeclaredFields()) {
+                        if (Modifier.isStatic(f.getModifiers())) {
+                            continue;
+                        }
+                        if (f.getType().isPrimitive()) {
+                            shallow += primitiveSize(f.getType());
+                            continue;
+                        }
+                        shallow += 4;
+                        f.setAccessible(true);
+                        Object value = f.get(o);
+                        if (value != null) {
+                            pending.push(value);
+                        }
+                    }
+                }
+                size += align(shallow);
+            } else {
+                fail("Unexpected object in model graph: " + c.getName());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Reference without a referenced type, so only the fields of NamedRef
+     * are measured.
+     */
+    private static final class PlainRef extends NamedRef {
+
+        PlainRef(String name, String description) {
+            super(name, description);
+        }
+    }
+
+    /**
+     * Layout of NamedRef before descriptions were held as nullable strings.
+     */
+    private static final class BaselineRef {
+
+        private final String name;
+        private final Optional<String> description;
+
+        BaselineRef(String name, Optional<String> description) {
+            this.name = name;
+            this.description = description;
+        }
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
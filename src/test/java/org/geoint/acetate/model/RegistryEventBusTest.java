@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class RegistryEventBusTest {
+
+    @Test
+    public void testDispatcherExitsWhenIdle() throws Exception {
+        RegistryEventBus bus = new RegistryEventBus(16);
+        BlockingQueue<Collection<DomainModel>> received
+                = new LinkedBlockingQueue<>();
+        DomainRegistryListener listener = new DomainRegistryListener() {
+            @Override
+            public void modelsRegistered(Collection<DomainModel> models) {
+                received.add(models);
+            }
+        };
+        bus.addListener(listener);
+        assertFalse(bus.isDispatcherRunning());
+
+        DomainModel model = DomainModel.newInstance("ns", "1.0",
+                Collections.emptyList());
+        bus.modelsRegistered(Collections.singleton(model));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        awaitIdle(bus);
+
+        //dispatcher is restarted for later events
+        bus.modelsRegistered(Collections.singleton(model));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        awaitIdle(bus);
+
+        //nothing is dispatched without listeners
+        assertTrue(bus.removeListener(listener));
+        bus.modelsRegistered(Collections.singleton(model));
+        assertFalse(bus.isDispatcherRunning());
+    }
+
+    private static void awaitIdle(RegistryEventBus bus)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis()
+                + RegistryEventBus.DISPATCHER_KEEP_ALIVE_MILLIS + 5000;
+        while (bus.isDispatcherRunning()) {
+            assertTrue("dispatcher thread did not exit",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class RegistryMetricsTest {
+
+    private static final String NS = "org.geoint.acetate.test";
+    private static final String V = "1.0";
+    private static final String TN = "testEvent";
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V, 1));
+        RegistryMetrics metrics = registry.getMetrics();
+
+        assertFalse(metrics.isMetricsEnabled());
+        registry.resolve(NS, V, TN + 0);
+        registry.findModel(NS, V);
+        assertTrue(metrics.getResolveHits().isEmpty());
+        assertEquals(0, sum(metrics.getResolveLatencyHistogram()));
+        assertEquals(0, sum(metrics.getFindModelLatencyHistogram()));
+    }
+
+    @Test
+    public void testLookupCounters() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V, 1));
+        RegistryMetrics metrics = registry.getMetrics();
+        metrics.setMetricsEnabled(true);
+
+        registry.resolve(NS, V, TN + 0);
+        registry.resolve(TypeKey.of(NS, V, TN + 0));
+        registry.resolve(NS, V, "unknown");
+        registry.resolve("unknown", V, TN + 0);
+        registry.findModel(NS, V);
+
+        assertEquals(Long.valueOf(2), metrics.getResolveHits().get(NS));
+        assertEquals(Long.valueOf(1), metrics.getResolveMisses().get(NS));
+        assertEquals(Long.valueOf(1), metrics.getResolveMisses().get("unknown"));
+        assertEquals(4, sum(metrics.getResolveLatencyHistogram()));
+        assertEquals(1, sum(metrics.getFindModelLatencyHistogram()));
+
+        metrics.resetMetrics();
+        assertTrue(metrics.getResolveHits().isEmpty());
+        assertEquals(0, sum(metrics.getResolveLatencyHistogram()));
+    }
+
+    @Test
+    public void testModelStatistics() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V, 1));
+        registry.register(testModel(NS, "2.0", 20));
+        RegistryMetrics metrics = registry.getMetrics();
+
+        assertEquals(2, metrics.getModelCount());
+        assertEquals(Integer.valueOf(1), metrics.getTypeCounts().get(NS + "-" + V));
+        assertEquals(Integer.valueOf(20), metrics.getTypeCounts().get(NS + "-2.0"));
+        long small = metrics.getEstimatedRetainedBytes().get(NS + "-" + V);
+        long large = metrics.getEstimatedRetainedBytes().get(NS + "-2.0");
+        assertTrue(small > 0);
+        assertTrue(large > small);
+        assertEquals(small + large, metrics.getTotalEstimatedRetainedBytes());
+    }
+
+    @Test
+    public void testStringEstimateTwoBytesPerChar() throws Exception {
+        DomainModel shortName = DomainModel.newInstance(NS, V,
+                Collections.singletonList(new EventType(NS, V, "e",
+                        Collections.emptyList())));
+        DomainModel longName = DomainModel.newInstance(NS, V,
+                Collections.singletonList(new EventType(NS, V,
+                        "e" + String.join("", Collections.nCopies(64, "x")),
+                        Collections.emptyList())));
+        //Java 8 strings are backed by a char[]
+        assertEquals(128, RegistryMetrics.estimateRetainedSize(longName)
+                - RegistryMetrics.estimateRetainedSize(shortName));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        assertEquals(0, RegistryMetrics.LatencyHistogram.bucket(0));
+        assertEquals(1, RegistryMetrics.LatencyHistogram.bucket(1));
+        assertEquals(10, RegistryMetrics.LatencyHistogram.bucket(1023));
+        assertEquals(11, RegistryMetrics.LatencyHistogram.bucket(1024));
+        assertEquals(63, RegistryMetrics.LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testMBeanRegistration() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(testModel(NS, V, 3));
+        RegistryMetrics metrics = registry.getMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        ObjectName name = metrics.register("test");
+        try {
+            assertEquals(1, server.getAttribute(name, "ModelCount"));
+            server.setAttribute(name,
+                    new javax.management.Attribute("MetricsEnabled", true));
+            assertTrue(metrics.isMetricsEnabled());
+            assertNotNull(server.getAttribute(name, "EstimatedRetainedBytes"));
+        } finally {
+            metrics.unregister("test");
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    private static long sum(long[] histogram) {
+        return Arrays.stream(histogram).sum();
+    }
+
+    private static DomainModel testModel(String namespace, String version,
+            int numTypes) throws InvalidModelException {
+        List<DomainType> types = new ArrayList<>();
+        for (int i = 0; i < numTypes; i++) {
+            types.add(new EventType(namespace, version, TN + i,
+                    Collections.EMPTY_LIST));
+        }
+        return DomainModel.newInstance(namespace, version, types);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model;
+
+import java.util.Collections;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class TypeKeyTest {
+
+    private static final String NS = "org.geoint.acetate.test";
+    private static final String V = "1.0";
+    private static final String TN = "testEvent";
+
+    @Test
+    public void testCanonicalKey() {
+        TypeKey key = TypeKey.of(NS, V, TN);
+        assertSame(key, TypeKey.of(new String(NS), new String(V), new String(TN)));
+        assertNotSame(key, TypeKey.of(NS, "2.0", TN));
+        assertTrue(key.matches(NS, V, TN));
+    }
+
+    @Test
+    public void testTypeKeyIdentity() throws Exception {
+        EventType e1 = new EventType(NS, V, TN, Collections.EMPTY_LIST);
+        EventType e2 = new EventType(NS, V, TN, Collections.EMPTY_LIST);
+        assertSame(e1.getTypeKey(), e2.getTypeKey());
+        assertTrue(e1.isType(TypeKey.of(NS, V, TN)));
+        assertFalse(e1.isType(TypeKey.of(NS, V, "other")));
+    }
+
+    @Test
+    public void testResolveByKey() throws Exception {
+        EventType e = new EventType(NS, V, TN, Collections.EMPTY_LIST);
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(DomainModel.newInstance(NS, V,
+                Collections.singletonList(e)));
+
+        assertSame(e, registry.resolve(TypeKey.of(NS, V, TN)).get());
+        assertSame(e, new MemoryTypeResolver(e).resolve(e.getTypeKey()).get());
+        assertFalse(registry.resolve(TypeKey.of(NS, V, "other")).isPresent());
+    }
+}
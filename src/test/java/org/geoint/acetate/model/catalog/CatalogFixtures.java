@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.NamedMapRef;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceOperation;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.MockValueBinaryCodec;
+
+/**
+ * Models shared by the catalog tests.
+ * <p>
+ * The base model declares a single {@code baseValue} value. The test model
+ * declares a described {@code value}, an {@code event} referencing both
+ * values, and a {@code resource} linking a {@code linked} resource with an
+ * {@code update} operation.
+ *
+ * @author steve_siebert
+ */
+final class CatalogFixtures {
+
+    static final String NS = "org.geoint.acetate.test";
+    static final String BASE_NS = "org.geoint.acetate.base";
+    static final String V = "1.0";
+
+    private CatalogFixtures() {
+    }
+
+    static DomainModel baseModel() throws InvalidModelException {
+        return DomainModel.newInstance(BASE_NS, V,
+                Collections.singletonList(new ValueType(BASE_NS, V,
+                        "baseValue", new MockValueBinaryCodec(),
+                        new MockValueBinaryCodec())));
+    }
+
+    static DomainModel testModel() throws InvalidModelException {
+        return testModel(baseModel());
+    }
+
+    static DomainModel testModel(DomainModel base)
+            throws InvalidModelException {
+        ValueType value = new ValueType(NS, V, "value", "a value",
+                new MockValueBinaryCodec(), new MockValueBinaryCodec());
+        ValueType baseValue = (ValueType) base.findType("baseValue").get();
+        EventType event = new EventType(NS, V, "event", Arrays.asList(
+                new NamedTypeRef<>(value, "value", "value ref", true),
+                new NamedTypeRef<>(baseValue, "base"),
+                new NamedMapRef<>("map", new NamedTypeRef<>(value),
+                        new NamedTypeRef<>(baseValue))));
+        ResourceType linked = new ResourceType(NS, V, "linked",
+                Collections.<NamedRef>singletonList(
+                        new NamedTypeRef<>(value, "value")),
+                Collections.emptyList(), Collections.emptyList());
+        ResourceOperation op = new ResourceOperation(NS, V, "resource",
+                "update", true, false,
+                Collections.singletonList(new NamedTypeRef<>(value, "param")),
+                new NamedTypeRef<>(event, "updated"));
+        ResourceType resource = new ResourceType(NS, V, "resource",
+                "a resource", Collections.emptyList(),
+                Collections.singletonList(new NamedTypeRef<>(linked, "link")),
+                Collections.singletonList(op));
+        //resource first, the catalog orders types by dependency
+        return new DomainModel(NS, V, "test domain",
+                Arrays.asList(resource, linked), Collections.singleton(event),
+                Collections.singleton(value));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.DomainRegistry;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.DuplicateDomainException;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.NamedMapRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceOperation;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.UnknownTypeException;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.MockValueBinaryCodec;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.ValueCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.BASE_NS;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.NS;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.V;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.baseModel;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.testModel;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class CatalogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        DomainModel base = baseModel();
+        registry.register(base);
+        DomainModel model = testModel(base);
+
+        Path catalog = tmp.newFile("test.catalog").toPath();
+        CatalogWriter.write(catalog, Collections.singleton(model));
+
+        DomainRegistry loading = new DomainRegistry();
+        loading.register(base);
+        Set<DomainModel> loaded = loading.loadCatalog(catalog);
+        assertEquals(1, loaded.size());
+        DomainModel m = loaded.iterator().next();
+        assertSame(m, loading.findModel(NS, V).get());
+        assertEquals("test domain", m.getDescription().get());
+        assertEquals(1, m.getValues().size());
+        assertEquals(1, m.getEvents().size());
+        assertEquals(2, m.getResources().size());
+
+        //value codecs are referenced by class name and loaded on first use
+        ValueType value = (ValueType) m.findType("value").get();
+        assertEquals("a value", value.getDescription().get());
+        LazyTypeCodec<?> codec
+                = (LazyTypeCodec<?>) value.getDefaultBinaryCodec();
+        assertEquals(MockValueBinaryCodec.class.getName(),
+                codec.getCodecClassName());
+        assertFalse(codec.isLoaded());
+        try {
+            codec.supports(NS, V, "value", null);
+        } catch (UnsupportedOperationException ex) {
+            //mock codec does not support anything
+        }
+        assertTrue(codec.isLoaded());
+
+        //event composites, including external and map references
+        EventType event = (EventType) m.findType("event").get();
+        assertFalse(event.getDescription().isPresent());
+        NamedTypeRef<?> valueRef
+                = (NamedTypeRef<?>) event.findComposite("value").get();
+        assertSame(value, valueRef.getReferencedType());
+        assertTrue(valueRef.isCollection());
+        assertEquals("value ref", valueRef.getDescription().get());
+        NamedTypeRef<?> baseRef
+                = (NamedTypeRef<?>) event.findComposite("base").get();
+        assertSame(base.findType("baseValue").get(),
+                baseRef.getReferencedType());
+        NamedMapRef<?, ?> mapRef
+                = (NamedMapRef<?, ?>) event.findComposite("map").get();
+        assertSame(value, mapRef.getKeyRef().getReferencedType());
+        assertSame(base.findType("baseValue").get(),
+                ((NamedTypeRef<?>) mapRef.getValueRef()).getReferencedType());
+
+        //resources, links and operations
+        ResourceType linked = (ResourceType) m.findType("linked").get();
+        ResourceType resource = (ResourceType) m.findType("resource").get();
+        assertSame(linked,
+                resource.findLink("link").get().getReferencedType());
+        ResourceOperation op = resource.findOperation("update").get();
+        assertEquals("resource", op.getResourceName());
+        assertTrue(op.isIdempotent());
+        assertFalse(op.isSafe());
+        assertSame(event, op.getSuccessEventType().getReferencedType());
+        assertSame(value, op.getParameters().iterator().next()
+                .getReferencedType());
+    }
+
+    @Test
+    public void testDeepReferenceChain() throws Exception {
+        final int depth = 20000;
+        EventType[] chain = new EventType[depth];
+        chain[0] = new EventType(NS, V, "event0", Collections.emptyList());
+        for (int i = 1; i < depth; i++) {
+            chain[i] = new EventType(NS, V, "event" + i,
+                    Collections.singletonList(
+                            new NamedTypeRef<>(chain[i - 1], "previous")));
+        }
+        List<DomainType> reversed = new ArrayList<>(Arrays.asList(chain));
+        Collections.reverse(reversed); //referencing types first
+        DomainModel model = DomainModel.newInstance(NS, V, reversed);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CatalogWriter.write(out, Collections.singleton(model));
+        DomainModel m = new CatalogReader(new DomainRegistry())
+                .read(ByteBuffer.wrap(out.toByteArray())).iterator().next();
+        EventType last = (EventType) m.findType("event" + (depth - 1)).get();
+        assertSame(m.findType("event" + (depth - 2)).get(),
+                ((NamedTypeRef<?>) last.findComposite("previous").get())
+                .getReferencedType());
+    }
+
+    @Test(expected = UnknownTypeException.class)
+    public void testUnresolvedExternalType() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CatalogWriter.write(out,
+                Collections.singleton(testModel(baseModel())));
+        new CatalogReader(new DomainRegistry())
+                .read(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    @Test(expected = DuplicateDomainException.class)
+    public void testLoadDuplicate() throws Exception {
+        DomainModel base = baseModel();
+        Path catalog = tmp.newFile("base.catalog").toPath();
+        CatalogWriter.write(catalog, Collections.singleton(base));
+
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(base);
+        registry.loadCatalog(catalog); //DuplicateDomainException expected
+    }
+
+    @Test(expected = CatalogException.class)
+    public void testCorruptCatalog() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CatalogWriter.write(out,
+                Collections.singleton(testModel(baseModel())));
+        byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() / 2);
+        new CatalogReader(new DomainRegistry())
+                .read(ByteBuffer.wrap(bytes)); //CatalogException expected
+    }
+
+    @Test(expected = CatalogException.class)
+    public void testAnonymousCodec() throws Exception {
+        ValueType v = new ValueType(NS, V, "value",
+                ValueCodec.valueCodec(NS, V, "value",
+                        SerializationFormat.GENERIC_BINARY_FORMAT,
+                        (out, i, f) -> {
+                        }, (in, f) -> null),
+                new MockValueBinaryCodec());
+        CatalogWriter.write(new ByteArrayOutputStream(),
+                Collections.singleton(DomainModel.newInstance(NS, V,
+                        Collections.singletonList(v))));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.model.catalog;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.DomainRegistry;
+import org.geoint.acetate.model.DomainType;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.MockValueBinaryCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.BASE_NS;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.NS;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.V;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.baseModel;
+import static org.geoint.acetate.model.catalog.CatalogFixtures.testModel;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class MappedCatalogModelProviderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testResolveMaterializesOnDemand() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(baseModel());
+        MappedCatalogModelProvider provider
+                = MappedCatalogModelProvider.open(writeCatalog(), registry);
+        assertEquals(4, provider.getTypeCount());
+        assertEquals(0, provider.getMaterializedTypeCount());
+
+        //materializes the event and the catalog value it references
+        EventType event = (EventType) provider.resolve(NS, V, "event").get();
+        assertEquals(2, provider.getMaterializedTypeCount());
+        assertSame(event, provider.resolve(NS, V, "event").get());
+        ValueType value = (ValueType) provider.resolve(NS, V, "value").get();
+        assertSame(value, ((NamedTypeRef<?>) event.findComposite("value")
+                .get()).getReferencedType());
+        assertSame(registry.resolve(BASE_NS, V, "baseValue").get(),
+                ((NamedTypeRef<?>) event.findComposite("base").get())
+                .getReferencedType());
+        assertEquals(2, provider.getMaterializedTypeCount());
+
+        assertFalse(provider.resolve(NS, V, "unknown").isPresent());
+        assertFalse(provider.resolve(NS, "2.0", "event").isPresent());
+        assertFalse(provider.resolve(BASE_NS, V, "baseValue").isPresent());
+
+        //models contain the already materialized instances
+        Set<DomainModel> models = provider.getDomainModels();
+        assertEquals(1, models.size());
+        DomainModel m = models.iterator().next();
+        assertEquals("test domain", m.getDescription().get());
+        assertSame(event, m.findType("event").get());
+        assertEquals(4, provider.getMaterializedTypeCount());
+        assertSame(m, provider.findModel(NS, V).get());
+    }
+
+    @Test
+    public void testFindModelMaterializesOnlyModelTypes() throws Exception {
+        DomainModel base = baseModel();
+        Path catalog = tmp.newFile("models.catalog").toPath();
+        CatalogWriter.write(catalog, Arrays.asList(testModel(base), base));
+        MappedCatalogModelProvider provider = MappedCatalogModelProvider
+                .open(catalog, new DomainRegistry());
+        assertEquals(5, provider.getTypeCount());
+
+        DomainModel b = provider.findModel(BASE_NS, V).get();
+        assertEquals(1, b.getValues().size());
+        assertEquals(1, provider.getMaterializedTypeCount());
+
+        DomainModel m = provider.findModel(NS, V).get();
+        assertEquals(2, m.getResources().size());
+        assertEquals(1, m.getEvents().size());
+        assertEquals(1, m.getValues().size());
+        assertEquals(5, provider.getMaterializedTypeCount());
+        assertSame(b.findType("baseValue").get(),
+                ((NamedTypeRef<?>) ((EventType) m.findType("event").get())
+                        .findComposite("base").get()).getReferencedType());
+    }
+
+    @Test
+    public void testConcurrentResolveIsCanonical() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(baseModel());
+        MappedCatalogModelProvider provider
+                = MappedCatalogModelProvider.open(writeCatalog(), registry);
+
+        List<DomainType> resolved = IntStream.range(0, 64).parallel()
+                .mapToObj((i) -> provider.resolve(NS, V, "resource").get())
+                .collect(Collectors.toList());
+        for (DomainType t : resolved) {
+            assertSame(resolved.get(0), t);
+        }
+        //resource, linked, value and the operation's event
+        assertEquals(4, provider.getMaterializedTypeCount());
+    }
+
+    @Test
+    public void testRegisterLazily() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        registry.register(baseModel());
+        MappedCatalogModelProvider provider
+                = MappedCatalogModelProvider.open(writeCatalog(), registry);
+
+        provider.registerLazily(registry);
+        assertEquals(0, provider.getMaterializedTypeCount());
+        assertTrue(registry.resolve(NS, V, "resource").isPresent());
+        assertEquals(4, provider.getMaterializedTypeCount());
+        assertSame(provider.resolve(NS, V, "resource").get(),
+                registry.resolve(NS, V, "resource").get());
+    }
+
+    @Test
+    public void testDeepReferenceChain() throws Exception {
+        final int depth = 2000;
+        List<DomainType> types = new ArrayList<>();
+        ValueType value = new ValueType(NS, V, "value",
+                new MockValueBinaryCodec(), new MockValueBinaryCodec());
+        types.add(value);
+        EventType previous = new EventType(NS, V, "event0",
+                Collections.singletonList(new NamedTypeRef<>(value, "value")));
+        types.add(previous);
+        for (int i = 1; i < depth; i++) {
+            previous = new EventType(NS, V, "event" + i,
+                    Collections.singletonList(
+                            new NamedTypeRef<>(previous, "previous")));
+            types.add(previous);
+        }
+        Path catalog = tmp.newFile("deep.catalog").toPath();
+        CatalogWriter.write(catalog, Collections.singleton(
+                DomainModel.newInstance(NS, V, types)));
+
+        MappedCatalogModelProvider provider = MappedCatalogModelProvider
+                .open(catalog, new DomainRegistry());
+        EventType last = (EventType) provider
+                .resolve(NS, V, "event" + (depth - 1)).get();
+        assertEquals(depth + 1, provider.getMaterializedTypeCount());
+        assertSame(provider.resolve(NS, V, "event" + (depth - 2)).get(),
+                ((NamedTypeRef<?>) last.findComposite("previous").get())
+                .getReferencedType());
+    }
+
+    private Path writeCatalog() throws Exception {
+        Path catalog = tmp.newFile("test.catalog").toPath();
+        CatalogWriter.write(catalog, Collections.singleton(testModel()));
+        return catalog;
+    }
+}
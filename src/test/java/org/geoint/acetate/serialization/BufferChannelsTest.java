@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import org.geoint.acetate.ValueInstance;
+import org.geoint.acetate.model.ValueType;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class BufferChannelsTest {
+
+    private static final SerializationFormat FORMAT
+            = SerializationFormat.GENERIC_BINARY_FORMAT;
+
+    /**
+     * Length-prefixed UTF-8 string.
+     */
+    private static final BufferSerializer<TextValue> SERIALIZER
+            = (out, value, format) -> {
+                byte[] bytes = value.text.getBytes(StandardCharsets.UTF_8);
+                BufferCapacityException.require(out, 4 + bytes.length);
+                out.putInt(bytes.length).put(bytes);
+                return 4 + bytes.length;
+            };
+
+    private static final BufferDeserializer<TextValue> DESERIALIZER
+            = (in, format) -> {
+                BufferCapacityException.require(in, 4);
+                final int length = in.getInt(in.position());
+                BufferCapacityException.require(in, 4 + length);
+                byte[] bytes = new byte[length];
+                in.position(in.position() + 4);
+                in.get(bytes);
+                return new TextValue(new String(bytes, StandardCharsets.UTF_8));
+            };
+
+    @Test
+    public void testChannelSerializer() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferChannels.serializer(SERIALIZER, 2)
+                .serialize(Channels.newChannel(bytes),
+                        new TextValue("grows the buffer"), FORMAT);
+
+        ByteBuffer written = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals("grows the buffer",
+                DESERIALIZER.deserialize(written, FORMAT).text);
+        assertFalse(written.hasRemaining());
+    }
+
+    @Test
+    public void testPooledChannelSerializer() throws Exception {
+        BufferPool pool = new BufferPool(8, 64);
+        TypeSerializer<TextValue> serializer
+                = BufferChannels.serializer(SERIALIZER, pool, 8);
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            serializer.serialize(Channels.newChannel(bytes),
+                    new TextValue("grows the buffer"), FORMAT);
+            assertEquals("grows the buffer", DESERIALIZER.deserialize(
+                    ByteBuffer.wrap(bytes.toByteArray()), FORMAT).text);
+        }
+        assertEquals(2, pool.getMissCount()); //8 and 32 byte classes
+        assertEquals(2, pool.getLocalHitCount());
+    }
+
+    @Test
+    public void testChannelDeserializerReadsExactly() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        SERIALIZER.serialize(buffer, new TextValue("first value"), FORMAT);
+        SERIALIZER.serialize(buffer, new TextValue("second"), FORMAT);
+        ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(
+                buffer.array(), 0, buffer.position()));
+
+        TypeDeserializer<TextValue> deserializer
+                = BufferChannels.deserializer(DESERIALIZER, 2);
+        assertEquals("first value", deserializer.deserialize(in, FORMAT).text);
+        assertEquals("second", deserializer.deserialize(in, FORMAT).text);
+    }
+
+    @Test(expected = DomainSerializationException.class)
+    public void testChannelDeserializerTruncated() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        SERIALIZER.serialize(buffer, new TextValue("truncated"), FORMAT);
+        ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(
+                buffer.array(), 0, buffer.position() - 1));
+
+        BufferChannels.deserializer(DESERIALIZER).deserialize(in, FORMAT);
+    }
+
+    @Test
+    public void testBufferSerializerCapacity() throws Exception {
+        BufferSerializer<TextValue> serializer = BufferChannels.bufferSerializer(
+                BufferChannels.serializer(SERIALIZER));
+        ByteBuffer small = ByteBuffer.allocate(8);
+        small.put((byte) 1);
+        try {
+            serializer.serialize(small, new TextValue("too long"), FORMAT);
+            fail("expected capacity exception");
+        } catch (BufferCapacityException ex) {
+            assertEquals(12, ex.getRequiredCapacity());
+            assertEquals(1, small.position());
+        }
+
+        ByteBuffer large = ByteBuffer.allocate(32);
+        assertEquals(12, serializer.serialize(large,
+                new TextValue("too long"), FORMAT));
+        assertEquals(12, large.position());
+    }
+
+    @Test
+    public void testBufferDeserializer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        SERIALIZER.serialize(buffer, new TextValue("one"), FORMAT);
+        SERIALIZER.serialize(buffer, new TextValue("two"), FORMAT);
+        buffer.flip();
+
+        BufferDeserializer<TextValue> deserializer
+                = BufferChannels.bufferDeserializer(
+                        BufferChannels.deserializer(DESERIALIZER));
+        assertEquals("one", deserializer.deserialize(buffer, FORMAT).text);
+        assertEquals(7, buffer.position());
+        assertEquals("two", deserializer.deserialize(buffer, FORMAT).text);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static final class TextValue implements ValueInstance {
+
+        private final String text;
+
+        TextValue(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public ValueType getModel() {
+            return null;
+        }
+    }
+}
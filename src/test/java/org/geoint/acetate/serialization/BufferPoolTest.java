@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.geoint.acetate.serialization.BufferPool.PooledBuffer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        BufferPool pool = new BufferPool(512, 4096);
+        assertEquals(0, pool.sizeClass(0));
+        assertEquals(0, pool.sizeClass(512));
+        assertEquals(1, pool.sizeClass(513));
+        assertEquals(3, pool.sizeClass(4096));
+
+        try (PooledBuffer b = pool.acquire(600)) {
+            assertTrue(b.buffer().isDirect());
+            assertEquals(1024, b.buffer().capacity());
+            assertEquals(1024, b.buffer().remaining());
+        }
+        try (PooledBuffer b = pool.acquire(5000)) {
+            assertEquals(5000, b.buffer().capacity());
+        }
+        assertEquals(1, pool.getUnpooledCount());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(512, 4096);
+        ByteBuffer first;
+        try (PooledBuffer b = pool.acquire(100)) {
+            first = b.buffer();
+            first.put((byte) 1);
+        }
+        try (PooledBuffer b = pool.acquire(200)) {
+            assertSame(first, b.buffer());
+            assertEquals(0, b.buffer().position());
+        }
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getLocalHitCount());
+        assertEquals(0.5, pool.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testSharedPool() throws Exception {
+        BufferPool pool = new BufferPool(512, 4096, 2, false);
+        final int n = BufferPool.LOCAL_BUFFERS_PER_CLASS + 3;
+        List<PooledBuffer> held = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            held.add(pool.acquire(512));
+        }
+        held.forEach(PooledBuffer::close);
+        //thread cache filled, two shared, remainder dropped
+        assertEquals(2, pool.getSharedBufferCount());
+
+        Thread other = new Thread(() -> pool.acquire(512).close());
+        other.start();
+        other.join();
+        assertEquals(1, pool.getSharedHitCount());
+    }
+
+    @Test
+    public void testLargeBuffersNotCachedByThread() throws Exception {
+        final int large = BufferPool.LOCAL_MAX_BUFFER_SIZE * 2;
+        BufferPool pool = new BufferPool(512, large, 2, false);
+        pool.acquire(large).close();
+        assertEquals(1, pool.getSharedBufferCount());
+
+        pool.acquire(large).close();
+        assertEquals(0, pool.getLocalHitCount());
+        assertEquals(1, pool.getSharedHitCount());
+
+        pool.acquire(BufferPool.LOCAL_MAX_BUFFER_SIZE).close();
+        pool.acquire(BufferPool.LOCAL_MAX_BUFFER_SIZE).close();
+        assertEquals(1, pool.getLocalHitCount());
+        assertEquals(1, pool.getSharedBufferCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUseAfterRelease() {
+        BufferPool pool = new BufferPool();
+        PooledBuffer b = pool.acquire(10);
+        b.close();
+        b.buffer();
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        BufferPool pool = new BufferPool(512, 4096, 2, true);
+        pool.acquire(10).close();
+        pool.acquire(10); //leaked
+
+        for (int i = 0; i < 50 && pool.getLeakCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+            pool.checkLeaks();
+        }
+        assertEquals(1, pool.getLeakCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSizes() {
+        new BufferPool(500, 4096);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class CharacterFormatsTest {
+
+    private static final SerializationFormat UTF8
+            = SerializationFormat.contentType("text/plain;charset=UTF-8");
+    private static final SerializationFormat LATIN1
+            = SerializationFormat.contentType("text/plain;charset=ISO-8859-1");
+    private static final String[] SAMPLES = {"", "ascii only",
+        "café über", "日本語", "emoji 😀!",
+        "unpaired \ud83d high", "unpaired \ude00 low", "trailing \ud83d"};
+
+    @Test
+    public void testUtf8Length() {
+        for (String s : SAMPLES) {
+            assertEquals(s, s.getBytes(StandardCharsets.UTF_8).length,
+                    CharacterFormats.utf8Length(s));
+        }
+    }
+
+    @Test
+    public void testEncodeUtf8() {
+        for (String s : SAMPLES) {
+            ByteBuffer out = ByteBuffer.allocateDirect(64);
+            int written = CharacterFormats.encode(s, out, UTF8);
+            byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+            assertEquals(s, expected.length, written);
+            out.flip();
+            byte[] actual = new byte[out.remaining()];
+            out.get(actual);
+            assertArrayEquals(s, expected, actual);
+
+            assertEquals(ByteBuffer.wrap(expected),
+                    CharacterFormats.asByteBuffer(s, UTF8));
+        }
+    }
+
+    @Test
+    public void testEncodeOverflow() {
+        ByteBuffer out = ByteBuffer.allocate(8);
+        out.put((byte) 1);
+        for (SerializationFormat f : new SerializationFormat[]{UTF8, LATIN1}) {
+            try {
+                CharacterFormats.encode("longer than the buffer", out, f);
+                fail("expected overflow");
+            } catch (BufferOverflowException ex) {
+                assertEquals(1, out.position());
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeOtherCharset() {
+        ByteBuffer out = ByteBuffer.allocate(16);
+        assertEquals(4, CharacterFormats.encode("café", out, LATIN1));
+        out.flip();
+        assertEquals((byte) 0xE9, out.get(3));
+        assertEquals("café", CharacterFormats.asString(out, LATIN1));
+    }
+
+    @Test
+    public void testAsString() {
+        for (String s : SAMPLES) {
+            ByteBuffer heap = CharacterFormats.asByteBuffer(s, UTF8);
+            ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining());
+            direct.put(heap.duplicate()).flip();
+            String expected = new String(s.getBytes(StandardCharsets.UTF_8),
+                    StandardCharsets.UTF_8);
+
+            assertEquals(expected, CharacterFormats.asString(heap, UTF8));
+            assertFalse(heap.hasRemaining());
+            assertEquals(expected, CharacterFormats.asString(direct, UTF8));
+        }
+    }
+
+    @Test
+    public void testCharsetResolution() {
+        assertEquals(StandardCharsets.ISO_8859_1,
+                CharacterFormats.ofOrDefault(LATIN1));
+        assertSame(CharacterFormats.ofOrDefault(LATIN1),
+                CharacterFormats.ofOrDefault(LATIN1));
+        assertEquals(Charset.defaultCharset(), CharacterFormats.ofOrDefault(
+                SerializationFormat.contentType("text/plain;charset=bogus!")));
+        assertEquals(Charset.defaultCharset(), CharacterFormats.ofOrDefault(
+                SerializationFormat.GENERIC_BINARY_FORMAT));
+    }
+}
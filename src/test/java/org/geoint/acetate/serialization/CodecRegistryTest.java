@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.spi.serialization.DomainCodecProvider;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class CodecRegistryTest {
+
+    private static final String NS = "org.geoint.acetate.test";
+    private static final String V = "1.0";
+
+    private final TypeCodec charCodec = ValueCodec.valueCodec(NS, V, "value",
+            SerializationFormat.GENERIC_TEXT_FORMAT, null, null);
+    private final TypeCodec binCodec = ValueCodec.valueCodec(NS, V, "value",
+            SerializationFormat.GENERIC_BINARY_FORMAT, null, null);
+
+    @Test
+    public void testDefaultValueCodecs() throws Exception {
+        ValueType value = new ValueType(NS, V, "value", charCodec, binCodec);
+        CodecRegistry registry = new CodecRegistry(Collections.emptyList());
+
+        assertSame(charCodec, registry.getCodec(value,
+                SerializationFormat.contentType("text/plain;charset=UTF-8")));
+        assertSame(binCodec, registry.getCodec(value,
+                SerializationFormat.GENERIC_BINARY_FORMAT));
+    }
+
+    @Test
+    public void testDefaultValueCodecUnsupportedFormat() throws Exception {
+        ValueType value = new ValueType(NS, V, "value", charCodec, binCodec);
+        CodecRegistry registry = new CodecRegistry(Collections.emptyList());
+
+        assertFalse(registry.findCodec(value,
+                SerializationFormat.GENERIC_JSON_FORMAT).isPresent());
+        try {
+            registry.getCodec(value, SerializationFormat.GENERIC_JSON_FORMAT);
+            fail("Default binary codec selected for JSON.");
+        } catch (UnsupportedFormatException ex) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testProviderPrecedence() throws Exception {
+        ValueType value = new ValueType(NS, V, "value", charCodec, binCodec);
+        TypeCodec provided = new MockValueBinaryCodec();
+        DomainCodecProvider none = (t, f) -> Optional.empty();
+        DomainCodecProvider json = (t, f)
+                -> SerializationFormat.GENERIC_JSON_FORMAT.equals(f)
+                ? Optional.of(provided) : Optional.empty();
+        DomainCodecProvider failing = (t, f) -> {
+            throw new IllegalStateException("provider failure");
+        };
+        CodecRegistry registry = new CodecRegistry(
+                Arrays.asList(none, failing, json));
+
+        assertSame(provided, registry.getCodec(value,
+                SerializationFormat.GENERIC_JSON_FORMAT));
+        assertSame(binCodec, registry.getCodec(value,
+                SerializationFormat.GENERIC_BINARY_FORMAT));
+    }
+
+    @Test
+    public void testSelectionMemoized() throws Exception {
+        ValueType value = new ValueType(NS, V, "value", charCodec, binCodec);
+        AtomicInteger calls = new AtomicInteger();
+        CodecRegistry registry = new CodecRegistry(Collections.singletonList(
+                (t, f) -> {
+                    calls.incrementAndGet();
+                    return Optional.empty();
+                }));
+
+        for (int i = 0; i < 10; i++) {
+            registry.getCodec(value, SerializationFormat.GENERIC_BINARY_FORMAT);
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, registry.size());
+
+        registry.invalidate();
+        registry.getCodec(value, SerializationFormat.GENERIC_BINARY_FORMAT);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testMemoBounded() throws Exception {
+        ValueType value = new ValueType(NS, V, "value", charCodec, binCodec);
+        CodecRegistry registry = new CodecRegistry(Collections.emptyList(), 1);
+
+        registry.getCodec(value, SerializationFormat.GENERIC_BINARY_FORMAT);
+        assertSame(charCodec, registry.getCodec(value,
+                SerializationFormat.GENERIC_TEXT_FORMAT));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testMemoEvictsWhenFull() throws Exception {
+        ValueType value = new ValueType(NS, V, "value", charCodec, binCodec);
+        AtomicInteger calls = new AtomicInteger();
+        CodecRegistry registry = new CodecRegistry(Collections.singletonList(
+                (t, f) -> {
+                    calls.incrementAndGet();
+                    return Optional.empty();
+                }), 2);
+
+        for (int i = 0; i < 10; i++) {
+            registry.findCodec(value, SerializationFormat.contentType(
+                    "application/octet-stream;part=" + i));
+        }
+        assertEquals(2, registry.size());
+
+        calls.set(0);
+        for (int i = 0; i < 10; i++) {
+            registry.getCodec(value, SerializationFormat.GENERIC_BINARY_FORMAT);
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void testNoCodec() throws Exception {
+        EventType event = new EventType(NS, V, "event", Collections.emptyList());
+        CodecRegistry registry = new CodecRegistry(Collections.emptyList());
+        assertFalse(registry.findCodec(event,
+                SerializationFormat.GENERIC_JSON_FORMAT).isPresent());
+        registry.getCodec(event, SerializationFormat.GENERIC_JSON_FORMAT);
+    }
+}
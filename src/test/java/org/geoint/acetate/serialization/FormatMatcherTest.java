@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.geoint.acetate.serialization.SerializationFormat.contentType;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class FormatMatcherTest {
+
+    @Test
+    public void testExactAndWildcardPrecedence() {
+        FormatMatcher<String> matcher = FormatMatcher.<String>builder()
+                .add(contentType("*/*"), "any")
+                .add(contentType("text/*"), "text")
+                .add(contentType("text/plain"), "plain")
+                .build();
+
+        assertEquals("plain", matcher.match(contentType("text/plain")).get());
+        assertEquals("text", matcher.match(contentType("text/html")).get());
+        assertEquals("any", matcher.match(contentType("image/png")).get());
+        assertEquals(3, matcher.size());
+    }
+
+    @Test
+    public void testParameterSubset() {
+        FormatMatcher<String> matcher = FormatMatcher.<String>builder()
+                .add(contentType("application/json"), "json")
+                .add(contentType("application/json;charset=UTF-8"), "utf8")
+                .build();
+
+        assertEquals("utf8", matcher.match(
+                contentType("application/json;charset=UTF-8;indent=2")).get());
+        assertEquals("json", matcher.match(
+                contentType("application/json;charset=UTF-16")).get());
+        assertEquals("json", matcher.match(
+                contentType("application/json")).get());
+        assertFalse(matcher.matches(contentType("application/xml")));
+    }
+
+    @Test
+    public void testRequestedWildcard() {
+        FormatMatcher<String> matcher = FormatMatcher.<String>builder()
+                .add(contentType("text/plain"), "plain")
+                .add(contentType("application/json"), "json")
+                .build();
+
+        assertEquals("plain", matcher.match(contentType("text/*")).get());
+        assertEquals("plain", matcher.match(contentType("*/*")).get());
+        assertFalse(matcher.matches(contentType("image/*")));
+    }
+
+    @Test
+    public void testRequestedWildcardPrefersSpecificFormat() {
+        FormatMatcher<String> matcher = FormatMatcher.<String>builder()
+                .add(contentType("*/*;charset=UTF-8"), "any")
+                .add(contentType("text/*;charset=UTF-8"), "text")
+                .add(contentType("text/plain"), "plain")
+                .build();
+
+        assertEquals("plain", matcher.match(
+                contentType("*/*;charset=UTF-8")).get());
+        assertEquals("plain", matcher.match(
+                contentType("text/*;charset=UTF-8")).get());
+        assertEquals("text", matcher.match(
+                contentType("text/html;charset=UTF-8")).get());
+    }
+
+    @Test
+    public void testInsertionOrderBreaksTies() {
+        FormatMatcher<String> matcher = FormatMatcher.<String>builder()
+                .add(contentType("text/plain;charset=UTF-8"), "first")
+                .add(contentType("text/plain;level=1"), "second")
+                .build();
+
+        assertEquals("first", matcher.match(
+                contentType("text/plain;level=1;charset=UTF-8")).get());
+        assertEquals("second", matcher.match(
+                contentType("text/plain;level=1")).get());
+    }
+
+    @Test
+    public void testCompatibility() {
+        assertTrue(SerializationFormat.GENERIC_TEXT_FORMAT
+                .isCompatable(contentType("text/plain;charset=UTF-8")));
+        assertTrue(contentType("text/plain")
+                .isCompatable(contentType("text/plain;charset=UTF-8")));
+        assertFalse(contentType("text/plain;charset=UTF-8")
+                .isCompatable(contentType("text/plain")));
+        assertFalse(SerializationFormat.GENERIC_TEXT_FORMAT
+                .isCompatable(SerializationFormat.GENERIC_JSON_FORMAT));
+    }
+}
@@ -115,6 +115,89 @@ public class SerializationFormatTest {
         SerializationFormat.contentType("text/");
     }
 
+    /**
+     * Test parsing an invalid RFC 1341 content type without a type separator.
+     */
+    @Test(expected = UnsupportedFormatException.class)
+    public void testParseContentTypeNoSeparator() {
+        SerializationFormat.contentType("text");
+    }
+
+    /**
+     * Test parsing an invalid RFC 1341 content type with a parameter missing
+     * a value.
+     */
+    @Test(expected = UnsupportedFormatException.class)
+    public void testParseContentTypeParamNoValue() {
+        SerializationFormat.contentType("text/html;level");
+    }
+
+    /**
+     * Test parsing a category wildcard with a type wildcard.
+     */
+    @Test
+    public void testParseContentTypeWildcardCategory() {
+        assertEquals("*/*", SerializationFormat.contentType("*/*").asContentType());
+    }
+
+    /**
+     * Test parsing a category wildcard requires a type wildcard.
+     */
+    @Test(expected = UnsupportedFormatException.class)
+    public void testParseContentTypeWildcardCategoryExactType() {
+        SerializationFormat.contentType("*/plain");
+    }
+
+    /**
+     * Test parsing ignores whitespace surrounding the separators and folds
+     * the case of the type and parameter names.
+     */
+    @Test
+    public void testParseContentTypeWhitespaceAndCase() {
+        SerializationFormat f = SerializationFormat
+                .contentType("Text/HTML; Charset=UTF-8 ; foo = \"a;b\"");
+
+        assertEquals("text", f.getCategory());
+        assertEquals("html", f.getType());
+        assertEquals(2, f.getParameterCount());
+        assertEquals("UTF-8", f.findParameter("charset").get());
+        assertEquals("a;b", f.findParameter("foo").get());
+    }
+
+    /**
+     * Test repeated parsing returns the canonical instance.
+     */
+    @Test
+    public void testParseContentTypeInterned() {
+        SerializationFormat f = SerializationFormat
+                .contentType("application/json;charset=UTF-8");
+
+        assertSame(f, SerializationFormat
+                .contentType(new String("application/json;charset=UTF-8")));
+        assertSame(f, SerializationFormat
+                .contentType("Application/JSON; charset=\"UTF-8\""));
+        assertSame(SerializationFormat.GENERIC_JSON_FORMAT,
+                SerializationFormat.contentType("application/json"));
+    }
+
+    /**
+     * Test the intern cache admits common content types after being filled
+     * with unique content types.
+     */
+    @Test
+    public void testParseContentTypeInternEviction() {
+        for (int i = 0; i < SerializationFormat.MAX_INTERNED * 2; i++) {
+            SerializationFormat.contentType("multipart/form-data;boundary=b"
+                    + i);
+        }
+        final String common = "application/xml;charset=UTF-8";
+        SerializationFormat f = SerializationFormat.contentType(common);
+        assertTrue(SerializationFormat.isInterned(common));
+        assertSame(f, SerializationFormat.contentType(common));
+        assertSame(SerializationFormat.GENERIC_JSON_FORMAT,
+                SerializationFormat.contentType("Application/JSON"));
+    }
+
     /**
      * Test formatting a valid content type formats as expected.
      */
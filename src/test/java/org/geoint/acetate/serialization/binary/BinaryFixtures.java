@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.ValueInstance;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.NamedRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.BufferDeserializer;
+import org.geoint.acetate.serialization.BufferSerializer;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+import org.geoint.acetate.serialization.ValueCodec;
+
+/**
+ * Model and instances shared by the binary codec tests.
+ * <p>
+ * The {@code changed} event declares a text note, a collection member of
+ * count or text values, and a text member which is never present. The
+ * {@code parent} resource declares a text name and the last changed event,
+ * and links a {@code child} resource with a text name.
+ *
+ * @author steve_siebert
+ */
+final class BinaryFixtures {
+
+    static final String NS = "org.geoint.acetate.test";
+    static final String V = "1.0";
+    static final SerializationFormat FORMAT = SchemaBinaryCodec.FORMAT;
+
+    final AtomicInteger decoded = new AtomicInteger(); //text values decoded
+    final ValueType text;
+    final ValueType count;
+    final EventType changed;
+    final ResourceType child;
+    final ResourceType parent;
+
+    private BinaryFixtures(String collection, boolean counts)
+            throws InvalidModelException {
+        TextCodec textCodec = new TextCodec();
+        text = new ValueType(NS, V, "text", textCodec, textCodec);
+        //channel-only value codec
+        TypeCodec<ValueInstance> countCodec = ValueCodec.valueCodec(NS, V,
+                "count", SerializationFormat.GENERIC_BINARY_FORMAT,
+                (out, value, format) -> out.write((ByteBuffer) ByteBuffer
+                        .allocate(4).putInt(((Count) value).count).flip()),
+                (in, format) -> readCount(in));
+        count = new ValueType(NS, V, "count", countCodec, countCodec);
+        changed = new EventType(NS, V, "changed", Arrays.asList(
+                new NamedTypeRef<>(text, "note"),
+                new NamedTypeRef<>(counts ? count : text, collection, null,
+                        true),
+                new NamedTypeRef<>(text, "missing")));
+        child = new ResourceType(NS, V, "child",
+                Collections.singletonList(new NamedTypeRef<>(text, "name")),
+                Collections.emptyList(), Collections.emptyList());
+        parent = new ResourceType(NS, V, "parent",
+                Arrays.asList(new NamedTypeRef<>(text, "name"),
+                        new NamedTypeRef<>(changed, "lastEvent")),
+                Collections.singletonList(new NamedTypeRef<>(child, "child")),
+                Collections.emptyList());
+    }
+
+    /**
+     * Model with a "counts" collection of count values.
+     */
+    static BinaryFixtures withCounts() throws InvalidModelException {
+        return new BinaryFixtures("counts", true);
+    }
+
+    /**
+     * Model with a "tags" collection of text values.
+     */
+    static BinaryFixtures withTags() throws InvalidModelException {
+        return new BinaryFixtures("tags", false);
+    }
+
+    Text text(String value) {
+        return new Text(text, value);
+    }
+
+    Count count(int value) {
+        return new Count(count, value);
+    }
+
+    EventInstance event(String guid, String note, TypeInstance... elements) {
+        TypeInstanceRef[] composites = new TypeInstanceRef[3];
+        if (note != null) {
+            composites[0] = ref(changed.refAt(0), text(note));
+        }
+        if (elements.length > 0) {
+            composites[1] = new DecodedInstanceRef<>(
+                    (NamedTypeRef) changed.refAt(1), Arrays.asList(elements));
+        }
+        return new DecodedEventInstance(changed, guid, NS, "parent", V,
+                "p-1", "1", null, composites);
+    }
+
+    ResourceInstance parent(String guid, String previousVersion,
+            String childName, EventInstance lastEvent) {
+        ResourceInstance c = new DecodedResourceInstance(child, "c-1", "1",
+                null, new TypeInstanceRef[]{
+                    ref(child.refAt(0), text(childName))},
+                new TypeInstanceRef[0]);
+        return new DecodedResourceInstance(parent, guid, "2", previousVersion,
+                new TypeInstanceRef[]{
+                    ref(parent.refAt(0), text("parent")),
+                    ref(parent.refAt(1), lastEvent)},
+                new TypeInstanceRef[]{ref(parent.linkAt(0), c)});
+    }
+
+    static TypeInstanceRef ref(NamedRef model, TypeInstance instance) {
+        return new DecodedInstanceRef<>((NamedTypeRef) model,
+                Collections.singletonList(instance));
+    }
+
+    static String text(TypeInstanceRef ref) {
+        return ((Text) ref.getReferencedType()).text;
+    }
+
+    private Count readCount(ReadableByteChannel in) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4);
+        while (b.hasRemaining() && in.read(b) != -1) {
+        }
+        b.flip();
+        return count(b.getInt());
+    }
+
+    static final class Text implements ValueInstance {
+
+        private final ValueType model;
+        final String text;
+
+        Text(ValueType model, String text) {
+            this.model = model;
+            this.text = text;
+        }
+
+        @Override
+        public ValueType getModel() {
+            return model;
+        }
+    }
+
+    static final class Count implements ValueInstance {
+
+        private final ValueType model;
+        final int count;
+
+        Count(ValueType model, int count) {
+            this.model = model;
+            this.count = count;
+        }
+
+        @Override
+        public ValueType getModel() {
+            return model;
+        }
+    }
+
+    /**
+     * Buffer-capable codec writing the raw UTF-8 bytes of the text, counting
+     * the values it decodes.
+     */
+    private final class TextCodec implements TypeCodec<ValueInstance>,
+            BufferSerializer<ValueInstance>, BufferDeserializer<ValueInstance> {
+
+        @Override
+        public boolean supports(String namespace, String version, String type,
+                SerializationFormat format) {
+            return true;
+        }
+
+        @Override
+        public int serialize(ByteBuffer out, ValueInstance value,
+                SerializationFormat format) {
+            byte[] bytes = ((Text) value).text.getBytes(StandardCharsets.UTF_8);
+            BufferCapacityException.require(out, bytes.length);
+            out.put(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public ValueInstance deserialize(ByteBuffer in,
+                SerializationFormat format) {
+            decoded.incrementAndGet();
+            byte[] bytes = new byte[in.remaining()];
+            in.get(bytes);
+            return text(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void serialize(WritableByteChannel out, ValueInstance value,
+                SerializationFormat format) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ValueInstance deserialize(ReadableByteChannel in,
+                SerializationFormat format) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
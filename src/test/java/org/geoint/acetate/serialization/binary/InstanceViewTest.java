@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.DomainSerializationException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.FORMAT;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.NS;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.text;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class InstanceViewTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BinaryFixtures fixtures;
+    private AtomicInteger decoded;
+    private EventType changed;
+    private ResourceType parent;
+
+    @Before
+    public void createModel() throws Exception {
+        fixtures = BinaryFixtures.withTags();
+        decoded = fixtures.decoded;
+        changed = fixtures.changed;
+        parent = fixtures.parent;
+    }
+
+    @Test
+    public void testScanWithReusedView() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(512),
+            ByteBuffer.allocateDirect(512)}) {
+            for (int i = 0; i < 3; i++) {
+                codec.serialize(buffer, event("e" + i, "note " + i, "a", "b"),
+                        FORMAT);
+            }
+            buffer.flip();
+
+            EventInstanceView view = new EventInstanceView(changed);
+            for (int i = 0; i < 3; i++) {
+                final int start = buffer.position();
+                view.wrap(buffer);
+                assertEquals(start + view.getRecordLength(), buffer.position());
+                assertEquals("e" + i, view.getEventGuid());
+                assertEquals(NS, view.getResourceNamespace());
+                assertEquals("p-1", view.getResourceGuid());
+                assertNull(view.getEventSource());
+                assertEquals("note " + i,
+                        text(view.findComposite("note").get()));
+                assertFalse(view.findComposite("missing").isPresent());
+                assertFalse(view.findComposite("unknown").isPresent());
+                assertEquals(2, view.getComposites().size());
+            }
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    public void testMappedBuffer() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        File file = folder.newFile();
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            codec.serialize(channel, event("e0", "zero"), FORMAT);
+            codec.serialize(channel, event("e1", "one"), FORMAT);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+
+            EventInstanceView view = new EventInstanceView(changed);
+            assertEquals("zero", text(view.wrap(mapped)
+                    .findComposite("note").get()));
+            assertEquals("one", text(view.wrap(mapped)
+                    .findComposite("note").get()));
+            assertFalse(mapped.hasRemaining());
+        }
+    }
+
+    @Test
+    public void testDecodesOnlyTouchedComposites() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        SchemaBinaryCodec.forEvent(changed).serialize(buffer,
+                event("e", "note", "a", "b", "c"), FORMAT);
+        buffer.flip();
+
+        EventInstanceView view = new EventInstanceView(changed).wrap(buffer);
+        assertEquals("e", view.getEventGuid());
+        assertEquals(0, decoded.get());
+        TypeInstanceRef tags = view.findComposite("tags").get();
+        assertEquals(3, decoded.get()); //the tags only, not the note
+        assertSame(tags, view.findComposite("tags").get());
+        assertEquals(3, decoded.get());
+        view.getComposites();
+        assertEquals(4, decoded.get());
+    }
+
+    @Test
+    public void testRefsSurviveRewrap() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        codec.serialize(buffer, event("e0", "zero"), FORMAT);
+        codec.serialize(buffer, event("e1", null), FORMAT);
+        buffer.flip();
+
+        EventInstanceView view = new EventInstanceView(changed);
+        TypeInstanceRef note = view.wrap(buffer).findComposite("note").get();
+        view.wrap(buffer);
+        assertEquals("e1", view.getEventGuid());
+        assertFalse(view.findComposite("note").isPresent());
+        assertEquals("zero", text(note));
+    }
+
+    @Test
+    public void testResourceView() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(512);
+        SchemaBinaryCodec.forResource(parent).serialize(buffer,
+                parent("p-1", "child name"), FORMAT);
+        buffer.flip();
+
+        ResourceInstanceView view = new ResourceInstanceView(parent)
+                .wrap(buffer, 0);
+        assertEquals(0, buffer.position());
+        assertEquals(buffer.limit(), view.getRecordLength());
+        assertEquals("p-1", view.getInstanceGuid());
+        assertEquals("2", view.getInstanceVersion());
+        assertEquals("1", view.getPreviousResourceVersion().get());
+        ResourceInstance link = view.findLink("child").get()
+                .getReferencedType();
+        assertEquals("child name", text(link.findComposite("name").get()));
+        assertEquals(1, view.getLinks().size());
+        EventInstance event = (EventInstance) view.findComposite("lastEvent")
+                .get().getReferencedType();
+        assertEquals("note", text(event.findComposite("note").get()));
+        assertEquals(2, view.getComposites().size());
+        assertTrue(view.getOperations().isEmpty());
+    }
+
+    @Test
+    public void testNonMinimalPrefix() throws Exception {
+        ByteBuffer encoded = ByteBuffer.allocate(256);
+        final int size = SchemaBinaryCodec.forEvent(changed)
+                .serialize(encoded, event("e", "note", "a"), FORMAT);
+        final int length = encoded.get(0);
+        assertTrue(length < 0x80);
+
+        //the record length padded to a two byte varint
+        ByteBuffer buffer = ByteBuffer.allocate(size + 1);
+        buffer.put((byte) (length | 0x80)).put((byte) 0);
+        buffer.put((ByteBuffer) encoded.flip().position(1));
+        buffer.flip();
+
+        EventInstanceView view = new EventInstanceView(changed).wrap(buffer);
+        assertEquals(size + 1, view.getRecordLength());
+        assertFalse(buffer.hasRemaining());
+        assertEquals("note", text(view.findComposite("note").get()));
+    }
+
+    @Test
+    public void testIncompleteRecord() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        final int size = SchemaBinaryCodec.forEvent(changed)
+                .serialize(buffer, event("e", "note", "a"), FORMAT);
+        buffer.flip().limit(size - 1);
+        try {
+            new EventInstanceView(changed).wrap(buffer);
+            fail("expected capacity exception");
+        } catch (BufferCapacityException ex) {
+            assertEquals(size, ex.getRequiredCapacity());
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test(expected = DomainSerializationException.class)
+    public void testCorruptRecord() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        SchemaBinaryCodec.forEvent(changed).serialize(buffer,
+                event("e", "note", "a"), FORMAT);
+        buffer.flip();
+        buffer.put(0, (byte) (buffer.get(0) - 3)); //shorten the record
+        new EventInstanceView(changed).wrap(buffer).getComposites();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotWrapped() {
+        new EventInstanceView(changed).getEventGuid();
+    }
+
+    private EventInstance event(String guid, String note, String... tags) {
+        TypeInstance[] values = new TypeInstance[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            values[i] = fixtures.text(tags[i]);
+        }
+        return fixtures.event(guid, note, values);
+    }
+
+    private ResourceInstance parent(String guid, String childName) {
+        return fixtures.parent(guid, "1", childName, event("e", "note"));
+    }
+}
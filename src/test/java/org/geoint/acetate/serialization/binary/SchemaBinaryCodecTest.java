@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.serialization.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.geoint.acetate.EventInstance;
+import org.geoint.acetate.ResourceInstance;
+import org.geoint.acetate.TypeInstance;
+import org.geoint.acetate.TypeInstanceRef;
+import org.geoint.acetate.ValueInstance;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.NamedMapRef;
+import org.geoint.acetate.model.NamedTypeRef;
+import org.geoint.acetate.model.ResourceType;
+import org.geoint.acetate.model.ValueType;
+import org.geoint.acetate.serialization.BufferCapacityException;
+import org.geoint.acetate.serialization.BufferChannels;
+import org.geoint.acetate.serialization.BufferDeserializer;
+import org.geoint.acetate.serialization.BufferSerializer;
+import org.geoint.acetate.serialization.CodecRegistry;
+import org.geoint.acetate.serialization.DomainSerializationException;
+import org.geoint.acetate.serialization.SerializationFormat;
+import org.geoint.acetate.serialization.TypeCodec;
+import org.geoint.acetate.serialization.binary.BinaryFixtures.Count;
+import org.junit.Before;
+import org.junit.Test;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.FORMAT;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.NS;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.V;
+import static org.geoint.acetate.serialization.binary.BinaryFixtures.text;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class SchemaBinaryCodecTest {
+
+    private BinaryFixtures fixtures;
+    private ValueType text;
+    private ValueType count;
+    private EventType changed;
+    private ResourceType parent;
+    private ValueType fixed;
+
+    @Before
+    public void createModel() throws Exception {
+        fixtures = BinaryFixtures.withCounts();
+        text = fixtures.text;
+        count = fixtures.count;
+        changed = fixtures.changed;
+        parent = fixtures.parent;
+    }
+
+    @Test
+    public void testEventRoundTrip() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        EventInstance event = event("evt-1", "a note", 1, 2, 300000);
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(256),
+            ByteBuffer.allocateDirect(256)}) {
+            int written = codec.serialize(buffer, event, FORMAT);
+            assertEquals(written, buffer.position());
+            buffer.flip();
+            EventInstance decoded = codec.deserialize(buffer, FORMAT);
+            assertFalse(buffer.hasRemaining());
+            assertEvent(event, decoded);
+        }
+    }
+
+    @Test
+    public void testResourceRoundTrip() throws Exception {
+        SchemaBinaryCodec<ResourceInstance> codec
+                = SchemaBinaryCodec.forResource(parent);
+        ResourceInstance resource = parent("p-1", "child name");
+
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        codec.serialize(buffer, resource, FORMAT);
+        buffer.flip();
+        ResourceInstance decoded = codec.deserialize(buffer, FORMAT);
+
+        assertEquals("p-1", decoded.getInstanceGuid());
+        assertEquals("2", decoded.getInstanceVersion());
+        assertFalse(decoded.getPreviousResourceVersion().isPresent());
+        assertEquals("parent", text(decoded.findComposite("name").get()));
+        assertEvent((EventInstance) resource.findComposite("lastEvent").get()
+                .getReferencedType(),
+                (EventInstance) decoded.findComposite("lastEvent").get()
+                .getReferencedType());
+        ResourceInstance link = decoded.findLink("child").get()
+                .getReferencedType();
+        assertEquals("child name", text(link.findComposite("name").get()));
+        assertTrue(decoded.getOperations().isEmpty());
+    }
+
+    @Test
+    public void testChannelRoundTrip() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.serialize(Channels.newChannel(bytes), event("e1", "one", 1),
+                FORMAT);
+        codec.serialize(Channels.newChannel(bytes), event("e2", "two"),
+                FORMAT);
+
+        ReadableByteChannel in = Channels.newChannel(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("e1", codec.deserialize(in, FORMAT).getEventGuid());
+        assertEquals("e2", codec.deserialize(in, FORMAT).getEventGuid());
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        EventInstance event = event("evt-1", "a note", 1, 2, 3);
+        ByteBuffer large = ByteBuffer.allocate(256);
+        final int size = codec.serialize(large, event, FORMAT);
+
+        ByteBuffer small = ByteBuffer.allocate(size - 1);
+        try {
+            codec.serialize(small, event, FORMAT);
+            fail("expected capacity exception");
+        } catch (BufferCapacityException ex) {
+            assertEquals(size, ex.getRequiredCapacity());
+            assertEquals(0, small.position());
+        }
+
+        large.flip().limit(size - 1);
+        try {
+            codec.deserialize(large, FORMAT);
+            fail("expected capacity exception");
+        } catch (BufferCapacityException ex) {
+            assertEquals(size, ex.getRequiredCapacity());
+            assertEquals(0, large.position());
+        }
+    }
+
+    @Test
+    public void testExactCapacity() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        for (EventInstance event : new EventInstance[]{
+            new DecodedEventInstance(changed, "e", null, null, null, null,
+            null, null, new TypeInstanceRef[3]),
+            event("evt-1", "a note", 1, 2, 300000)}) {
+            ByteBuffer large = ByteBuffer.allocate(256);
+            final int size = codec.serialize(large, event, FORMAT);
+
+            for (int headroom = 0; headroom <= Varints.MAX_SIZE; headroom++) {
+                ByteBuffer buffer = ByteBuffer.allocate(size + headroom);
+                assertEquals(size, codec.serialize(buffer, event, FORMAT));
+                assertArrayEquals(Arrays.copyOf(large.array(), size),
+                        Arrays.copyOf(buffer.array(), size));
+            }
+        }
+    }
+
+    @Test
+    public void testChannelSerializerExactCapacity() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        EventInstance event = event("evt-1", "a note", 1, 2, 3);
+        final int size = codec.serialize(ByteBuffer.allocate(256), event,
+                FORMAT);
+
+        for (int initial : new int[]{size, 1}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BufferChannels.serializer(codec, initial)
+                    .serialize(Channels.newChannel(bytes), event, FORMAT);
+            assertEquals(size, bytes.size());
+        }
+    }
+
+    @Test
+    public void testTruncatedValueCorrupt() throws Exception {
+        FixedCodec fixedCodec = new FixedCodec();
+        fixed = new ValueType(NS, V, "fixed", fixedCodec, fixedCodec);
+        EventType counted = new EventType(NS, V, "counted",
+                Collections.singletonList(new NamedTypeRef<>(fixed, "count")));
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(counted);
+
+        //7 null strings, bitmap, value record of 3 bytes rather than 4
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+            12, 0, 0, 0, 0, 0, 0, 0, 1, 3, 1, 2, 3});
+        try {
+            codec.deserialize(buffer, FORMAT);
+            fail("expected corrupt record");
+        } catch (BufferCapacityException ex) {
+            fail("truncated value reported as an incomplete record");
+        } catch (DomainSerializationException ex) {
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void testCompactEncoding() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.serialize(buffer, new DecodedEventInstance(changed, "e", null,
+                null, null, null, null, null, new TypeInstanceRef[3]), FORMAT);
+        //length, 7 header strings (guid 2 bytes, 6 nulls), 1 bitmap byte
+        assertEquals(1 + 2 + 6 + 1, buffer.position());
+        assertEquals(0, buffer.get(9)); //no composites present
+    }
+
+    @Test(expected = DomainSerializationException.class)
+    public void testDepthGuard() throws Exception {
+        SchemaBinaryCodec.forResource(parent, 1)
+                .serialize(ByteBuffer.allocate(512), parent("p", "c"), FORMAT);
+    }
+
+    @Test(expected = DomainSerializationException.class)
+    public void testCorruptRecord() throws Exception {
+        SchemaBinaryCodec<EventInstance> codec = SchemaBinaryCodec.forEvent(changed);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.serialize(buffer, event("evt-1", "a note", 1), FORMAT);
+        buffer.flip();
+        buffer.put(0, (byte) (buffer.get(0) - 3)); //shorten the record
+        codec.deserialize(buffer, FORMAT);
+    }
+
+    @Test(expected = DomainSerializationException.class)
+    public void testMapMemberUnsupported() throws Exception {
+        EventType mapped = new EventType(NS, V, "mapped",
+                Collections.singletonList(new NamedMapRef<>("map",
+                        new NamedTypeRef<>(text), new NamedTypeRef<>(count))));
+        TypeInstanceRef ref = new DecodedInstanceRef<>(
+                new NamedTypeRef<>(text, "map"), Collections.emptyList());
+        SchemaBinaryCodec.forEvent(mapped).serialize(ByteBuffer.allocate(64),
+                new DecodedEventInstance(mapped, "e", null, null, null, null,
+                        null, null, new TypeInstanceRef[]{ref}), FORMAT);
+    }
+
+    @Test
+    public void testProviderDiscovered() throws Exception {
+        CodecRegistry registry = CodecRegistry.load();
+        assertTrue(registry.getCodec(changed, FORMAT)
+                .supports(changed.getTypeKey(), FORMAT));
+        assertFalse(registry.findCodec(changed,
+                SerializationFormat.GENERIC_JSON_FORMAT).isPresent());
+    }
+
+    private EventInstance event(String guid, String note, int... counts) {
+        TypeInstance[] values = new TypeInstance[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            values[i] = fixtures.count(counts[i]);
+        }
+        return fixtures.event(guid, note, values);
+    }
+
+    private ResourceInstance parent(String guid, String childName) {
+        return fixtures.parent(guid, null, childName, event("e", "note", 7));
+    }
+
+    private static void assertEvent(EventInstance expected,
+            EventInstance actual) {
+        assertEquals(expected.getEventGuid(), actual.getEventGuid());
+        assertEquals(expected.getResourceNamespace(),
+                actual.getResourceNamespace());
+        assertEquals(expected.getResourceGuid(), actual.getResourceGuid());
+        assertNull(actual.getEventSource());
+        assertEquals(text(expected.findComposite("note").get()),
+                text(actual.findComposite("note").get()));
+        List<Integer> expectedCounts = new ArrayList<>();
+        expected.findComposite("counts").get()
+                .forEachType((c) -> expectedCounts.add(((Count) c).count));
+        List<Integer> actualCounts = new ArrayList<>();
+        actual.findComposite("counts").get()
+                .forEachType((c) -> actualCounts.add(((Count) c).count));
+        assertEquals(expectedCounts, actualCounts);
+        assertFalse(actual.findComposite("missing").isPresent());
+        assertEquals(2, actual.getComposites().size());
+    }
+
+    /**
+     * Buffer-only codec writing a count as four bytes.
+     */
+    private final class FixedCodec implements TypeCodec<ValueInstance>,
+            BufferSerializer<ValueInstance>, BufferDeserializer<ValueInstance> {
+
+        @Override
+        public boolean supports(String namespace, String version, String type,
+                SerializationFormat format) {
+            return true;
+        }
+
+        @Override
+        public int serialize(ByteBuffer out, ValueInstance value,
+                SerializationFormat format) {
+            BufferCapacityException.require(out, Integer.BYTES);
+            out.putInt(((Count) value).count);
+            return Integer.BYTES;
+        }
+
+        @Override
+        public ValueInstance deserialize(ByteBuffer in,
+                SerializationFormat format) {
+            BufferCapacityException.require(in, Integer.BYTES);
+            return new Count(fixed, in.getInt());
+        }
+
+        @Override
+        public void serialize(java.nio.channels.WritableByteChannel out,
+                ValueInstance value, SerializationFormat format) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ValueInstance deserialize(
+                java.nio.channels.ReadableByteChannel in,
+                SerializationFormat format) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
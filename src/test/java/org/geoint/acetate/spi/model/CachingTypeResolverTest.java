@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 geoint.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.geoint.acetate.spi.model;
+
+import java.util.Collections;
+import org.geoint.acetate.model.DomainModel;
+import org.geoint.acetate.model.DomainRegistry;
+import org.geoint.acetate.model.EventType;
+import org.geoint.acetate.model.InvalidModelException;
+import org.geoint.acetate.model.MemoryTypeResolver;
+import org.geoint.acetate.model.TypeKey;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author steve_siebert
+ */
+public class CachingTypeResolverTest {
+
+    private static final String NS = "org.geoint.acetate.test";
+    private static final String V = "1.0";
+    private static final String TN = "testEvent";
+
+    @Test
+    public void testCachedResolution() throws Exception {
+        CachingTypeResolver r = new CachingTypeResolver(
+                new MemoryTypeResolver(testEvent(TN)), 10);
+
+        assertTrue(r.resolve(NS, V, TN).isPresent());
+        assertTrue(r.resolve(TypeKey.of(NS, V, TN)).isPresent());
+        assertEquals(1, r.getMissCount());
+        assertEquals(1, r.getHitCount());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        CachingTypeResolver r = new CachingTypeResolver(
+                new MemoryTypeResolver(testEvent(TN)), 10);
+
+        assertFalse(r.resolve(NS, V, "unknown").isPresent());
+        assertFalse(r.resolve(NS, V, "unknown").isPresent());
+        assertEquals(1, r.getMissCount());
+        assertEquals(1, r.getHitCount());
+    }
+
+    @Test
+    public void testRegistryInvalidation() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        CachingTypeResolver r = new CachingTypeResolver(registry, 10);
+
+        assertFalse(r.resolve(NS, V, TN).isPresent()); //cached miss
+        registry.register(DomainModel.newInstance(NS, V,
+                Collections.singletonList(testEvent(TN))));
+        assertTrue(r.resolve(NS, V, TN).isPresent());
+        assertEquals(2, r.getMissCount());
+    }
+
+    @Test
+    public void testManualInvalidation() throws Exception {
+        CachingTypeResolver r = new CachingTypeResolver(
+                new MemoryTypeResolver(testEvent(TN)), 10);
+        r.resolve(NS, V, TN);
+        r.invalidate();
+        r.resolve(NS, V, TN);
+        assertEquals(2, r.getMissCount());
+        assertEquals(0, r.getHitCount());
+    }
+
+    @Test
+    public void testBoundedEviction() throws Exception {
+        final int max = 5;
+        CachingTypeResolver r = new CachingTypeResolver(
+                new MemoryTypeResolver(), max);
+        for (int i = 0; i < max * 2; i++) {
+            r.resolve(NS, V, String.valueOf(i));
+        }
+        assertEquals(max, r.size());
+        assertEquals(max, r.getEvictionCount());
+    }
+
+    @Test
+    public void testLazyRegistrationInvalidation() throws Exception {
+        DomainRegistry registry = new DomainRegistry();
+        CachingTypeResolver r = new CachingTypeResolver(registry, 10);
+        final DomainModel model = DomainModel.newInstance(NS, V,
+                Collections.singletonList(testEvent(TN)));
+        registry.register(NS, V, () -> {
+            //the domain is not resolvable while it is being supplied
+            assertFalse(r.resolve(NS, V, TN).isPresent());
+            return model;
+        });
+
+        assertTrue(registry.findModel(NS, V).isPresent());
+        assertTrue(r.resolve(NS, V, TN).isPresent());
+    }
+
+    @Test
+    public void testConcurrentInvalidationBounded() throws Exception {
+        final int max = 5;
+        CachingTypeResolver r = new CachingTypeResolver(
+                new MemoryTypeResolver(), max);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    r.resolve(NS, V, String.valueOf(i % 50));
+                    if (i % 7 == 0) {
+                        r.invalidate();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (int i = 0; i < max; i++) {
+            r.resolve(NS, V, "after" + i);
+        }
+        assertTrue(r.size() <= max);
+    }
+
+    private EventType testEvent(String name) throws InvalidModelException {
+        return new EventType(NS, V, name, Collections.EMPTY_LIST);
+    }
+}